@@ -58,6 +58,20 @@
 #define SERVO_CENTER 90  // 90 degrees
 #define SERVO_MAX 180    // 180 degrees
 
+// ZigBee frame format: [START][version:4|flags:4][seq][length][payload][CRC-8]
+#define FRAME_START 0xA5
+#define PROTOCOL_VERSION 1
+#define FLAG_ACK_REQUESTED 1
+#define FLAG_ACK 2
+#define FLAG_ADDRESSED 4
+#define FLAG_SYNC 8
+#define FRAME_HEADER_SIZE 4
+#define MAX_PAYLOAD 32
+
+// Address of this controller when its radio talks to a coordinator shared by
+// many cabinets; leave undefined for a dedicated link
+//#define CONTROLLER_ADDRESS 0x0001
+
 // Objects
 MPU6050 mpu;
 Servo gameServo;
@@ -74,12 +88,23 @@ unsigned long lastColorChangeTime = 0; // Last time LED color was changed
 unsigned long servoReturnTime = 0;    // Time to return servo to center position
 boolean pendingServoReturn = false;   // Flag to return servo to center
 
+// ZigBee framing state
+uint8_t frameBuffer[FRAME_HEADER_SIZE + MAX_PAYLOAD + 1]; // Frame being received
+uint8_t frameFill = 0;                // Bytes of the frame received so far
+uint8_t txSeq = 0;                    // Sequence number of the next frame sent
+int16_t lastRxSeq = -1;               // Newest sequence number received (-1 if none)
+uint8_t rxBitmap = 0;                 // Bit i set if frame (lastRxSeq - 1 - i) was received
+
 // Function prototypes
 void setLedColor(uint8_t color);
 void playTone(uint8_t tone);
 void moveServo(uint8_t position);
 void sendZigBeeData(uint8_t data);
-uint8_t receiveZigBeeData();
+void sendFrame(uint8_t flags, const uint8_t* payload, uint8_t length);
+void receiveZigBeeData();
+void processFrameByte(uint8_t data);
+boolean markReceived(uint8_t seq, boolean sync);
+uint8_t crc8(const uint8_t* data, uint8_t length);
 void processReceivedData(uint8_t data);
 void handleServoBarrier(boolean isOpen);
 
@@ -201,11 +226,8 @@ void loop() {
     }
   }
   
-  // Check for incoming ZigBee data
-  uint8_t receivedData = receiveZigBeeData();
-  if (receivedData != 0) {
-    processReceivedData(receivedData);
-  }
+  // Check for incoming ZigBee frames
+  receiveZigBeeData();
   
   // Check if it's time to return servo to center position
   if (pendingServoReturn && currentTime > servoReturnTime) {
@@ -261,7 +283,7 @@ void handleServoBarrier(boolean isOpen) {
 }
 
 /**
- * Process data received from ZigBee.
+ * Process one command from a received ZigBee frame.
  * Format: [type][value]
  * Type 1: LED control
  * Type 2: Buzzer control
@@ -403,27 +425,167 @@ void moveServo(uint8_t position) {
 }
 
 /**
- * Send data via ZigBee.
+ * Send data via ZigBee, in a frame of its own.
  * 
  * @param data Data to send
  */
 void sendZigBeeData(uint8_t data) {
-  // In a real implementation, send data to ZigBee module
-  // For now, just print to serial
-  Serial.print("Sending ZigBee data: ");
-  Serial.println(data);
+  sendFrame(0, &data, 1);
+}
+
+/**
+ * Send a frame via ZigBee.
+ * 
+ * @param flags Frame flags
+ * @param payload Payload bytes
+ * @param length Number of payload bytes
+ */
+void sendFrame(uint8_t flags, const uint8_t* payload, uint8_t length) {
+  uint8_t frame[FRAME_HEADER_SIZE + MAX_PAYLOAD + 1];
+  uint8_t* body = frame + FRAME_HEADER_SIZE;
+#ifdef CONTROLLER_ADDRESS
+  // Tell the coordinator which cabinet this is
+  flags |= FLAG_ADDRESSED;
+  *body++ = (CONTROLLER_ADDRESS >> 8) & 0xFF;
+  *body++ = CONTROLLER_ADDRESS & 0xFF;
+#endif
+  memcpy(body, payload, length);
+  length += body - (frame + FRAME_HEADER_SIZE);
+
+  frame[0] = FRAME_START;
+  frame[1] = (PROTOCOL_VERSION << 4) | (flags & 0x0F);
+  frame[2] = txSeq++;
+  frame[3] = length;
+  frame[FRAME_HEADER_SIZE + length] = crc8(frame + 1, FRAME_HEADER_SIZE - 1 + length);
+  Serial.write(frame, FRAME_HEADER_SIZE + length + 1);
 }
 
 /**
  * Receive data via ZigBee.
+ * Feeds every available byte to the frame decoder.
+ */
+void receiveZigBeeData() {
+  while (Serial.available() > 0) {
+    processFrameByte(Serial.read());
+  }
+}
+
+/**
+ * Add a byte to the frame being received and act on the frame once it is complete.
+ * Bytes outside a frame and frames with a bad CRC are dropped.
  * 
- * @return Received data (0 if none)
+ * @param data Received byte
  */
-uint8_t receiveZigBeeData() {
-  // In a real implementation, receive data from ZigBee module
-  // For now, check if there's data available on Serial and use that
-  if (Serial.available() > 0) {
-    return Serial.read();
+void processFrameByte(uint8_t data) {
+  // Wait for a start byte
+  if (frameFill == 0 && data != FRAME_START) {
+    return;
+  }
+  frameBuffer[frameFill++] = data;
+
+  if (frameFill == FRAME_HEADER_SIZE && frameBuffer[3] > MAX_PAYLOAD) {
+    frameFill = 0;
+    return;
+  }
+  if (frameFill < FRAME_HEADER_SIZE || frameFill < FRAME_HEADER_SIZE + frameBuffer[3] + 1) {
+    return;
+  }
+
+  // Whole frame received
+  uint8_t length = frameBuffer[3];
+  frameFill = 0;
+  if ((frameBuffer[1] >> 4) != PROTOCOL_VERSION
+      || crc8(frameBuffer + 1, FRAME_HEADER_SIZE - 1 + length) != frameBuffer[FRAME_HEADER_SIZE + length]) {
+    Serial.println("Dropped corrupt frame");
+    return;
+  }
+
+  uint8_t flags = frameBuffer[1] & 0x0F;
+  uint8_t* payload = frameBuffer + FRAME_HEADER_SIZE;
+#ifdef CONTROLLER_ADDRESS
+  // Frames from a shared coordinator may be meant for another cabinet
+  if (!(flags & FLAG_ADDRESSED) || length < 2
+      || ((payload[0] << 8) | payload[1]) != CONTROLLER_ADDRESS) {
+    return;
+  }
+  payload += 2;
+  length -= 2;
+#endif
+
+  boolean stale = false;
+  if (flags & FLAG_ACK_REQUESTED) {
+    stale = !markReceived(frameBuffer[2], flags & FLAG_SYNC);
+
+    // Selective ack: newest sequence number and a bitmap of the eight before it
+    uint8_t ack[2] = { (uint8_t) lastRxSeq, rxBitmap };
+    sendFrame(FLAG_ACK, ack, 2);
+  } else if (flags & FLAG_SYNC) {
+    // Untracked, but later tracked frames must not be compared with an earlier game's
+    lastRxSeq = -1;
+    rxBitmap = 0;
+  }
+
+  // Frames carry absolute actuator state, so a repeat or a late retransmission
+  // would undo a newer frame; it is only acknowledged
+  if (!stale) {
+    for (uint8_t i = 0; i < length; i++) {
+      processReceivedData(payload[i]);
+    }
+  }
+}
+
+/**
+ * Record a received sequence number for the selective ack.
+ * The game sets FLAG_SYNC on the first frame after it connects; its sequence
+ * numbers start again from zero, so the window of an earlier game is dropped.
+ * 
+ * @param seq Sequence number of the frame
+ * @param sync true if the frame starts a new connection
+ * @return true if the frame is newer than any received so far, false if it
+ *         was received before or arrived after a newer one
+ */
+boolean markReceived(uint8_t seq, boolean sync) {
+  if (lastRxSeq < 0 || sync) {
+    lastRxSeq = seq;
+    rxBitmap = 0;
+    return true;
+  }
+
+  uint8_t ahead = seq - (uint8_t) lastRxSeq;
+  if (ahead == 0) {
+    return false;
+  }
+
+  if (ahead < 128) {
+    // Newer frame: slide the window forward
+    rxBitmap = ahead > 8 ? 0 : (uint8_t) ((rxBitmap << ahead) | (1 << (ahead - 1)));
+    lastRxSeq = seq;
+    return true;
+  }
+
+  // Older frame, such as a retransmission of one lost before a newer frame
+  // got through: acknowledge it, but never act on it
+  uint8_t behind = (uint8_t) lastRxSeq - seq;
+  if (behind <= 8) {
+    rxBitmap |= (uint8_t) (1 << (behind - 1));
+  }
+  return false;
+}
+
+/**
+ * Compute the CRC-8 (polynomial 0x07) of a run of bytes.
+ * 
+ * @param data Bytes to check
+ * @param length Number of bytes
+ * @return CRC-8 of the bytes
+ */
+uint8_t crc8(const uint8_t* data, uint8_t length) {
+  uint8_t crc = 0;
+  for (uint8_t i = 0; i < length; i++) {
+    crc ^= data[i];
+    for (uint8_t bit = 0; bit < 8; bit++) {
+      crc = (crc & 0x80) ? (uint8_t) ((crc << 1) ^ 0x07) : (uint8_t) (crc << 1);
+    }
   }
-  return 0;
+  return crc;
 }
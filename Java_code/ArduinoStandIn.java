@@ -0,0 +1,277 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Local stand-in for the Arduino controller.
+ * Listens on a loopback port for one {@link SocketTransport}, sends it
+ * controller input (1-4 tilt, 5 button, 6 motion) and decodes the command
+ * frames the game sends back, so the ZigBee path can be exercised without
+ * hardware. {@link #apply} acts on a frame the way the sketch does, keeping
+ * the same receive window and actuator state. Running main measures the round trip from a tilt to the game's
+ * reply.
+ */
+public class ArduinoStandIn {
+    private ServerSocketChannel server;
+    private SocketChannel peer;
+    private ByteBuffer outBuffer;
+    private ByteBuffer inBuffer;
+    private FrameDecoder decoder;
+    private FrameDecoder.Handler handler;
+    private int seq;
+    private int lastRxSeq;
+    private int rxBitmap;
+    private int[] actuators;
+
+    /**
+     * Constructor for creating a new stand-in on a free loopback port.
+     *
+     * @throws IOException If the port could not be bound
+     */
+    public ArduinoStandIn() throws IOException {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.outBuffer = ByteBuffer.allocateDirect(64);
+        this.inBuffer = ByteBuffer.allocateDirect(256);
+        this.decoder = new FrameDecoder((flags, frameSeq, payload, receivedNanos) -> handler.onFrame(flags, frameSeq, payload, receivedNanos));
+        this.lastRxSeq = -1;
+        this.rxBitmap = 0;
+        this.actuators = new int[16];
+        Arrays.fill(this.actuators, -1);
+    }
+
+    /**
+     * Get the port the stand-in listens on.
+     *
+     * @return Port number
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Wait for the game to connect, dropping any earlier connection.
+     * The receive window is kept, as the Arduino keeps it when the game restarts.
+     *
+     * @throws IOException If accepting failed
+     */
+    public void accept() throws IOException {
+        if (peer != null) {
+            peer.close();
+        }
+        peer = server.accept();
+        peer.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Send one controller input to the game, in a frame of its own.
+     *
+     * @param input Input code (1-4 tilt, 5 button, 6 motion)
+     * @throws IOException If the write failed
+     */
+    public void send(int input) throws IOException {
+        outBuffer.clear();
+        int start = ZigBeeProtocol.beginFrame(outBuffer, 0, seq++ & 0xFF);
+        outBuffer.put((byte) input);
+        ZigBeeProtocol.endFrame(outBuffer, start);
+        sendRaw(outBuffer);
+    }
+
+    /**
+     * Send a selective acknowledgement.
+     *
+     * @param newest Newest sequence number received
+     * @param bitmap Bit i set if sequence number (newest - 1 - i) was received too
+     * @throws IOException If the write failed
+     */
+    public void sendAck(int newest, int bitmap) throws IOException {
+        outBuffer.clear();
+        int start = ZigBeeProtocol.beginFrame(outBuffer, ZigBeeProtocol.FLAG_ACK, seq++ & 0xFF);
+        outBuffer.put((byte) newest);
+        outBuffer.put((byte) bitmap);
+        ZigBeeProtocol.endFrame(outBuffer, start);
+        sendRaw(outBuffer);
+    }
+
+    /**
+     * Send bytes exactly as given, such as a corrupted frame.
+     *
+     * @param bytes Bytes to send, from the buffer's start to its position
+     * @throws IOException If the write failed
+     */
+    public void sendRaw(ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            peer.write(bytes);
+        }
+    }
+
+    /**
+     * Wait for at least one frame from the game.
+     *
+     * @param frameHandler Handler for every frame decoded from the bytes read
+     * @return Number of frames decoded
+     * @throws IOException If the read failed or the game disconnected
+     */
+    public long receive(FrameDecoder.Handler frameHandler) throws IOException {
+        handler = frameHandler;
+        long before = decoder.getFrames();
+        while (decoder.getFrames() == before) {
+            inBuffer.clear();
+            if (peer.read(inBuffer) < 0) {
+                throw new IOException("Game disconnected");
+            }
+            inBuffer.flip();
+            decoder.decode(inBuffer, System.nanoTime());
+        }
+        return decoder.getFrames() - before;
+    }
+
+    /**
+     * Act on a frame from the game as the sketch does.
+     * Acks the frame if asked to and records its commands unless it is stale.
+     *
+     * @param flags Frame flags
+     * @param frameSeq Sequence number of the frame
+     * @param payload Commands in the frame
+     * @return true if the commands were applied
+     */
+    public boolean apply(int flags, int frameSeq, ByteBuffer payload) {
+        boolean stale = false;
+        if ((flags & ZigBeeProtocol.FLAG_ACK_REQUESTED) != 0) {
+            stale = !markReceived(frameSeq, (flags & ZigBeeProtocol.FLAG_SYNC) != 0);
+            try {
+                sendAck(lastRxSeq, rxBitmap);
+            } catch (IOException e) {
+                System.err.println("Ack failed: " + e.getMessage());
+            }
+        } else if ((flags & ZigBeeProtocol.FLAG_SYNC) != 0) {
+            lastRxSeq = -1;
+            rxBitmap = 0;
+        }
+
+        if (!stale) {
+            while (payload.hasRemaining()) {
+                int command = payload.get() & 0xFF;
+                actuators[command >> 4] = command & 0x0F;
+            }
+        }
+        return !stale;
+    }
+
+    /**
+     * Record a received sequence number, as markReceived in the sketch.
+     *
+     * @param frameSeq Sequence number of the frame
+     * @param sync true if the frame starts a new connection
+     * @return true if the frame is newer than any received so far
+     */
+    private boolean markReceived(int frameSeq, boolean sync) {
+        if (lastRxSeq < 0 || sync) {
+            lastRxSeq = frameSeq;
+            rxBitmap = 0;
+            return true;
+        }
+
+        int ahead = (frameSeq - lastRxSeq) & 0xFF;
+        if (ahead == 0) {
+            return false;
+        }
+
+        if (ahead < 128) {
+            // Newer frame: slide the window forward
+            rxBitmap = ahead > 8 ? 0 : ((rxBitmap << ahead) | (1 << (ahead - 1))) & 0xFF;
+            lastRxSeq = frameSeq;
+            return true;
+        }
+
+        // Older frame: acknowledge it, but never act on it
+        int behind = (lastRxSeq - frameSeq) & 0xFF;
+        if (behind <= 8) {
+            rxBitmap |= 1 << (behind - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Get the last value applied to an actuator.
+     *
+     * @param type Actuator type, the high nibble of its command
+     * @return Last value, or -1 if none was applied
+     */
+    public int getActuator(int type) {
+        return actuators[type];
+    }
+
+    /**
+     * Get the decoder for frames from the game, for its error counters.
+     *
+     * @return Frame decoder
+     */
+    public FrameDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Close the connection and stop listening.
+     */
+    public void close() {
+        try {
+            if (peer != null) {
+                peer.close();
+            }
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Error closing stand-in: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Measure the tilt-to-reply round trip over loopback.
+     *
+     * @param args Optional number of round trips
+     * @throws Exception If the link failed
+     */
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        ArduinoStandIn arduino = new ArduinoStandIn();
+        SocketTransport transport = new SocketTransport("localhost", arduino.getPort());
+
+        // Answer every tilt with an LED command frame, as the game does on a move
+        ByteBuffer reply = ByteBuffer.allocateDirect(ZigBeeProtocol.MAX_FRAME);
+        FrameDecoder gameSide = new FrameDecoder((flags, seq, payload, receivedNanos) -> {
+            reply.clear();
+            int start = ZigBeeProtocol.beginFrame(reply, 0, seq);
+            reply.put((byte) ((1 << 4) | 1));
+            ZigBeeProtocol.endFrame(reply, start);
+            reply.flip();
+            try {
+                transport.write(reply);
+            } catch (IOException e) {
+                System.err.println("Reply failed: " + e.getMessage());
+            }
+        });
+        transport.setReceiver(gameSide::decode);
+        transport.open();
+        arduino.accept();
+
+        LatencyHistogram roundTrips = new LatencyHistogram();
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            arduino.send(1 + i % 4);
+            arduino.receive((flags, seq, payload, receivedNanos) -> { });
+            roundTrips.record(System.nanoTime() - start);
+        }
+
+        System.out.println("Tilt to reply: " + roundTrips.summary());
+        transport.close();
+        arduino.close();
+    }
+}
@@ -2,30 +2,25 @@
 
 /**
  * Cell in the maze.
+ * A lightweight view onto one square of a {@link WallStore}; the walls
+ * themselves live in the store, so views are only created on request.
  */
 public class Cell {
+    private WallStore grid;
     private int x;
     private int y;
-    private boolean visited;
-    private boolean topWall;
-    private boolean rightWall;
-    private boolean bottomWall;
-    private boolean leftWall;
 
     /**
-     * Constructor for creating a new cell.
+     * Constructor for creating a new cell view.
      *
+     * @param grid Wall store the cell belongs to
      * @param x X position
      * @param y Y position
      */
-    public Cell(int x, int y) {
+    public Cell(WallStore grid, int x, int y) {
+        this.grid = grid;
         this.x = x;
         this.y = y;
-        this.visited = false;
-        this.topWall = true;
-        this.rightWall = true;
-        this.bottomWall = true;
-        this.leftWall = true;
     }
 
     /**
@@ -52,7 +47,7 @@ public class Cell {
      * @return true if the cell has been visited, false otherwise
      */
     public boolean isVisited() {
-        return visited;
+        return (grid.getBits(x, y) & WallGrid.VISITED) != 0;
     }
 
     /**
@@ -61,7 +56,7 @@ public class Cell {
      * @param visited Whether the cell has been visited
      */
     public void setVisited(boolean visited) {
-        this.visited = visited;
+        grid.setFlag(x, y, WallGrid.VISITED, visited);
     }
 
     /**
@@ -70,7 +65,7 @@ public class Cell {
      * @return true if the top wall is present, false otherwise
      */
     public boolean hasTopWall() {
-        return topWall;
+        return grid.hasWall(x, y, WallGrid.TOP);
     }
 
     /**
@@ -79,7 +74,7 @@ public class Cell {
      * @param topWall Whether the top wall is present
      */
     public void setTopWall(boolean topWall) {
-        this.topWall = topWall;
+        grid.setFlag(x, y, WallGrid.TOP, topWall);
     }
 
     /**
@@ -88,7 +83,7 @@ public class Cell {
      * @return true if the right wall is present, false otherwise
      */
     public boolean hasRightWall() {
-        return rightWall;
+        return grid.hasWall(x, y, WallGrid.RIGHT);
     }
 
     /**
@@ -97,7 +92,7 @@ public class Cell {
      * @param rightWall Whether the right wall is present
      */
     public void setRightWall(boolean rightWall) {
-        this.rightWall = rightWall;
+        grid.setFlag(x, y, WallGrid.RIGHT, rightWall);
     }
 
     /**
@@ -106,7 +101,7 @@ public class Cell {
      * @return true if the bottom wall is present, false otherwise
      */
     public boolean hasBottomWall() {
-        return bottomWall;
+        return grid.hasWall(x, y, WallGrid.BOTTOM);
     }
 
     /**
@@ -115,7 +110,7 @@ public class Cell {
      * @param bottomWall Whether the bottom wall is present
      */
     public void setBottomWall(boolean bottomWall) {
-        this.bottomWall = bottomWall;
+        grid.setFlag(x, y, WallGrid.BOTTOM, bottomWall);
     }
 
     /**
@@ -124,7 +119,7 @@ public class Cell {
      * @return true if the left wall is present, false otherwise
      */
     public boolean hasLeftWall() {
-        return leftWall;
+        return grid.hasWall(x, y, WallGrid.LEFT);
     }
 
     /**
@@ -133,6 +128,6 @@ public class Cell {
      * @param leftWall Whether the left wall is present
      */
     public void setLeftWall(boolean leftWall) {
-        this.leftWall = leftWall;
+        grid.setFlag(x, y, WallGrid.LEFT, leftWall);
     }
 }
@@ -0,0 +1,137 @@
+//package com.motionmaze.game;
+
+/**
+ * Cells whose contents changed during the current tick.
+ * The engine clears the tracker at the start of every tick and fills it
+ * while the tick runs, so observers can redraw just those cells instead of
+ * the whole maze. When too many cells change, or the change cannot be
+ * pinned to cells (a new maze, a new game state, a scrolled window), the
+ * whole view is marked instead.
+ *
+ * A tracker is not thread-safe; it is only used on the game loop thread.
+ */
+public class ChangeTracker {
+    private int[] xs;
+    private int[] ys;
+    private int count;
+    private boolean all;
+    private boolean info;
+
+    /**
+     * Constructor for creating a new tracker.
+     *
+     * @param capacity Number of cells kept before falling back to a whole-view change
+     */
+    public ChangeTracker(int capacity) {
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+        this.count = 0;
+    }
+
+    /**
+     * Mark a cell as changed.
+     *
+     * @param x X position
+     * @param y Y position
+     */
+    public void markCell(int x, int y) {
+        if (all) {
+            return;
+        }
+
+        // Skip the common repeat of the last cell
+        if (count > 0 && xs[count - 1] == x && ys[count - 1] == y) {
+            return;
+        }
+
+        if (count == xs.length) {
+            markAll();
+            return;
+        }
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+    }
+
+    /**
+     * Mark everything as changed.
+     */
+    public void markAll() {
+        all = true;
+        info = true;
+        count = 0;
+    }
+
+    /**
+     * Mark the level, score or state text as changed.
+     */
+    public void markInfo() {
+        info = true;
+    }
+
+    /**
+     * Forget all changes.
+     */
+    public void clear() {
+        count = 0;
+        all = false;
+        info = false;
+    }
+
+    /**
+     * Check if anything changed.
+     *
+     * @return true if anything changed, false otherwise
+     */
+    public boolean hasChanges() {
+        return all || info || count > 0;
+    }
+
+    /**
+     * Check if everything changed.
+     *
+     * @return true if the whole view should be redrawn, false otherwise
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * Check if the level, score or state text changed.
+     *
+     * @return true if the text changed, false otherwise
+     */
+    public boolean isInfoChanged() {
+        return info;
+    }
+
+    /**
+     * Get the number of changed cells.
+     * Meaningless when {@link #isAll()} is true.
+     *
+     * @return Number of changed cells
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the X position of a changed cell.
+     *
+     * @param i Index of the change, from 0 to {@link #getCount()} - 1
+     * @return X position
+     */
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Get the Y position of a changed cell.
+     *
+     * @param i Index of the change, from 0 to {@link #getCount()} - 1
+     * @return Y position
+     */
+    public int getY(int i) {
+        return ys[i];
+    }
+}
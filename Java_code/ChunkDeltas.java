@@ -0,0 +1,151 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Changes made to chunks of an open-world maze since they were generated.
+ * Each change is packed into a single int, so a chunk that is dropped from
+ * memory can be rebuilt exactly from its seed plus a handful of entries.
+ *
+ * Entry layout: [kind:2][added:1][value:5][cell:16], where cell is the
+ * index of the cell inside its chunk.
+ */
+public class ChunkDeltas {
+    /** Wall bits of a cell were changed; value holds the new walls. */
+    public static final int WALLS = 0;
+    /** A power-up was added or removed; value holds the type ordinal. */
+    public static final int POWER_UP = 1;
+    /** An obstacle was added or removed; value holds the type ordinal. */
+    public static final int OBSTACLE = 2;
+
+    private static final int[] EMPTY = new int[1];
+
+    // The first slot of every array holds the number of entries that follow
+    private Map<Long, int[]> deltas;
+
+    /**
+     * Constructor for creating an empty delta store.
+     */
+    public ChunkDeltas() {
+        this.deltas = new HashMap<>();
+    }
+
+    /**
+     * Record a change to a chunk.
+     * Setting the walls of a cell replaces an earlier wall entry for the same
+     * cell, and removing an entity that was added earlier drops both entries.
+     *
+     * @param chunk Chunk key
+     * @param kind Kind of change (WALLS, POWER_UP or OBSTACLE)
+     * @param added Whether an entity was added (ignored for walls)
+     * @param value Wall bits or entity type ordinal
+     * @param cell Index of the cell inside the chunk
+     */
+    public void record(long chunk, int kind, boolean added, int value, int cell) {
+        int[] entries = deltas.getOrDefault(chunk, EMPTY);
+        int size = entries[0];
+        int entry = pack(kind, added, value, cell);
+
+        // Collapse changes that cancel or replace each other
+        for (int i = 1; i <= size; i++) {
+            int existing = entries[i];
+            if (kind(existing) != kind || cell(existing) != cell) {
+                continue;
+            }
+
+            if (kind == WALLS) {
+                entries[i] = entry;
+                return;
+            }
+
+            if (!added && isAdded(existing) && value(existing) == value) {
+                entries[i] = entries[size];
+                entries[0] = size - 1;
+                return;
+            }
+        }
+
+        if (size + 1 == entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(4, entries.length * 2));
+            deltas.put(chunk, entries);
+        }
+        entries[size + 1] = entry;
+        entries[0] = size + 1;
+    }
+
+    /**
+     * Get the changes recorded for a chunk.
+     * Entries start at index 1 and run up to {@link #size(long)} inclusive.
+     *
+     * @param chunk Chunk key
+     * @return Packed entries
+     */
+    public int[] get(long chunk) {
+        return deltas.getOrDefault(chunk, EMPTY);
+    }
+
+    /**
+     * Get the number of changes recorded for a chunk.
+     *
+     * @param chunk Chunk key
+     * @return Number of entries
+     */
+    public int size(long chunk) {
+        return deltas.getOrDefault(chunk, EMPTY)[0];
+    }
+
+    /**
+     * Pack a change into an entry.
+     *
+     * @param kind Kind of change
+     * @param added Whether an entity was added
+     * @param value Wall bits or entity type ordinal
+     * @param cell Index of the cell inside the chunk
+     * @return Packed entry
+     */
+    public static int pack(int kind, boolean added, int value, int cell) {
+        return (kind << 22) | ((added ? 1 : 0) << 21) | ((value & 0x1F) << 16) | (cell & 0xFFFF);
+    }
+
+    /**
+     * Get the kind of an entry.
+     *
+     * @param entry Packed entry
+     * @return Kind of change
+     */
+    public static int kind(int entry) {
+        return (entry >>> 22) & 0x3;
+    }
+
+    /**
+     * Check if an entry adds an entity.
+     *
+     * @param entry Packed entry
+     * @return true if the entity was added, false if it was removed
+     */
+    public static boolean isAdded(int entry) {
+        return ((entry >>> 21) & 1) != 0;
+    }
+
+    /**
+     * Get the value of an entry.
+     *
+     * @param entry Packed entry
+     * @return Wall bits or entity type ordinal
+     */
+    public static int value(int entry) {
+        return (entry >>> 16) & 0x1F;
+    }
+
+    /**
+     * Get the cell of an entry.
+     *
+     * @param entry Packed entry
+     * @return Index of the cell inside the chunk
+     */
+    public static int cell(int entry) {
+        return entry & 0xFFFF;
+    }
+}
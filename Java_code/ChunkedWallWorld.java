@@ -0,0 +1,361 @@
+//package com.motionmaze.game;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wall store for open-world mazes made of fixed-size chunks.
+ * Each chunk is carved on demand from the world seed and its coordinates, and
+ * the passages across chunk borders are derived from the same seed, so
+ * neighboring chunks always line up. Chunks are kept in an LRU cache bounded
+ * by a memory budget; chunks around the player are never evicted, and wall
+ * changes are kept as {@link ChunkDeltas} so a chunk is rebuilt exactly.
+ *
+ * Every lookup through {@link #getBits} may load, evict and reorder chunks,
+ * so it must only be used on the game loop thread. Other threads read with
+ * {@link #peekBits}, which goes through a concurrent map of the fully
+ * built resident chunks and never changes anything.
+ */
+public class ChunkedWallWorld implements WallStore {
+    // The chunk under the player and its eight neighbors stay resident, with room to load others beside them
+    private static final int MIN_CHUNKS = 16;
+
+    private int chunkSize;
+    private long seed;
+    private int chunksX;
+    private int chunksY;
+    private int maxChunks;
+    private LinkedHashMap<Long, WallGrid> chunks;
+    private ConcurrentHashMap<Long, WallGrid> residentChunks;
+    private ArrayDeque<WallGrid> spareChunks;
+    private MazeGenerator generator;
+    private ChunkDeltas deltas;
+    private int focusChunkX;
+    private int focusChunkY;
+    private long lastKey;
+    private WallGrid lastChunk;
+    private WallStoreListener listener;
+
+    /**
+     * Constructor for creating a new chunked world.
+     *
+     * @param seed World seed
+     * @param chunkSize Width and height of a chunk in cells (at most 256)
+     * @param memoryBudget Maximum number of bytes of wall data to keep in memory
+     */
+    public ChunkedWallWorld(long seed, int chunkSize, long memoryBudget) {
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.chunksX = Integer.MAX_VALUE / chunkSize;
+        this.chunksY = Integer.MAX_VALUE / chunkSize;
+        this.maxChunks = (int) Math.max(MIN_CHUNKS, memoryBudget / ((long) chunkSize * chunkSize));
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true);
+        this.residentChunks = new ConcurrentHashMap<>();
+        this.spareChunks = new ArrayDeque<>();
+        this.generator = new RecursiveBacktrackerGenerator();
+        this.deltas = new ChunkDeltas();
+        this.focusChunkX = 0;
+        this.focusChunkY = 0;
+        this.lastKey = -1;
+    }
+
+    /**
+     * Get the key of a chunk.
+     *
+     * @param chunkX Chunk column
+     * @param chunkY Chunk row
+     * @return Chunk key
+     */
+    public static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the key of the chunk containing a cell.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Chunk key
+     */
+    public long keyAt(int x, int y) {
+        return key(x / chunkSize, y / chunkSize);
+    }
+
+    /**
+     * Get the index of a cell inside its chunk.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Cell index inside the chunk
+     */
+    public int localIndex(int x, int y) {
+        return (y % chunkSize) * chunkSize + (x % chunkSize);
+    }
+
+    /**
+     * Get the chunk containing a cell, generating it if needed.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Chunk grid
+     */
+    private WallGrid chunkAt(int x, int y) {
+        int chunkX = x / chunkSize;
+        int chunkY = y / chunkSize;
+        long key = key(chunkX, chunkY);
+
+        // Most lookups hit the same chunk as the previous one
+        if (key == lastKey) {
+            return lastChunk;
+        }
+
+        WallGrid chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = loadChunk(chunkX, chunkY, key);
+        }
+
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Generate a chunk, apply its recorded changes and add it to the cache.
+     *
+     * @param chunkX Chunk column
+     * @param chunkY Chunk row
+     * @param key Chunk key
+     * @return Chunk grid
+     */
+    private WallGrid loadChunk(int chunkX, int chunkY, long key) {
+        WallGrid chunk = spareChunks.poll();
+        if (chunk == null) {
+            chunk = new WallGrid(chunkSize, chunkSize);
+        } else {
+            chunk.reset();
+        }
+
+        // Carve the inside of the chunk from the seed and its coordinates
+        generator.generate(chunk, new SplittableRandom(Seeds.derive(seed, key)));
+
+        // Open one passage through each border shared with another chunk
+        int last = chunkSize - 1;
+        if (chunkX > 0) {
+            chunk.setFlag(0, borderOffset(chunkX - 1, chunkY, false), WallGrid.LEFT, false);
+        }
+        if (chunkX < chunksX - 1) {
+            chunk.setFlag(last, borderOffset(chunkX, chunkY, false), WallGrid.RIGHT, false);
+        }
+        if (chunkY > 0) {
+            chunk.setFlag(borderOffset(chunkX, chunkY - 1, true), 0, WallGrid.TOP, false);
+        }
+        if (chunkY < chunksY - 1) {
+            chunk.setFlag(borderOffset(chunkX, chunkY, true), last, WallGrid.BOTTOM, false);
+        }
+
+        // Replay wall changes made before the chunk was last evicted
+        int[] entries = deltas.get(key);
+        int size = deltas.size(key);
+        for (int i = 1; i <= size; i++) {
+            if (ChunkDeltas.kind(entries[i]) == ChunkDeltas.WALLS) {
+                int cell = ChunkDeltas.cell(entries[i]);
+                int x = cell % chunkSize;
+                int y = cell / chunkSize;
+                chunk.setFlag(x, y, WallGrid.ALL_WALLS, false);
+                chunk.setFlag(x, y, ChunkDeltas.value(entries[i]) & WallGrid.ALL_WALLS, true);
+            }
+        }
+
+        chunks.put(key, chunk);
+        residentChunks.put(key, chunk);
+        evictIfNeeded(key);
+
+        if (listener != null) {
+            listener.onRegionLoaded(chunkX * chunkSize, chunkY * chunkSize, chunkSize, chunkSize);
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Evict least recently used chunks that are away from the player until the budget is met.
+     *
+     * @param loadedKey Key of the chunk being loaded, which is never evicted
+     */
+    private void evictIfNeeded(long loadedKey) {
+        Iterator<Map.Entry<Long, WallGrid>> iterator = chunks.entrySet().iterator();
+        while (chunks.size() > maxChunks && iterator.hasNext()) {
+            Map.Entry<Long, WallGrid> entry = iterator.next();
+            long key = entry.getKey();
+            int chunkX = (int) (key >>> 32);
+            int chunkY = (int) key;
+
+            // Keep the chunks around the player, and the one being loaded
+            if (key == loadedKey || Math.abs(chunkX - focusChunkX) <= 1 && Math.abs(chunkY - focusChunkY) <= 1) {
+                continue;
+            }
+
+            if (listener != null) {
+                listener.onRegionEvicted(chunkX * chunkSize, chunkY * chunkSize, chunkSize, chunkSize);
+            }
+
+            iterator.remove();
+            residentChunks.remove(key);
+            spareChunks.push(entry.getValue());
+            if (key == lastKey) {
+                lastKey = -1;
+                lastChunk = null;
+            }
+        }
+    }
+
+    /**
+     * Get the position of the passage through the border after a chunk.
+     *
+     * @param chunkX Chunk column on the left of or above the border
+     * @param chunkY Chunk row on the left of or above the border
+     * @param horizontal Whether the border is below the chunk rather than to its right
+     * @return Offset of the passage along the border
+     */
+    private int borderOffset(int chunkX, int chunkY, boolean horizontal) {
+        long hash = Seeds.mix(seed + Seeds.mix(key(chunkX, chunkY) * 2 + (horizontal ? 1 : 0)));
+        return (int) Long.remainderUnsigned(hash, chunkSize);
+    }
+
+    @Override
+    public int getBits(int x, int y) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+            return WallGrid.ALL_WALLS;
+        }
+
+        return chunkAt(x, y).getBits(x % chunkSize, y % chunkSize);
+    }
+
+    @Override
+    public int peekBits(int x, int y) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+            return WallGrid.ALL_WALLS;
+        }
+
+        long key = key(x / chunkSize, y / chunkSize);
+        WallGrid chunk = residentChunks.get(key);
+        if (chunk == null) {
+            return WallGrid.ALL_WALLS;
+        }
+
+        // The chunk may be evicted and its grid recarved for another chunk while it is read
+        int bits = chunk.getBits(x % chunkSize, y % chunkSize);
+        return residentChunks.get(key) == chunk ? bits : WallGrid.ALL_WALLS;
+    }
+
+    @Override
+    public boolean hasWall(int x, int y, int wall) {
+        return (getBits(x, y) & wall) != 0;
+    }
+
+    @Override
+    public void setFlag(int x, int y, int flag, boolean present) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+            return;
+        }
+
+        WallGrid chunk = chunkAt(x, y);
+        int localX = x % chunkSize;
+        int localY = y % chunkSize;
+        int before = chunk.getBits(localX, localY) & WallGrid.ALL_WALLS;
+        chunk.setFlag(localX, localY, flag, present);
+
+        // Remember wall changes so they survive eviction
+        int after = chunk.getBits(localX, localY) & WallGrid.ALL_WALLS;
+        if (after != before) {
+            deltas.record(key(x / chunkSize, y / chunkSize), ChunkDeltas.WALLS, false, after, localIndex(x, y));
+        }
+    }
+
+    @Override
+    public void setWall(int x, int y, int wall, boolean present) {
+        setFlag(x, y, wall, present);
+        setFlag(x + WallGrid.dx(wall), y + WallGrid.dy(wall), WallGrid.opposite(wall), present);
+    }
+
+    @Override
+    public void focus(int x, int y) {
+        focusChunkX = x / chunkSize;
+        focusChunkY = y / chunkSize;
+    }
+
+    @Override
+    public void setListener(WallStoreListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public int getWidth() {
+        return chunksX * chunkSize;
+    }
+
+    @Override
+    public int getHeight() {
+        return chunksY * chunkSize;
+    }
+
+    @Override
+    public int getFirstRow() {
+        return Math.max(0, focusChunkY - 1) * chunkSize;
+    }
+
+    @Override
+    public int getLastRow() {
+        return Math.min(chunksY, focusChunkY + 2) * chunkSize - 1;
+    }
+
+    @Override
+    public int getFirstColumn() {
+        return Math.max(0, focusChunkX - 1) * chunkSize;
+    }
+
+    @Override
+    public int getLastColumn() {
+        return Math.min(chunksX, focusChunkX + 2) * chunkSize - 1;
+    }
+
+    /**
+     * Get the recorded changes of every chunk.
+     *
+     * @return Chunk deltas
+     */
+    public ChunkDeltas getDeltas() {
+        return deltas;
+    }
+
+    /**
+     * Get the width and height of a chunk.
+     *
+     * @return Chunk size in cells
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the number of chunks currently in memory.
+     *
+     * @return Number of resident chunks
+     */
+    public int getResidentChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * Get the world seed.
+     *
+     * @return Seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,103 @@
+//package com.motionmaze.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of game commands with many producers and one consumer.
+ * Every slot carries a sequence number: a producer claims a position with a
+ * compare-and-set on the tail and publishes its command by advancing the
+ * slot's sequence, and the consumer only reads slots whose sequence says they
+ * have been published. Neither side locks or allocates.
+ */
+public class CommandQueue {
+    private GameCommand[] slots;
+    private AtomicLongArray sequences;
+    private int mask;
+    private AtomicLong tail;
+    private AtomicLong dropped;
+    private long head;
+
+    /**
+     * Constructor for creating a new queue.
+     *
+     * @param capacity Number of commands the queue can hold (rounded up to a power of two)
+     */
+    public CommandQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new GameCommand[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.head = 0;
+
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Queue a command. Safe to call from any thread.
+     *
+     * @param command Command to queue
+     * @return true if the command was queued, false if the queue was full
+     */
+    public boolean offer(GameCommand command) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+
+            if (sequence == position) {
+                // Slot is free; claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[slot] = command;
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer has not freed this slot yet
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Another producer claimed the slot; try the next position
+        }
+    }
+
+    /**
+     * Take the oldest command. Must only be called from the consumer thread.
+     *
+     * @return Oldest command, or null if the queue is empty
+     */
+    public GameCommand poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+
+        GameCommand command = slots[slot];
+        slots[slot] = null;
+        sequences.lazySet(slot, head + mask + 1);
+        head++;
+        return command;
+    }
+
+    /**
+     * Get the number of commands rejected because the queue was full.
+     *
+     * @return Number of dropped commands
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Get the capacity of the queue.
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
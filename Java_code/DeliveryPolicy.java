@@ -0,0 +1,13 @@
+//package com.motionmaze.game;
+
+/**
+ * How the {@link GameEventBus} delivers events to a subscriber.
+ */
+public enum DeliveryPolicy {
+    /** On the game loop thread, as each event is published. Only for fast listeners. */
+    SYNC,
+    /** Every event, in order, on the subscriber's own thread; events that do not fit its ring are dropped. */
+    ASYNC,
+    /** Only the latest event of each type, on the subscriber's own thread; older ones are skipped. */
+    COALESCE
+}
@@ -0,0 +1,153 @@
+//package com.motionmaze.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Row-at-a-time maze carver using Eller's algorithm.
+ * Only the set labels of the current row are kept, so any number of rows can
+ * be produced with O(width) memory. Each row is written as wall bytes in the
+ * same layout as {@link WallGrid}.
+ */
+public class EllerRowGenerator {
+    private int width;
+    private int[] sets;
+    private int[] parent;
+    private int[] remaining;
+    private int[] used;
+    private int[] freeLabels;
+    private boolean[] hasDown;
+    private boolean[] down;
+    private int stamp;
+
+    /**
+     * Constructor for creating a new row generator.
+     *
+     * @param width Width of every row
+     */
+    public EllerRowGenerator(int width) {
+        this.width = width;
+        this.sets = new int[width];
+        this.parent = new int[width];
+        this.remaining = new int[width];
+        this.used = new int[width];
+        this.freeLabels = new int[width];
+        this.hasDown = new boolean[width];
+        this.down = new boolean[width];
+        this.stamp = 0;
+    }
+
+    /**
+     * Forget the previous row so the next row starts a new maze.
+     */
+    public void reset() {
+        for (int x = 0; x < width; x++) {
+            down[x] = false;
+        }
+    }
+
+    /**
+     * Carve the next row.
+     *
+     * @param row Buffer that receives the wall bytes of the row
+     * @param offset Offset of the first cell in the buffer
+     * @param last Whether this is the final row of the maze
+     * @param random Random source
+     */
+    public void nextRow(byte[] row, int offset, boolean last, SplittableRandom random) {
+        assignLabels();
+
+        // Start with closed cells, opening the top of cells reached from the row above
+        for (int x = 0; x < width; x++) {
+            row[offset + x] = (byte) (down[x] ? WallGrid.ALL_WALLS & ~WallGrid.TOP : WallGrid.ALL_WALLS);
+        }
+
+        // Randomly join adjacent cells from different sets (all of them on the last row)
+        for (int x = 0; x < width - 1; x++) {
+            int a = find(sets[x]);
+            int b = find(sets[x + 1]);
+            if (a != b && (last || random.nextBoolean())) {
+                row[offset + x] &= ~WallGrid.RIGHT;
+                row[offset + x + 1] &= ~WallGrid.LEFT;
+                parent[b] = a;
+            }
+        }
+
+        for (int x = 0; x < width; x++) {
+            sets[x] = find(sets[x]);
+        }
+
+        if (last) {
+            reset();
+            return;
+        }
+
+        // Count the cells of each set so every set gets at least one passage down
+        for (int x = 0; x < width; x++) {
+            remaining[sets[x]] = 0;
+            hasDown[sets[x]] = false;
+        }
+        for (int x = 0; x < width; x++) {
+            remaining[sets[x]]++;
+        }
+
+        for (int x = 0; x < width; x++) {
+            int set = sets[x];
+            remaining[set]--;
+            boolean carve = random.nextBoolean() || (remaining[set] == 0 && !hasDown[set]);
+            if (carve) {
+                row[offset + x] &= ~WallGrid.BOTTOM;
+                hasDown[set] = true;
+            }
+            down[x] = carve;
+        }
+    }
+
+    /**
+     * Give a fresh set label to every cell that is not connected to the row above.
+     */
+    private void assignLabels() {
+        stamp++;
+        for (int x = 0; x < width; x++) {
+            if (down[x]) {
+                used[sets[x]] = stamp;
+            }
+        }
+
+        int free = 0;
+        for (int label = 0; label < width; label++) {
+            parent[label] = label;
+            if (used[label] != stamp) {
+                freeLabels[free++] = label;
+            }
+        }
+
+        for (int x = 0; x < width; x++) {
+            if (!down[x]) {
+                sets[x] = freeLabels[--free];
+            }
+        }
+    }
+
+    /**
+     * Find the representative label of a set.
+     *
+     * @param label Set label
+     * @return Representative label
+     */
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /**
+     * Get the width of every row.
+     *
+     * @return Row width
+     */
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,30 @@
+//package com.motionmaze.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Eller's maze generator.
+ * Carves the grid one row at a time with an {@link EllerRowGenerator}.
+ */
+public class EllersGenerator implements MazeGenerator {
+    private EllerRowGenerator rows;
+    private byte[] row = new byte[0];
+
+    @Override
+    public void generate(WallGrid grid, SplittableRandom random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+
+        if (rows == null || rows.getWidth() != width) {
+            rows = new EllerRowGenerator(width);
+            row = new byte[width];
+        } else {
+            rows.reset();
+        }
+
+        for (int y = 0; y < height; y++) {
+            rows.nextRow(row, 0, y == height - 1, random);
+            grid.setRow(y, row, 0);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+//package com.motionmaze.game;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index of maze entities keyed by packed cell coordinate.
+ * Entities are stored densely (so iteration is cheap and a read-only list
+ * view is available) and an open-addressing hash table maps each occupied
+ * cell to the chain of entities on it. Lookup, insert and remove are O(1).
+ *
+ * @param <T> Type of entity
+ */
+public class EntityIndex<T extends MazeEntity> {
+    private static final int NONE = -1;
+
+    // Dense storage; next links entities that share a cell
+    private Object[] items;
+    private int[] next;
+    private int size;
+
+    // Linear-probing hash table from packed cell to the first entity on it
+    private long[] tableKeys;
+    private int[] tableHeads;
+    private int tableCount;
+    private int mask;
+
+    private List<T> view;
+
+    /**
+     * Constructor for creating a new, empty index.
+     */
+    public EntityIndex() {
+        this.items = new Object[16];
+        this.next = new int[16];
+        this.size = 0;
+        this.tableKeys = new long[32];
+        this.tableHeads = new int[32];
+        this.tableCount = 0;
+        this.mask = 31;
+        Arrays.fill(tableHeads, NONE);
+        this.view = new ReadOnlyView();
+    }
+
+    /**
+     * Pack a cell position into a key.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Packed key
+     */
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Add an entity.
+     *
+     * @param entity Entity to add
+     */
+    public void add(T entity) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+        if ((tableCount + 1) * 2 > tableKeys.length) {
+            rehash(tableKeys.length * 2);
+        }
+
+        int index = size++;
+        items[index] = entity;
+
+        // Push onto the chain of its cell
+        int slot = findSlot(key(entity.getX(), entity.getY()));
+        if (tableHeads[slot] == NONE) {
+            tableKeys[slot] = key(entity.getX(), entity.getY());
+            tableCount++;
+        }
+        next[index] = tableHeads[slot];
+        tableHeads[slot] = index;
+    }
+
+    /**
+     * Remove an entity.
+     *
+     * @param entity Entity to remove
+     * @return true if the entity was in the index, false otherwise
+     */
+    public boolean remove(T entity) {
+        int slot = findSlot(key(entity.getX(), entity.getY()));
+        int previous = NONE;
+        int index = tableHeads[slot];
+        while (index != NONE && items[index] != entity) {
+            previous = index;
+            index = next[index];
+        }
+        if (index == NONE) {
+            return false;
+        }
+
+        removeAt(slot, previous, index);
+        return true;
+    }
+
+    /**
+     * Get the first entity on a cell.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Entity on the cell, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int x, int y) {
+        int head = tableHeads[findSlot(key(x, y))];
+        return head == NONE ? null : (T) items[head];
+    }
+
+    /**
+     * Find an entity on a cell that matches a condition.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param match Condition to test
+     * @return Matching entity, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T find(int x, int y, Predicate<? super T> match) {
+        for (int index = tableHeads[findSlot(key(x, y))]; index != NONE; index = next[index]) {
+            if (match.test((T) items[index])) {
+                return (T) items[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visit every entity inside a rectangle of cells.
+     * Small rectangles are walked cell by cell, large ones scan the entities.
+     *
+     * @param minX Left column (inclusive)
+     * @param minY Top row (inclusive)
+     * @param maxX Right column (inclusive)
+     * @param maxY Bottom row (inclusive)
+     * @param action Action to run for each entity
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachIn(int minX, int minY, int maxX, int maxY, Consumer<? super T> action) {
+        long area = ((long) maxX - minX + 1) * ((long) maxY - minY + 1);
+        if (area <= 0) {
+            return;
+        }
+
+        if (area <= size) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    for (int index = tableHeads[findSlot(key(x, y))]; index != NONE; index = next[index]) {
+                        action.accept((T) items[index]);
+                    }
+                }
+            }
+            return;
+        }
+
+        for (int index = 0; index < size; index++) {
+            T entity = (T) items[index];
+            if (entity.getX() >= minX && entity.getX() <= maxX && entity.getY() >= minY && entity.getY() <= maxY) {
+                action.accept(entity);
+            }
+        }
+    }
+
+    /**
+     * Remove every entity inside a rectangle of cells.
+     *
+     * @param minX Left column (inclusive)
+     * @param minY Top row (inclusive)
+     * @param maxX Right column (inclusive)
+     * @param maxY Bottom row (inclusive)
+     */
+    @SuppressWarnings("unchecked")
+    public void removeIn(int minX, int minY, int maxX, int maxY) {
+        // Walk backwards so swap-removal never skips an entity
+        for (int index = size - 1; index >= 0; index--) {
+            T entity = (T) items[index];
+            if (entity.getX() >= minX && entity.getX() <= maxX && entity.getY() >= minY && entity.getY() <= maxY) {
+                remove(entity);
+            }
+        }
+    }
+
+    /**
+     * Get the number of entities.
+     *
+     * @return Number of entities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a read-only list view of the entities.
+     * The view follows later changes; its order is not stable across removals.
+     *
+     * @return Read-only view
+     */
+    public List<T> asList() {
+        return view;
+    }
+
+    /**
+     * Unlink an entity from its cell and close the gap in the dense arrays.
+     *
+     * @param slot Table slot of the entity's cell
+     * @param previous Dense index of the entity before it in the chain, or NONE
+     * @param index Dense index of the entity
+     */
+    private void removeAt(int slot, int previous, int index) {
+        if (previous == NONE) {
+            tableHeads[slot] = next[index];
+        } else {
+            next[previous] = next[index];
+        }
+        if (tableHeads[slot] == NONE) {
+            deleteSlot(slot);
+        }
+
+        // Move the last entity into the gap and repoint whoever referenced it
+        int last = --size;
+        if (index != last) {
+            MazeEntity moved = (MazeEntity) items[last];
+            int movedSlot = findSlot(key(moved.getX(), moved.getY()));
+            if (tableHeads[movedSlot] == last) {
+                tableHeads[movedSlot] = index;
+            } else {
+                int link = tableHeads[movedSlot];
+                while (next[link] != last) {
+                    link = next[link];
+                }
+                next[link] = index;
+            }
+            items[index] = items[last];
+            next[index] = next[last];
+        }
+        items[last] = null;
+    }
+
+    /**
+     * Find the table slot holding a key, or the empty slot where it would go.
+     *
+     * @param key Packed key
+     * @return Table slot
+     */
+    private int findSlot(long key) {
+        int slot = (int) Seeds.mix(key) & mask;
+        while (tableHeads[slot] != NONE && tableKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empty a table slot, shifting later entries back so probing still finds them.
+     *
+     * @param slot Slot to empty
+     */
+    private void deleteSlot(int slot) {
+        tableHeads[slot] = NONE;
+        tableCount--;
+
+        int gap = slot;
+        int current = (slot + 1) & mask;
+        while (tableHeads[current] != NONE) {
+            int home = (int) Seeds.mix(tableKeys[current]) & mask;
+
+            // Move the entry into the gap if its home is not between the gap and its slot
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                tableKeys[gap] = tableKeys[current];
+                tableHeads[gap] = tableHeads[current];
+                tableHeads[current] = NONE;
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+    }
+
+    /**
+     * Grow the hash table.
+     *
+     * @param capacity New capacity (a power of two)
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = tableKeys;
+        int[] oldHeads = tableHeads;
+
+        tableKeys = new long[capacity];
+        tableHeads = new int[capacity];
+        Arrays.fill(tableHeads, NONE);
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != NONE) {
+                int slot = findSlot(oldKeys[i]);
+                tableKeys[slot] = oldKeys[i];
+                tableHeads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * Read-only list view over the dense entity array.
+     */
+    private class ReadOnlyView extends AbstractList<T> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T) items[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
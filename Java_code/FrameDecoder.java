@@ -0,0 +1,219 @@
+//package com.motionmaze.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental decoder for {@link ZigBeeProtocol} frames.
+ * Bytes can arrive in any split. A frame that lies whole inside the received
+ * buffer is checked and handed on in place, without copying; only a frame
+ * split across reads is assembled in a small buffer of its own. Bytes outside
+ * a frame, frames with a bad CRC and frames of an unknown version are
+ * dropped and counted.
+ */
+public class FrameDecoder {
+    /**
+     * Callback for decoded frames.
+     */
+    public interface Handler {
+        /**
+         * Called for every valid frame.
+         * The payload is only valid until the call returns.
+         *
+         * @param flags Frame flags
+         * @param seq Sequence number
+         * @param payload Payload bytes, between position and limit
+         * @param receivedNanos System.nanoTime() when the last byte of the frame was read
+         */
+        void onFrame(int flags, int seq, ByteBuffer payload, long receivedNanos);
+    }
+
+    private Handler handler;
+    private ByteBuffer partial;
+    private long frames;
+    private long crcErrors;
+    private long droppedBytes;
+
+    /**
+     * Constructor for creating a new decoder.
+     *
+     * @param handler Handler for decoded frames
+     */
+    public FrameDecoder(Handler handler) {
+        this.handler = handler;
+        this.partial = ByteBuffer.allocateDirect(ZigBeeProtocol.MAX_FRAME);
+    }
+
+    /**
+     * Decode received bytes.
+     * The buffer's remaining bytes are consumed.
+     *
+     * @param data Received bytes
+     * @param receivedNanos System.nanoTime() when the bytes were read
+     */
+    public void decode(ByteBuffer data, long receivedNanos) {
+        // Finish a frame left over from the last read first
+        while (partial.position() > 0) {
+            if (!completePartial(data, receivedNanos)) {
+                return;
+            }
+        }
+
+        while (data.hasRemaining()) {
+            int start = data.position();
+            if ((data.get(start) & 0xFF) != ZigBeeProtocol.START) {
+                data.position(start + 1);
+                droppedBytes++;
+                continue;
+            }
+
+            int available = data.limit() - start;
+            if (available < ZigBeeProtocol.HEADER_SIZE) {
+                partial.put(data);
+                return;
+            }
+
+            int length = data.get(start + 3) & 0xFF;
+            if (length > ZigBeeProtocol.MAX_PAYLOAD) {
+                // Not a real frame; resync on the next start byte
+                data.position(start + 1);
+                droppedBytes++;
+                continue;
+            }
+
+            int frameSize = ZigBeeProtocol.OVERHEAD + length;
+            if (available < frameSize) {
+                partial.put(data);
+                return;
+            }
+
+            // Whole frame is here: check and deliver it in place
+            deliver(data, start, length, receivedNanos);
+        }
+    }
+
+    /**
+     * Add bytes to a frame split across reads and deliver it once complete.
+     *
+     * @param data Received bytes
+     * @param receivedNanos System.nanoTime() when the bytes were read
+     * @return true if the partial frame was finished, false if more bytes are needed
+     */
+    private boolean completePartial(ByteBuffer data, long receivedNanos) {
+        // Header first, so the frame size is known
+        while (partial.position() < ZigBeeProtocol.HEADER_SIZE && data.hasRemaining()) {
+            partial.put(data.get());
+        }
+        if (partial.position() < ZigBeeProtocol.HEADER_SIZE) {
+            return false;
+        }
+
+        int length = partial.get(3) & 0xFF;
+        if (length > ZigBeeProtocol.MAX_PAYLOAD) {
+            // Resync after the bogus start byte, on the bytes already taken
+            droppedBytes++;
+            restartFrom(1, receivedNanos);
+            return true;
+        }
+
+        int frameSize = ZigBeeProtocol.OVERHEAD + length;
+        while (partial.position() < frameSize && data.hasRemaining()) {
+            partial.put(data.get());
+        }
+        if (partial.position() < frameSize) {
+            return false;
+        }
+
+        partial.flip();
+        if (deliver(partial, 0, length, receivedNanos)) {
+            partial.clear();
+        } else {
+            // Resync on whatever followed the rejected start byte
+            partial.position(partial.limit());
+            partial.limit(partial.capacity());
+            restartFrom(1, receivedNanos);
+        }
+        return true;
+    }
+
+    /**
+     * Throw away the start of the partial frame and decode the rest again.
+     * Only happens on corrupt input, so the copy it makes does not matter.
+     *
+     * @param skip Number of bytes to throw away
+     * @param receivedNanos System.nanoTime() when the bytes were read
+     */
+    private void restartFrom(int skip, long receivedNanos) {
+        partial.flip();
+        partial.position(skip);
+        ByteBuffer leftover = ByteBuffer.allocate(partial.remaining());
+        leftover.put(partial);
+        leftover.flip();
+        partial.clear();
+        decode(leftover, receivedNanos);
+    }
+
+    /**
+     * Check a complete frame and pass it to the handler.
+     * On return the buffer's position is after the frame, or after its
+     * start byte if the frame was rejected.
+     *
+     * @param buffer Buffer holding the frame
+     * @param start Index of the frame's start byte
+     * @param length Payload length
+     * @param receivedNanos System.nanoTime() when the frame was read
+     * @return true if the frame was valid, false if it was rejected
+     */
+    private boolean deliver(ByteBuffer buffer, int start, int length, long receivedNanos) {
+        int payloadStart = start + ZigBeeProtocol.HEADER_SIZE;
+        int crcIndex = payloadStart + length;
+        int crc = ZigBeeProtocol.crc8(buffer, start + 1, crcIndex);
+        int versionAndFlags = buffer.get(start + 1) & 0xFF;
+
+        if (crc != (buffer.get(crcIndex) & 0xFF) || ZigBeeProtocol.version(versionAndFlags) != ZigBeeProtocol.VERSION) {
+            crcErrors++;
+            droppedBytes++;
+            buffer.position(start + 1);
+            return false;
+        }
+
+        // Let the handler see just the payload, then move past the frame
+        int limit = buffer.limit();
+        buffer.limit(crcIndex);
+        buffer.position(payloadStart);
+        frames++;
+        try {
+            handler.onFrame(ZigBeeProtocol.flags(versionAndFlags), buffer.get(start + 2) & 0xFF, buffer, receivedNanos);
+        } finally {
+            buffer.limit(limit);
+            buffer.position(crcIndex + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of valid frames decoded.
+     *
+     * @return Number of frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get the number of frames rejected for a bad CRC or version.
+     *
+     * @return Number of rejected frames
+     */
+    public long getCrcErrors() {
+        return crcErrors;
+    }
+
+    /**
+     * Get the number of bytes skipped while looking for a frame.
+     *
+     * @return Number of dropped bytes
+     */
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+}
@@ -0,0 +1,13 @@
+//package com.motionmaze.ui;
+
+/**
+ * How the active renderer paces its frames.
+ */
+public enum FramePacing {
+    /** Frames back to back, as fast as the renderer allows. */
+    UNCAPPED,
+    /** Frames at a fixed rate on the wall clock. */
+    FIXED_RATE,
+    /** Frames at the display's refresh rate, flipping on vertical retrace where the pipeline supports it. */
+    VSYNC
+}
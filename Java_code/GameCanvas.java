@@ -0,0 +1,306 @@
+//package com.motionmaze.ui;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Canvas that renders the game actively from its own thread.
+ * Instead of asking Swing to repaint and waiting for the event thread, the
+ * render thread draws each frame into a triple-buffered
+ * {@link BufferStrategy} and shows it, reading only the engine's latest
+ * {@link GameSnapshot}, so it never waits on the game loop or the other way
+ * round. Frame pacing is set by a {@link FramePacing}. Mazes larger than
+ * the canvas are shown through a view that follows the player.
+ */
+public class GameCanvas extends Canvas implements GameObserver, Runnable {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int BUFFERS = 3;
+
+    private GameEngine gameEngine;
+    private GameRenderer renderer;
+    private FramePacing pacing;
+    private int framesPerSecond;
+    private long frameNanos;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    private LatencyHistogram frameTimes;
+    private LatencyHistogram renderTimes;
+    private volatile long frames;
+    private volatile long lastTick;
+    private volatile long repeatedFrames;
+
+    /**
+     * Constructor for creating a new game canvas.
+     * The render thread starts when the canvas is shown and stops when it is removed.
+     *
+     * @param gameEngine Game engine to render
+     * @param pacing How to pace frames
+     * @param framesPerSecond Frame rate for fixed-rate pacing, and for vsync when the refresh rate is unknown
+     */
+    public GameCanvas(GameEngine gameEngine, FramePacing pacing, int framesPerSecond) {
+        this.gameEngine = gameEngine;
+        this.pacing = pacing;
+        this.framesPerSecond = framesPerSecond;
+        this.frameTimes = new LatencyHistogram();
+        this.renderTimes = new LatencyHistogram();
+        gameEngine.addObserver(this);
+
+        // Set up the canvas; the frame keeps the keyboard focus
+        setPreferredSize(new Dimension(GameRenderer.CELL_SIZE * 15, GameRenderer.CELL_SIZE * 15));
+        setBackground(Color.WHITE);
+        setIgnoreRepaint(true);
+        setFocusable(false);
+        this.renderer = new GameRenderer(getBackground());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        createStrategy();
+        start();
+    }
+
+    @Override
+    public void removeNotify() {
+        stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Create the buffer strategy.
+     * With vsync pacing, page flipping is asked for first, since a flip waits
+     * for the vertical retrace; otherwise, or where flipping is not
+     * supported, the contents are copied to the screen.
+     */
+    private void createStrategy() {
+        frameNanos = NANOS_PER_SECOND / framesPerSecond;
+        if (pacing == FramePacing.VSYNC) {
+            int refreshRate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                frameNanos = NANOS_PER_SECOND / refreshRate;
+            }
+
+            try {
+                ImageCapabilities accelerated = new ImageCapabilities(true);
+                createBufferStrategy(BUFFERS, new BufferCapabilities(accelerated, accelerated,
+                        BufferCapabilities.FlipContents.UNDEFINED));
+                return;
+            } catch (AWTException e) {
+                // Fall back to copying below
+            }
+        }
+        createBufferStrategy(BUFFERS);
+    }
+
+    /**
+     * Start the render thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this, "MotionMaze-Render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the render thread and wait for it to finish its frame.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = getBufferStrategy();
+        long nextFrame = System.nanoTime();
+        long previousFrame = nextFrame;
+
+        while (running) {
+            GameSnapshot snapshot = gameEngine.acquireSnapshot();
+            if (snapshot != null) {
+                long tick = snapshot.getTick();
+                long start = System.nanoTime();
+                try {
+                    renderFrame(strategy, snapshot);
+                } finally {
+                    snapshot.release();
+                }
+                long end = System.nanoTime();
+
+                renderTimes.record(end - start);
+                frameTimes.record(end - previousFrame);
+                previousFrame = end;
+                if (tick == lastTick) {
+                    repeatedFrames++;
+                }
+                lastTick = tick;
+                frames++;
+            }
+
+            // Wait for the next frame, or just give other threads a turn when uncapped
+            if (pacing == FramePacing.UNCAPPED) {
+                Thread.yield();
+                continue;
+            }
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (nextFrame < now) {
+                // Missed the slot; start counting again from now rather than rush to catch up
+                nextFrame = now + frameNanos;
+            }
+            LockSupport.parkNanos(this, nextFrame - now);
+        }
+    }
+
+    /**
+     * Draw and show one frame, redrawing it if the buffers are lost meanwhile.
+     *
+     * @param strategy Buffer strategy to draw into
+     * @param snapshot Game state to draw
+     */
+    private void renderFrame(BufferStrategy strategy, GameSnapshot snapshot) {
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    render(g2d, snapshot);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // Push the frame out now rather than when the window system gets round to it
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Draw a snapshot.
+     *
+     * @param g2d Graphics2D context
+     * @param snapshot Game state to draw
+     */
+    private void render(Graphics2D g2d, GameSnapshot snapshot) {
+        int width = getWidth();
+        int height = getHeight();
+        int cellSize = GameRenderer.CELL_SIZE;
+
+        // Clear the frame
+        g2d.setColor(getBackground());
+        g2d.fillRect(0, 0, width, height);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Center the view on the player, but keep it inside the resident cells
+        int scrollX = viewOrigin(snapshot.getPlayerX(), snapshot.getFirstColumn(), snapshot.getLastColumn(), width);
+        int scrollY = viewOrigin(snapshot.getPlayerY(), snapshot.getFirstRow(), snapshot.getLastRow(), height);
+        g2d.translate(-scrollX, -scrollY);
+
+        // Render the maze
+        renderer.renderMaze(g2d, snapshot, new Rectangle(scrollX, scrollY, width, height));
+
+        // Render power-ups
+        for (int i = 0; i < snapshot.getPowerUpCount(); i++) {
+            renderer.renderPowerUp(g2d, snapshot.getPowerUpX(i), snapshot.getPowerUpY(i), snapshot.getPowerUpType(i));
+        }
+
+        // Render obstacles
+        for (int i = 0; i < snapshot.getObstacleCount(); i++) {
+            renderer.renderObstacle(g2d, snapshot.getObstacleX(i), snapshot.getObstacleY(i), snapshot.getObstacleType(i));
+        }
+
+        // Render the player
+        renderer.renderPlayer(g2d, snapshot.getPlayerX(), snapshot.getPlayerY(), snapshot.getPlayerHealth());
+
+        // Render game state information
+        g2d.translate(scrollX, scrollY);
+        renderer.renderGameInfo(g2d, snapshot.getLevel(), snapshot.getScore(), snapshot.getState(), width, height);
+    }
+
+    /**
+     * Get the start of the view along one axis.
+     * Mazes that fit are shown from their first resident cell, as before.
+     *
+     * @param player Player position along the axis, in cells
+     * @param first First resident cell along the axis
+     * @param last Last resident cell along the axis
+     * @param size Size of the view along the axis, in pixels
+     * @return Maze pixel coordinate shown at the edge of the view
+     */
+    private static int viewOrigin(int player, int first, int last, int size) {
+        int cellSize = GameRenderer.CELL_SIZE;
+        int min = first * cellSize;
+        int max = Math.max(min, (last + 1) * cellSize - size);
+        int centered = player * cellSize + cellSize / 2 - size / 2;
+        return Math.max(min, Math.min(max, centered));
+    }
+
+    @Override
+    public void onGameUpdate(GameEngine gameEngine) {
+        // Follow wall changes in the current maze; frames are drawn by the render thread
+        renderer.bind(gameEngine.getMaze());
+    }
+
+    /**
+     * Get the histogram of time between frames.
+     *
+     * @return Frame interval histogram
+     */
+    public LatencyHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * Get the histogram of time spent drawing and showing each frame.
+     *
+     * @return Render time histogram
+     */
+    public LatencyHistogram getRenderTimes() {
+        return renderTimes;
+    }
+
+    /**
+     * Get the number of frames shown.
+     *
+     * @return Number of frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get the number of frames that showed the same tick as the frame before.
+     *
+     * @return Number of repeated frames
+     */
+    public long getRepeatedFrames() {
+        return repeatedFrames;
+    }
+
+    /**
+     * Get the frame pacing.
+     *
+     * @return Frame pacing
+     */
+    public FramePacing getPacing() {
+        return pacing;
+    }
+}
@@ -0,0 +1,74 @@
+//package com.motionmaze.game;
+
+/**
+ * Inputs to the game engine.
+ * Commands are immutable shared constants, so producers never allocate when
+ * they queue one.
+ */
+public enum GameCommand {
+    MOVE_UP(1),
+    MOVE_RIGHT(2),
+    MOVE_DOWN(3),
+    MOVE_LEFT(4),
+    BUTTON_PRESS(0),
+    MOTION_DETECTED(0),
+    RESET(0);
+
+    private final int direction;
+
+    /**
+     * Constructor for creating a new command.
+     *
+     * @param direction Movement direction (1 = up, 2 = right, 3 = down, 4 = left), or 0
+     */
+    GameCommand(int direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * Get the movement direction.
+     *
+     * @return Direction (1 = up, 2 = right, 3 = down, 4 = left), or 0 if this is not a move
+     */
+    public int getDirection() {
+        return direction;
+    }
+
+    /**
+     * Get the move command for a direction.
+     *
+     * @param direction Direction (1 = up, 2 = right, 3 = down, 4 = left)
+     * @return Move command, or null if the direction is not valid
+     */
+    public static GameCommand move(int direction) {
+        switch (direction) {
+            case 1:
+                return MOVE_UP;
+            case 2:
+                return MOVE_RIGHT;
+            case 3:
+                return MOVE_DOWN;
+            case 4:
+                return MOVE_LEFT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the command for an input code from the controller.
+     *
+     * @param code Input code (1-4 tilt, 5 button, 6 motion)
+     * @return Command, or null if the code is not valid
+     */
+    public static GameCommand fromInput(int code) {
+        switch (code) {
+            case 5:
+                return BUTTON_PRESS;
+            case 6:
+                return MOTION_DETECTED;
+            default:
+                return move(code);
+        }
+    }
+}
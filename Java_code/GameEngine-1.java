@@ -1,12 +1,25 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
 
 /**
  * Game engine for Motion Maze.
  * Manages game state, logic, and communication.
  */
 public class GameEngine {
+    private static final int ENDLESS_WINDOW_ROWS = 64;
+    private static final int OPEN_WORLD_CHUNK_SIZE = 64;
+    private static final long OPEN_WORLD_MEMORY_BUDGET = 4L * 1024 * 1024;
+    private static final int COMMAND_QUEUE_CAPACITY = 256;
+    private static final int MAX_COMMANDS_PER_TICK = 64;
+    private static final int MAX_CHANGED_CELLS = 64;
+    private static final int SNAPSHOT_BUFFERS = 3;
+    private static final int EVENT_BUFFER_CAPACITY = 1024;
+
     private GameState state;
     private GameState playingState;
     private GameState pausedState;
@@ -20,12 +33,51 @@ public class GameEngine {
     private boolean motionDetected;
     private int level;
     private int score;
-    private Random random;
+    private long seed;
+    private SplittableRandom random;
+    private SplittableRandom mazeRandom;
+    private SplittableRandom eventRandom;
+    private SplittableRandom playerRandom;
+    private MazeGenerator[] generators;
+    private MazeMode mazeMode;
+    private Path mazeDirectory;
+    private PathService pathService;
+    private CommandQueue commands;
+    private long tick;
+    private LongSupplier clock;
+    private InputRecorder recorder;
+    private InputSource inputSource;
+    private ChangeTracker changes;
+    private int trackedX;
+    private int trackedY;
+    private int trackedHealth;
+    private int trackedScore;
+    private int trackedLevel;
+    private GameState trackedState;
+    private SnapshotBuffer snapshots;
+    private GameEventBus events;
 
     /**
-     * Constructor for creating a new game engine.
+     * Constructor for creating a new game engine with a fresh random seed.
      */
     public GameEngine() {
+        this(Seeds.mix(System.nanoTime()));
+    }
+
+    /**
+     * Constructor for creating a new game engine from a seed.
+     * The same seed and the same inputs on the same ticks give the same game.
+     *
+     * @param seed Seed for every random choice the game makes
+     */
+    public GameEngine(long seed) {
+        // One stream per subsystem, so a change in one does not shift the others
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.mazeRandom = random.split();
+        this.eventRandom = random.split();
+        this.playerRandom = random.split();
+
         this.playingState = new PlayingState();
         this.pausedState = new PausedState();
         this.gameOverState = new GameOverState();
@@ -33,11 +85,18 @@ public class GameEngine {
         this.state = this.playingState;
 
         this.observers = new ArrayList<>();
+        this.clock = System::nanoTime;
         this.zigBeeManager = new ZigBeeManager(this);
         this.motionDetected = false;
         this.level = 1;
         this.score = 0;
-        this.random = new Random();
+        this.generators = new MazeGenerator[MazeAlgorithm.values().length];
+        this.mazeMode = MazeMode.STANDARD;
+        this.commands = new CommandQueue(COMMAND_QUEUE_CAPACITY);
+        this.tick = 0;
+        this.changes = new ChangeTracker(MAX_CHANGED_CELLS);
+        this.snapshots = new SnapshotBuffer(SNAPSHOT_BUFFERS);
+        this.events = new GameEventBus();
     }
 
     /**
@@ -51,13 +110,14 @@ public class GameEngine {
         zigBeeManager.sendGameStartCommand();
 
         // Create a new maze
-        this.maze = new Maze(10, 10, level);
+        this.maze = createMaze(10, 10);
 
         // Create a new player
-        this.player = new Player(maze.getStartX(), maze.getStartY());
+        this.player = new Player(maze.getStartX(), maze.getStartY(), playerRandom);
 
         // Start a new game
         startNewGame();
+        snapshots.publish(this);
     }
 
     /**
@@ -66,40 +126,191 @@ public class GameEngine {
     public void stop() {
         // Disconnect from ZigBee
         zigBeeManager.disconnect();
+
+        // Close the input log at the last tick run
+        if (recorder != null) {
+            recorder.close(tick);
+            recorder = null;
+        }
+
+        // Stop the event subscriber threads
+        events.close();
     }
 
     /**
      * Update the game engine.
+     * Called once per fixed tick by the {@link GameLoop}. This is the only
+     * place that changes game state, so the queued inputs are applied here.
      */
     public void update() {
+        tick++;
+        changes.clear();
+
+        // End the status effects that expire on this tick
+        player.updateEffects(tick);
+
+        // Apply inputs queued since the last tick
+        drainCommands();
+        zigBeeManager.drainInput();
+        if (inputSource != null) {
+            inputSource.feed(this, tick);
+        }
+        trackChanges();
+
         // Update state
         state.update(this);
+        trackChanges();
 
-        // Notify observers
+        // Send this tick's actuator commands as one packet
+        zigBeeManager.flush();
+
+        // Publish the finished tick for readers on other threads
+        snapshots.publish(this);
+
+        // Notify observers, then hand the tick's events to the subscriber threads
         notifyObservers();
+        events.flush();
+    }
+
+    /**
+     * Compare the player, score, level and state with the last check and
+     * record what changed. Maze contents report their own changes.
+     */
+    private void trackChanges() {
+        if (player.getX() != trackedX || player.getY() != trackedY) {
+            changes.markCell(trackedX, trackedY);
+            changes.markCell(player.getX(), player.getY());
+            trackedX = player.getX();
+            trackedY = player.getY();
+            publishEvent(GameEventType.PLAYER_MOVED, trackedX, trackedY, null);
+        } else if (player.getHealth() != trackedHealth) {
+            changes.markCell(trackedX, trackedY);
+        }
+        trackedHealth = player.getHealth();
+
+        if (score != trackedScore || level != trackedLevel) {
+            changes.markInfo();
+            trackedScore = score;
+            trackedLevel = level;
+        }
+
+        // Game over and level complete are drawn over the whole view
+        if (state != trackedState) {
+            changes.markAll();
+            trackedState = state;
+        }
+    }
+
+    /**
+     * Get the cells that changed during the current tick.
+     * Only valid on the game loop thread, for example in {@link GameObserver#onGameUpdate}.
+     *
+     * @return Change tracker
+     */
+    public ChangeTracker getChanges() {
+        return changes;
+    }
+
+    /**
+     * Get and hold the state of the game as of the last finished tick.
+     * Safe to call from any thread; the caller must {@link GameSnapshot#release()} it when done.
+     *
+     * @return Latest snapshot, or null before the engine has started
+     */
+    public GameSnapshot acquireSnapshot() {
+        return snapshots.acquire();
+    }
+
+    /**
+     * Get the snapshot buffer, for its statistics.
+     *
+     * @return Snapshot buffer
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Queue an input for the next tick. Safe to call from any thread.
+     *
+     * @param command Command to queue
+     * @return true if the command was queued, false if the queue was full
+     */
+    public boolean submit(GameCommand command) {
+        return commands.offer(command);
     }
 
     /**
      * Process movement from ZigBee.
+     * The move is applied on the next tick.
      *
      * @param direction Direction (1 = up, 2 = right, 3 = down, 4 = left)
      */
     public void processMovement(int direction) {
-        state.processMovement(direction, this);
+        GameCommand command = GameCommand.move(direction);
+        if (command != null) {
+            submit(command);
+        }
     }
 
     /**
      * Process button press from ZigBee.
+     * The press is applied on the next tick.
      */
     public void processButtonPress() {
-        state.processButtonPress(this);
+        submit(GameCommand.BUTTON_PRESS);
     }
 
     /**
      * Process motion detection from ZigBee.
+     * The detection is applied on the next tick.
      */
     public void processMotionDetection() {
-        state.processMotionDetection(this);
+        submit(GameCommand.MOTION_DETECTED);
+    }
+
+    /**
+     * Apply a batch of queued commands.
+     * A flood of input is spread over several ticks rather than stalling one.
+     */
+    private void drainCommands() {
+        GameCommand command;
+        for (int i = 0; i < MAX_COMMANDS_PER_TICK && (command = commands.poll()) != null; i++) {
+            apply(command);
+        }
+    }
+
+    /**
+     * Apply a single command to the current state straight away.
+     * Must only be called on the game loop thread; other threads use submit.
+     *
+     * @param command Command to apply
+     */
+    public void apply(GameCommand command) {
+        if (recorder != null) {
+            recorder.record(tick, command);
+        }
+
+        switch (command) {
+            case MOVE_UP:
+            case MOVE_RIGHT:
+            case MOVE_DOWN:
+            case MOVE_LEFT:
+                state.processMovement(command.getDirection(), this);
+                break;
+
+            case BUTTON_PRESS:
+                state.processButtonPress(this);
+                break;
+
+            case MOTION_DETECTED:
+                state.processMotionDetection(this);
+                break;
+
+            case RESET:
+                resetGame();
+                break;
+        }
     }
 
     /**
@@ -129,6 +340,7 @@ public class GameEngine {
         // Check if the move is valid
         if (maze.isValidMove(newX, newY)) {
             player.moveTo(newX, newY);
+            maze.focus(newX, newY);
 
             // Check if the player reached a power-up
             PowerUp powerUp = maze.getPowerUpAt(newX, newY);
@@ -138,6 +350,7 @@ public class GameEngine {
 
                 // Remove power-up from maze
                 maze.removePowerUp(powerUp);
+                publishEvent(GameEventType.POWER_UP_COLLECTED, newX, newY, powerUp);
 
                 // Increase score
                 score += 10;
@@ -154,21 +367,74 @@ public class GameEngine {
         }
     }
 
+    /**
+     * Create a maze for the current level and report its cell changes to the change tracker.
+     *
+     * @param width Width of the maze
+     * @param height Height of the maze
+     * @return New maze
+     */
+    private Maze createMaze(int width, int height) {
+        Maze maze = buildMaze(width, height);
+        maze.setChangeTracker(changes);
+        changes.markAll();
+        return maze;
+    }
+
+    /**
+     * Build a maze for the current level and maze mode.
+     * Generators are kept per algorithm so their scratch buffers are reused across levels.
+     * In endless and open-world mode the size is decided by the maze itself.
+     *
+     * @param width Width of the maze
+     * @param height Height of the maze
+     * @return New maze
+     */
+    private Maze buildMaze(int width, int height) {
+        // Endless mazes are streamed row by row, open worlds chunk by chunk
+        if (mazeMode == MazeMode.ENDLESS) {
+            return Maze.streaming(width, ENDLESS_WINDOW_ROWS, level, mazeRandom.split());
+        } else if (mazeMode == MazeMode.OPEN_WORLD) {
+            return Maze.chunked(mazeRandom.nextLong(), OPEN_WORLD_CHUNK_SIZE, OPEN_WORLD_MEMORY_BUDGET, level);
+        }
+
+        // A designed maze for this level takes the place of a generated one
+        if (mazeDirectory != null) {
+            Path file = mazeDirectory.resolve("level-" + level + ".mmz");
+            if (Files.isRegularFile(file)) {
+                try {
+                    return MazeFile.load(file);
+                } catch (IOException e) {
+                    System.err.println("Failed to load maze " + file + ": " + e.getMessage());
+                }
+            }
+        }
+
+        MazeAlgorithm algorithm = MazeAlgorithm.forLevel(level);
+        MazeGenerator generator = generators[algorithm.ordinal()];
+        if (generator == null) {
+            generator = algorithm.createGenerator();
+            generators[algorithm.ordinal()] = generator;
+        }
+
+        return new Maze(width, height, level, generator, mazeRandom.split());
+    }
+
     /**
      * Spawn a random event in the maze.
      */
     public void spawnRandomEvent() {
         // 50% chance to spawn a power-up, 50% chance to spawn an obstacle
-        if (random.nextBoolean()) {
+        if (eventRandom.nextBoolean()) {
             // Spawn a power-up
             PowerUpType[] types = PowerUpType.values();
-            PowerUpType type = types[random.nextInt(types.length)];
+            PowerUpType type = types[eventRandom.nextInt(types.length)];
 
             // Find a valid position
             int x, y;
             do {
-                x = random.nextInt(maze.getWidth());
-                y = random.nextInt(maze.getHeight());
+                x = maze.getFirstColumn() + eventRandom.nextInt(maze.getLastColumn() - maze.getFirstColumn() + 1);
+                y = maze.getFirstRow() + eventRandom.nextInt(maze.getLastRow() - maze.getFirstRow() + 1);
             } while (!maze.isValidMove(x, y) || (x == player.getX() && y == player.getY()));
 
             // Add power-up to maze
@@ -180,13 +446,13 @@ public class GameEngine {
         } else {
             // Spawn an obstacle
             ObstacleType[] types = ObstacleType.values();
-            ObstacleType type = types[random.nextInt(types.length)];
+            ObstacleType type = types[eventRandom.nextInt(types.length)];
 
             // Find a valid position
             int x, y;
             do {
-                x = random.nextInt(maze.getWidth());
-                y = random.nextInt(maze.getHeight());
+                x = maze.getFirstColumn() + eventRandom.nextInt(maze.getLastColumn() - maze.getFirstColumn() + 1);
+                y = maze.getFirstRow() + eventRandom.nextInt(maze.getLastRow() - maze.getFirstRow() + 1);
             } while (!maze.isValidMove(x, y) || (x == player.getX() && y == player.getY()));
 
             // Add obstacle to maze
@@ -196,8 +462,8 @@ public class GameEngine {
             zigBeeManager.sendLedCommand(0); // Red LED
             zigBeeManager.sendServoCommand((x * maze.getHeight() + y) % 16); // Map x,y to 0-15 range
 
-            // Reset LED after a brief moment (in real implementation)
-            zigBeeManager.sendLedCommand(7); // LED off
+            // Turn the LED off after a brief flash
+            zigBeeManager.scheduleLedCommand(7, ZigBeeManager.LED_FLASH_MS); // LED off
         }
     }
 
@@ -215,7 +481,7 @@ public class GameEngine {
         zigBeeManager.sendLevelCompleteCommand();
 
         // Create a new maze
-        this.maze = new Maze(10 + level, 10 + level, level);
+        this.maze = createMaze(10 + level, 10 + level);
 
         // Reset player position
         this.player.moveTo(maze.getStartX(), maze.getStartY());
@@ -239,7 +505,7 @@ public class GameEngine {
         zigBeeManager.sendGameStartCommand();
 
         // Create a new maze
-        this.maze = new Maze(10, 10, level);
+        this.maze = createMaze(10, 10);
 
         // Reset player position
         this.player.moveTo(maze.getStartX(), maze.getStartY());
@@ -277,6 +543,9 @@ public class GameEngine {
      */
     public void setState(GameState state) {
         this.state = state;
+        if (player != null) {
+            publishEvent(GameEventType.STATE_CHANGED, player.getX(), player.getY(), state);
+        }
         state.init(this);
     }
 
@@ -307,6 +576,39 @@ public class GameEngine {
         }
     }
 
+    /**
+     * Subscribe to game events.
+     *
+     * @param name Name shown in metrics and on the subscriber's thread
+     * @param listener Listener to deliver events to
+     * @param policy How to deliver events
+     * @return Subscription, for metrics and to unsubscribe
+     */
+    public GameEventBus.Subscription subscribe(String name, GameEventListener listener, DeliveryPolicy policy) {
+        return events.subscribe(name, listener, policy, EVENT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Publish a game event for the current tick.
+     *
+     * @param type Kind of event
+     * @param x X position of the event
+     * @param y Y position of the event
+     * @param subject Power-up, obstacle or state the event is about, or null
+     */
+    public void publishEvent(GameEventType type, int x, int y, Object subject) {
+        events.publish(type, tick, x, y, subject);
+    }
+
+    /**
+     * Get the event bus.
+     *
+     * @return Event bus
+     */
+    public GameEventBus getEvents() {
+        return events;
+    }
+
     /**
      * Get the current state.
      *
@@ -352,6 +654,95 @@ public class GameEngine {
         return completedState;
     }
 
+    /**
+     * Get the number of ticks run since the engine was created.
+     *
+     * @return Tick count
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the seed the game was created with.
+     *
+     * @return Seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the random stream for game events, such as spawning power-ups and obstacles.
+     * Only for use on the game loop thread.
+     *
+     * @return Event random stream
+     */
+    public SplittableRandom getEventRandom() {
+        return eventRandom;
+    }
+
+    /**
+     * Split off a new random stream for another subsystem.
+     * Streams are handed out in order, so a subsystem created at the same
+     * point always gets the same stream.
+     *
+     * @return New independent random stream
+     */
+    public SplittableRandom splitRandom() {
+        return random.split();
+    }
+
+    /**
+     * Record every input applied from now on.
+     * The recorder is closed when the engine stops.
+     *
+     * @param recorder Log to record into, or null to stop recording
+     */
+    public void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Set a source of inputs applied on top of the queued ones each tick,
+     * such as a log being replayed.
+     *
+     * @param inputSource Input source, or null for none
+     */
+    public void setInputSource(InputSource inputSource) {
+        this.inputSource = inputSource;
+    }
+
+    /**
+     * Get the current game time.
+     * This is the wall clock unless a simulated clock has been set.
+     *
+     * @return Game time in nanoseconds, on the same scale as System.nanoTime()
+     */
+    public long nanoTime() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Set the clock that game time is read from.
+     * A simulated clock lets the game run faster or slower than real time;
+     * it should start from System.nanoTime() so that pending timers carry over.
+     *
+     * @param clock Source of game time in nanoseconds
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Get the number of inputs dropped because the command queue was full.
+     *
+     * @return Number of dropped inputs
+     */
+    public long getDroppedCommands() {
+        return commands.getDropped();
+    }
+
     /**
      * Get the maze.
      *
@@ -361,6 +752,27 @@ public class GameEngine {
         return maze;
     }
 
+    /**
+     * Get the path service for the current maze.
+     * The service is built on first use after each new maze.
+     *
+     * @return Path service, or null if the maze is endless or an open world
+     */
+    public PathService getPathService() {
+        if (maze == null || mazeMode != MazeMode.STANDARD) {
+            return null;
+        }
+
+        if (pathService == null || pathService.getMaze() != maze) {
+            if (pathService != null) {
+                pathService.dispose();
+            }
+            pathService = new PathService(maze);
+        }
+
+        return pathService;
+    }
+
     /**
      * Get the player.
      *
@@ -406,6 +818,49 @@ public class GameEngine {
         return level;
     }
 
+    /**
+     * Get the maze mode.
+     *
+     * @return Maze mode
+     */
+    public MazeMode getMazeMode() {
+        return mazeMode;
+    }
+
+    /**
+     * Set the maze mode.
+     * Takes effect when the next maze is created.
+     *
+     * @param mazeMode How new mazes should be built
+     */
+    public void setMazeMode(MazeMode mazeMode) {
+        if (recorder != null) {
+            recorder.recordMazeMode(tick, mazeMode);
+        }
+        this.mazeMode = mazeMode;
+    }
+
+    /**
+     * Set the directory to load designed mazes from.
+     * A file named level-N.mmz there replaces the generated maze of level N in standard mode.
+     *
+     * @param mazeDirectory Directory of maze files, or null to always generate mazes
+     */
+    public void setMazeDirectory(Path mazeDirectory) {
+        this.mazeDirectory = mazeDirectory;
+    }
+
+    /**
+     * Save the current maze in the {@link MazeFile} format.
+     *
+     * @param path File to write
+     * @throws IOException If the file could not be written
+     * @throws IllegalArgumentException if the maze is endless or open-world
+     */
+    public void saveMaze(Path path) throws IOException {
+        MazeFile.save(maze, path);
+    }
+
     /**
      * Get the ZigBee manager.
      *
@@ -0,0 +1,89 @@
+//package com.motionmaze.game;
+
+/**
+ * Event delivered by the {@link GameEventBus}.
+ * Events are carried as primitives in the bus and copied into one reused
+ * event object per subscriber, so publishing and delivering do not
+ * allocate. An event is only valid during the listener call it was passed to.
+ */
+public class GameEvent {
+    private GameEventType type;
+    private long tick;
+    private int x;
+    private int y;
+    private Object subject;
+    private long publishedNanos;
+
+    /**
+     * Fill the event.
+     *
+     * @param type Kind of event
+     * @param tick Tick the event happened on
+     * @param x X position of the event
+     * @param y Y position of the event
+     * @param subject Power-up, obstacle or state the event is about, or null
+     * @param publishedNanos System.nanoTime() when the event was published
+     */
+    void set(GameEventType type, long tick, int x, int y, Object subject, long publishedNanos) {
+        this.type = type;
+        this.tick = tick;
+        this.x = x;
+        this.y = y;
+        this.subject = subject;
+        this.publishedNanos = publishedNanos;
+    }
+
+    /**
+     * Get the kind of event.
+     *
+     * @return Event type
+     */
+    public GameEventType getType() {
+        return type;
+    }
+
+    /**
+     * Get the tick the event happened on.
+     *
+     * @return Tick number
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the X position of the event.
+     *
+     * @return X position
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the Y position of the event.
+     *
+     * @return Y position
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get what the event is about: the {@link PowerUp}, {@link Obstacle} or new {@link GameState}.
+     *
+     * @return Subject, or null for player moves
+     */
+    public Object getSubject() {
+        return subject;
+    }
+
+    /**
+     * Get when the event was published.
+     *
+     * @return System.nanoTime() at publication
+     */
+    public long getPublishedNanos() {
+        return publishedNanos;
+    }
+}
@@ -0,0 +1,490 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Typed game events from the game loop to any number of subscribers.
+ * Each subscriber has its own {@link DeliveryPolicy}. Synchronous
+ * subscribers are called on the game loop as events are published. The
+ * others get their own thread and their own buffer: a ring of primitive
+ * slots for {@link DeliveryPolicy#ASYNC}, or one slot per event type for
+ * {@link DeliveryPolicy#COALESCE}. The game loop only writes to the buffer
+ * and wakes the thread once per tick in {@link #flush()}, so a slow
+ * subscriber falls behind, loses events and shows it in its lag, but never
+ * holds up a tick. Publishing does not allocate.
+ *
+ * {@link #publish} and {@link #flush()} must only be called from the game
+ * loop thread; subscribing, unsubscribing and reading the metrics are safe
+ * from any thread.
+ */
+public class GameEventBus {
+    private static final GameEventType[] TYPES = GameEventType.values();
+
+    private volatile Subscription[] subscriptions;
+    private int threads;
+
+    /**
+     * Constructor for creating a new bus with no subscribers.
+     */
+    public GameEventBus() {
+        this.subscriptions = new Subscription[0];
+    }
+
+    /**
+     * Add a subscriber.
+     * Subscribers that are not synchronous get a daemon thread that runs until they unsubscribe.
+     *
+     * @param name Name shown in metrics and on the subscriber's thread
+     * @param listener Listener to deliver events to
+     * @param policy How to deliver events
+     * @param capacity Number of events buffered for an asynchronous subscriber (rounded up to a power of two)
+     * @return Subscription, for metrics and to unsubscribe
+     */
+    public synchronized Subscription subscribe(String name, GameEventListener listener, DeliveryPolicy policy,
+                                               int capacity) {
+        Subscription subscription = new Subscription(name, listener, policy, capacity);
+        Subscription[] grown = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        grown[grown.length - 1] = subscription;
+        subscriptions = grown;
+
+        if (policy != DeliveryPolicy.SYNC) {
+            subscription.start("MotionMaze-Events-" + (++threads) + "-" + name);
+        }
+        return subscription;
+    }
+
+    /**
+     * Remove a subscriber and stop its thread.
+     * Events still buffered for it are not delivered.
+     *
+     * @param subscription Subscription to remove
+     */
+    public void unsubscribe(Subscription subscription) {
+        synchronized (this) {
+            Subscription[] current = subscriptions;
+            int index = Arrays.asList(current).indexOf(subscription);
+            if (index < 0) {
+                return;
+            }
+
+            Subscription[] shrunk = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, shrunk, 0, index);
+            System.arraycopy(current, index + 1, shrunk, index, shrunk.length - index);
+            subscriptions = shrunk;
+        }
+        subscription.stop();
+    }
+
+    /**
+     * Remove every subscriber and stop their threads.
+     */
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+        }
+    }
+
+    /**
+     * Publish an event to every subscriber.
+     *
+     * @param type Kind of event
+     * @param tick Tick the event happened on
+     * @param x X position of the event
+     * @param y Y position of the event
+     * @param subject Power-up, obstacle or state the event is about, or null
+     */
+    public void publish(GameEventType type, long tick, int x, int y, Object subject) {
+        Subscription[] current = subscriptions;
+        if (current.length == 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (Subscription subscription : current) {
+            subscription.offer(type, tick, x, y, subject, now);
+        }
+    }
+
+    /**
+     * Wake the subscriber threads that have events waiting.
+     * Called once per tick, after the tick's events are published.
+     */
+    public void flush() {
+        for (Subscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+
+    /**
+     * Get the current subscriptions.
+     *
+     * @return Subscriptions, in the order they were added
+     */
+    public Subscription[] getSubscriptions() {
+        return subscriptions.clone();
+    }
+
+    /**
+     * One subscriber, its buffer, its thread and its metrics.
+     */
+    public static class Subscription implements Runnable {
+        private String name;
+        private GameEventListener listener;
+        private DeliveryPolicy policy;
+        private GameEvent event;
+
+        // Ring for ASYNC: written by the game loop, read by the subscriber thread
+        private GameEventType[] types;
+        private long[] ticks;
+        private long[] times;
+        private int[] xs;
+        private int[] ys;
+        private Object[] subjects;
+        private int mask;
+        private AtomicLong head;
+        private AtomicLong tail;
+
+        // Latest event of each type for COALESCE, each guarded by an even/odd version
+        private AtomicLongArray versions;
+        private AtomicLongArray latestTicks;
+        private AtomicLongArray latestTimes;
+        private AtomicIntegerArray latestX;
+        private AtomicIntegerArray latestY;
+        private AtomicReferenceArray<Object> latestSubjects;
+        private long[] seenVersions;
+
+        private volatile boolean running;
+        private Thread thread;
+
+        // Written by the game loop only
+        private volatile long published;
+        private volatile long dropped;
+        private volatile long maxLag;
+
+        // Written by the delivering thread only
+        private volatile long delivered;
+        private volatile long coalesced;
+        private LatencyHistogram latency;
+
+        /**
+         * Constructor for creating a new subscription.
+         *
+         * @param name Name of the subscriber
+         * @param listener Listener to deliver events to
+         * @param policy How to deliver events
+         * @param capacity Number of events buffered for an asynchronous subscriber
+         */
+        private Subscription(String name, GameEventListener listener, DeliveryPolicy policy, int capacity) {
+            this.name = name;
+            this.listener = listener;
+            this.policy = policy;
+            this.event = new GameEvent();
+            this.latency = new LatencyHistogram();
+
+            if (policy == DeliveryPolicy.ASYNC) {
+                int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+                this.types = new GameEventType[size];
+                this.ticks = new long[size];
+                this.times = new long[size];
+                this.xs = new int[size];
+                this.ys = new int[size];
+                this.subjects = new Object[size];
+                this.mask = size - 1;
+                this.head = new AtomicLong();
+                this.tail = new AtomicLong();
+            } else if (policy == DeliveryPolicy.COALESCE) {
+                this.versions = new AtomicLongArray(TYPES.length);
+                this.latestTicks = new AtomicLongArray(TYPES.length);
+                this.latestTimes = new AtomicLongArray(TYPES.length);
+                this.latestX = new AtomicIntegerArray(TYPES.length);
+                this.latestY = new AtomicIntegerArray(TYPES.length);
+                this.latestSubjects = new AtomicReferenceArray<>(TYPES.length);
+                this.seenVersions = new long[TYPES.length];
+            }
+        }
+
+        /**
+         * Start the delivery thread.
+         *
+         * @param threadName Name of the thread
+         */
+        private void start(String threadName) {
+            running = true;
+            thread = new Thread(this, threadName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Stop the delivery thread and wait for it to finish its current event.
+         */
+        private void stop() {
+            running = false;
+            if (thread == null || thread == Thread.currentThread()) {
+                return;
+            }
+
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Take an event from the game loop.
+         *
+         * @param type Kind of event
+         * @param tick Tick the event happened on
+         * @param x X position of the event
+         * @param y Y position of the event
+         * @param subject Subject of the event, or null
+         * @param now System.nanoTime() at publication
+         */
+        private void offer(GameEventType type, long tick, int x, int y, Object subject, long now) {
+            published++;
+            switch (policy) {
+                case SYNC:
+                    deliver(type, tick, x, y, subject, now);
+                    break;
+
+                case ASYNC:
+                    long position = tail.get();
+                    if (position - head.get() > mask) {
+                        // Never wait for the subscriber; it loses the event instead
+                        dropped++;
+                        return;
+                    }
+                    int slot = (int) position & mask;
+                    types[slot] = type;
+                    ticks[slot] = tick;
+                    times[slot] = now;
+                    xs[slot] = x;
+                    ys[slot] = y;
+                    subjects[slot] = subject;
+                    tail.lazySet(position + 1);
+                    break;
+
+                case COALESCE:
+                    // Odd while being written, so the subscriber can tell a torn read
+                    int index = type.ordinal();
+                    long version = versions.get(index);
+                    versions.set(index, version + 1);
+                    latestTicks.set(index, tick);
+                    latestTimes.set(index, now);
+                    latestX.set(index, x);
+                    latestY.set(index, y);
+                    latestSubjects.set(index, subject);
+                    versions.set(index, version + 2);
+                    break;
+            }
+        }
+
+        /**
+         * Note the lag and wake the delivery thread if anything is waiting.
+         */
+        private void wake() {
+            long lag = getLag();
+            if (lag > maxLag) {
+                maxLag = lag;
+            }
+            if (lag > 0 && thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                boolean any = policy == DeliveryPolicy.ASYNC ? drainRing() : drainLatest();
+                if (!any) {
+                    LockSupport.park(this);
+                }
+            }
+        }
+
+        /**
+         * Deliver every event waiting in the ring.
+         *
+         * @return true if any event was delivered, false if the ring was empty
+         */
+        private boolean drainRing() {
+            long position = head.get();
+            long end = tail.get();
+            if (position == end) {
+                return false;
+            }
+
+            for (; position < end && running; position++) {
+                int slot = (int) position & mask;
+                Object subject = subjects[slot];
+                subjects[slot] = null;
+                deliver(types[slot], ticks[slot], xs[slot], ys[slot], subject, times[slot]);
+                head.lazySet(position + 1);
+            }
+            return true;
+        }
+
+        /**
+         * Deliver the latest event of each type not delivered yet.
+         * Events of the same type published since the last delivery are skipped.
+         *
+         * @return true if any event was delivered, false if none was waiting
+         */
+        private boolean drainLatest() {
+            boolean any = false;
+            for (int index = 0; index < TYPES.length && running; index++) {
+                long version;
+                long tick;
+                long time;
+                int x;
+                int y;
+                Object subject;
+                do {
+                    version = versions.get(index);
+                    tick = latestTicks.get(index);
+                    time = latestTimes.get(index);
+                    x = latestX.get(index);
+                    y = latestY.get(index);
+                    subject = latestSubjects.get(index);
+                } while ((version & 1) != 0 || version != versions.get(index));
+
+                if (version == seenVersions[index]) {
+                    continue;
+                }
+
+                // Every two versions is one event; all but the newest are skipped
+                long skipped = (version - seenVersions[index]) / 2 - 1;
+                seenVersions[index] = version;
+                coalesced += skipped;
+                deliver(TYPES[index], tick, x, y, subject, time);
+                any = true;
+            }
+            return any;
+        }
+
+        /**
+         * Call the listener and record the delay since publication.
+         *
+         * @param type Kind of event
+         * @param tick Tick the event happened on
+         * @param x X position of the event
+         * @param y Y position of the event
+         * @param subject Subject of the event, or null
+         * @param publishedNanos System.nanoTime() at publication
+         */
+        private void deliver(GameEventType type, long tick, int x, int y, Object subject, long publishedNanos) {
+            event.set(type, tick, x, y, subject, publishedNanos);
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                if (policy == DeliveryPolicy.SYNC) {
+                    throw e;
+                }
+                System.err.println("Event delivery to " + name + " failed: " + e);
+            } finally {
+                delivered++;
+                latency.record(System.nanoTime() - publishedNanos);
+            }
+        }
+
+        /**
+         * Get the subscriber's name.
+         *
+         * @return Name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the delivery policy.
+         *
+         * @return Delivery policy
+         */
+        public DeliveryPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Get the number of events published to the subscriber.
+         *
+         * @return Number of events published
+         */
+        public long getPublished() {
+            return published;
+        }
+
+        /**
+         * Get the number of events delivered.
+         *
+         * @return Number of events delivered
+         */
+        public long getDelivered() {
+            return delivered;
+        }
+
+        /**
+         * Get the number of events dropped because the subscriber's ring was full.
+         *
+         * @return Number of events dropped
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * Get the number of events skipped because a newer one of the same type replaced them.
+         *
+         * @return Number of events coalesced
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * Get the number of events published but not yet delivered, dropped or coalesced.
+         *
+         * @return Current lag, in events
+         */
+        public long getLag() {
+            return Math.max(0, published - dropped - delivered - coalesced);
+        }
+
+        /**
+         * Get the highest lag seen at the end of a tick.
+         *
+         * @return Maximum lag, in events
+         */
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        /**
+         * Get the histogram of time from publication to the end of delivery.
+         *
+         * @return Delivery latency histogram
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Get a one-line summary of the subscriber's metrics.
+         *
+         * @return Summary
+         */
+        public String summary() {
+            return name + " " + policy + ": delivered " + delivered + "/" + published
+                    + ", lag " + getLag() + " (max " + maxLag + ")"
+                    + ", dropped " + dropped + ", coalesced " + coalesced
+                    + ", latency " + latency.summary();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+//package com.motionmaze.game;
+
+/**
+ * Listener for events on the {@link GameEventBus}.
+ */
+public interface GameEventListener {
+    /**
+     * Called for each event delivered.
+     * The event object is reused; copy anything needed after the call returns.
+     *
+     * @param event Event delivered
+     */
+    void onEvent(GameEvent event);
+}
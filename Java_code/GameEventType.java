@@ -0,0 +1,15 @@
+//package com.motionmaze.game;
+
+/**
+ * Kinds of event published on the {@link GameEventBus}.
+ */
+public enum GameEventType {
+    /** The player moved to a new cell; the position is the new cell. */
+    PLAYER_MOVED,
+    /** The player picked up a power-up; the subject is the {@link PowerUp}. */
+    POWER_UP_COLLECTED,
+    /** The player ran into an obstacle; the subject is the {@link Obstacle}. */
+    OBSTACLE_HIT,
+    /** The game changed state; the subject is the new {@link GameState}. */
+    STATE_CHANGED
+}
@@ -12,13 +12,25 @@ import java.awt.event.KeyEvent;
 public class GameFrame extends JFrame {
     private GameEngine gameEngine;
     private GamePanel gamePanel;
+    private GameCanvas gameCanvas;
 
     /**
-     * Constructor for creating a new game frame.
+     * Constructor for creating a new game frame that paints through Swing.
      *
      * @param gameEngine Game engine
      */
     public GameFrame(GameEngine gameEngine) {
+        this(gameEngine, null, 0);
+    }
+
+    /**
+     * Constructor for creating a new game frame.
+     *
+     * @param gameEngine Game engine
+     * @param activePacing Frame pacing for active rendering on a render thread, or null to paint through Swing
+     * @param framesPerSecond Frame rate for active rendering
+     */
+    public GameFrame(GameEngine gameEngine, FramePacing activePacing, int framesPerSecond) {
         this.gameEngine = gameEngine;
 
         // Set up the frame
@@ -26,16 +38,22 @@ public class GameFrame extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
 
-        // Create the game panel
-        gamePanel = new GamePanel(gameEngine);
-
-        // Add the game panel to a scroll pane to handle large mazes
-        JScrollPane scrollPane = new JScrollPane(gamePanel);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-
-        // Add the scroll pane to the frame
-        add(scrollPane, BorderLayout.CENTER);
+        if (activePacing != null) {
+            // Draw from a render thread straight into the canvas buffers
+            gameCanvas = new GameCanvas(gameEngine, activePacing, framesPerSecond);
+            add(gameCanvas, BorderLayout.CENTER);
+        } else {
+            // Create the game panel
+            gamePanel = new GamePanel(gameEngine);
+
+            // Add the game panel to a scroll pane to handle large mazes
+            JScrollPane scrollPane = new JScrollPane(gamePanel);
+            scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+            scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+
+            // Add the scroll pane to the frame
+            add(scrollPane, BorderLayout.CENTER);
+        }
 
         // Add a status panel at the bottom
         JPanel statusPanel = new JPanel();
@@ -100,7 +118,7 @@ public class GameFrame extends JFrame {
                 break;
 
             case KeyEvent.VK_R:
-                gameEngine.resetGame(); // Reset game
+                gameEngine.submit(GameCommand.RESET); // Reset game
                 break;
 
             case KeyEvent.VK_Q:
@@ -110,9 +128,11 @@ public class GameFrame extends JFrame {
     }
 
     /**
-     * Update the game frame.
+     * Get the active rendering canvas.
+     *
+     * @return Game canvas, or null if the frame paints through Swing
      */
-    public void update() {
-        gamePanel.repaint();
+    public GameCanvas getGameCanvas() {
+        return gameCanvas;
     }
 }
@@ -0,0 +1,282 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Host for many independent game sessions in one JVM.
+ * Each session is a {@link GameEngine} bound to one controller address on a
+ * shared {@link ZigBeeCoordinator}. Sessions are split into shards, one per
+ * scheduler thread, and each shard ticks all of its sessions in turn at the
+ * fixed tick rate, so the thread count stays the same however many
+ * sessions there are.
+ *
+ * Run headless with: java GameHost [sessions] [threads]
+ * A coordinator radio is used if -Dmotionmaze.zigbee is set; otherwise the
+ * sessions are simulated, with random controller input.
+ */
+public class GameHost {
+    private static final double SIMULATED_INPUT_CHANCE = 0.05;
+
+    private ZigBeeCoordinator coordinator;
+    private long seed;
+    private Shard[] shards;
+    private ScheduledThreadPoolExecutor scheduler;
+    private long tickNanos;
+    private int sessionCount;
+    private boolean running;
+
+    /**
+     * Constructor for creating a new host.
+     *
+     * @param coordinator Coordinator the sessions' controllers are reached through
+     * @param threads Number of scheduler threads
+     * @param ticksPerSecond Fixed update rate of every session
+     * @param seed Seed that every session's seed is derived from
+     */
+    public GameHost(ZigBeeCoordinator coordinator, int threads, int ticksPerSecond, long seed) {
+        this.coordinator = coordinator;
+        this.seed = seed;
+        this.shards = new Shard[threads];
+        for (int i = 0; i < threads; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.sessionCount = 0;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "game-host-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Add a session for the controller at an address and start it.
+     *
+     * @param address Controller address on the coordinator
+     * @return Game engine of the new session
+     */
+    public synchronized GameEngine addSession(int address) {
+        GameEngine gameEngine = new GameEngine(Seeds.mix(seed + address));
+        ZigBeeManager zigBeeManager = gameEngine.getZigBeeManager();
+        zigBeeManager.setTransport(coordinator.bind(address));
+        zigBeeManager.setSimulationMode(false);
+        gameEngine.start();
+
+        // Spread sessions evenly over the shards
+        shards[sessionCount % shards.length].add(gameEngine);
+        sessionCount++;
+        return gameEngine;
+    }
+
+    /**
+     * Start ticking every session.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        for (Shard shard : shards) {
+            scheduler.scheduleAtFixedRate(shard, 0, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stop ticking and stop every session.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.stopSessions();
+        }
+    }
+
+    /**
+     * Give simulated sessions random controller input.
+     *
+     * @param simulated true to feed random input, false to wait for real controllers
+     */
+    public void setSimulatedInput(boolean simulated) {
+        for (Shard shard : shards) {
+            shard.simulated = simulated;
+        }
+    }
+
+    /**
+     * Get the number of sessions.
+     *
+     * @return Number of sessions
+     */
+    public synchronized int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Get the number of scheduler threads, one per shard.
+     *
+     * @return Number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Get the time taken to tick all the sessions of a shard once.
+     *
+     * @param shard Shard index
+     * @return Shard tick time histogram
+     */
+    public LatencyHistogram getShardTickTimes(int shard) {
+        return shards[shard].tickTimes;
+    }
+
+    /**
+     * Get the number of shard ticks that took longer than the tick period.
+     *
+     * @return Number of overruns across all shards
+     */
+    public long getOverruns() {
+        long overruns = 0;
+        for (Shard shard : shards) {
+            overruns += shard.overruns;
+        }
+        return overruns;
+    }
+
+    /**
+     * Get the number of session updates done.
+     *
+     * @return Number of session updates across all shards
+     */
+    public long getSessionUpdates() {
+        long updates = 0;
+        for (Shard shard : shards) {
+            updates += shard.updates;
+        }
+        return updates;
+    }
+
+    /**
+     * Sessions ticked together by one scheduler thread.
+     */
+    private class Shard implements Runnable {
+        private volatile GameEngine[] sessions;
+        private volatile boolean simulated;
+        private SplittableRandom random;
+        private LatencyHistogram tickTimes;
+        private volatile long overruns;
+        private volatile long updates;
+
+        /**
+         * Constructor for creating a new shard.
+         *
+         * @param index Shard index, used to vary the simulated input
+         */
+        Shard(int index) {
+            this.sessions = new GameEngine[0];
+            this.random = new SplittableRandom(Seeds.mix(~seed - index));
+            this.tickTimes = new LatencyHistogram();
+        }
+
+        /**
+         * Add a started session.
+         * Sessions are added rarely, so the array is copied rather than locked on every tick.
+         *
+         * @param gameEngine Session to add
+         */
+        synchronized void add(GameEngine gameEngine) {
+            GameEngine[] grown = Arrays.copyOf(sessions, sessions.length + 1);
+            grown[sessions.length] = gameEngine;
+            sessions = grown;
+        }
+
+        /**
+         * Stop every session in the shard.
+         */
+        synchronized void stopSessions() {
+            for (GameEngine gameEngine : sessions) {
+                gameEngine.stop();
+            }
+        }
+
+        /**
+         * Tick every session once.
+         */
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            GameEngine[] current = sessions;
+            boolean simulate = simulated;
+
+            for (GameEngine gameEngine : current) {
+                if (simulate && random.nextDouble() < SIMULATED_INPUT_CHANCE) {
+                    gameEngine.submit(GameCommand.fromInput(random.nextInt(6) + 1));
+                }
+
+                try {
+                    gameEngine.update();
+                } catch (RuntimeException e) {
+                    // One broken session must not stop the rest of the shard
+                    System.err.println("Session update failed: " + e);
+                }
+            }
+
+            long elapsed = System.nanoTime() - start;
+            tickTimes.record(elapsed);
+            if (elapsed > tickNanos) {
+                overruns++;
+            }
+            updates += current.length;
+        }
+    }
+
+    /**
+     * Main method: run a headless host and print its load every few seconds.
+     *
+     * @param args Number of sessions (default 1000) and scheduler threads (default: one per core)
+     * @throws InterruptedException If interrupted while running
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String spec = System.getProperty("motionmaze.zigbee");
+
+        ZigBeeCoordinator coordinator = new ZigBeeCoordinator(spec == null || spec.isEmpty()
+                ? null : ZigBeeTransport.fromSpec(spec, ZigBeeManager.BAUD_RATE));
+        Long seed = Long.getLong("motionmaze.seed");
+        GameHost host = new GameHost(coordinator, threads, 60, seed != null ? seed : Seeds.mix(System.nanoTime()));
+        for (int address = 0; address < sessions; address++) {
+            host.addSession(address);
+        }
+        host.setSimulatedInput(spec == null || spec.isEmpty());
+        host.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(host::stop));
+
+        System.out.println("Hosting " + sessions + " sessions on " + threads + " threads");
+        while (true) {
+            Thread.sleep(5000);
+            System.out.println("Session updates: " + host.getSessionUpdates() + " (overruns " + host.getOverruns()
+                    + "), frames sent " + coordinator.getFramesSent() + ", routed " + coordinator.getFramesRouted());
+            for (int shard = 0; shard < host.getShardCount(); shard++) {
+                System.out.println("  shard " + shard + ": " + host.getShardTickTimes(shard).summary());
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+//package com.motionmaze.game;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game loop.
+ * Game logic runs at a fixed tick rate whatever the frame rate; rendering
+ * runs at its own rate and is told how far the clock has moved towards the
+ * next tick so it can interpolate. After a stall the loop runs at most a few
+ * ticks to catch up and drops the rest, so one slow frame cannot make every
+ * later frame slower.
+ */
+public class GameLoop implements Runnable {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * Callback that draws a frame.
+     */
+    public interface Renderer {
+        /**
+         * Draw a frame.
+         *
+         * @param interpolation Fraction of a tick (0 to 1) elapsed since the last tick
+         */
+        void render(double interpolation);
+    }
+
+    private Runnable tick;
+    private Renderer renderer;
+    private long tickNanos;
+    private long frameNanos;
+    private int maxCatchUpTicks;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    private LatencyHistogram tickTimes;
+    private volatile long ticks;
+    private volatile long missedTicks;
+    private volatile long frames;
+    private volatile double fps;
+
+    /**
+     * Constructor for creating a new game loop.
+     *
+     * @param tick Fixed-step logic update
+     * @param renderer Frame renderer, or null to only run logic
+     * @param ticksPerSecond Logic rate
+     * @param framesPerSecond Render rate
+     * @param maxCatchUpTicks Most ticks to run back to back after a stall
+     */
+    public GameLoop(Runnable tick, Renderer renderer, int ticksPerSecond, int framesPerSecond, int maxCatchUpTicks) {
+        this.tick = tick;
+        this.renderer = renderer;
+        this.tickNanos = NANOS_PER_SECOND / ticksPerSecond;
+        this.frameNanos = NANOS_PER_SECOND / framesPerSecond;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+        this.tickTimes = new LatencyHistogram();
+    }
+
+    /**
+     * Start the loop on its own thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.start();
+    }
+
+    /**
+     * Stop the loop and wait for the current tick or frame to finish.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long lag = 0;
+        long nextFrame = previous;
+        long fpsWindowStart = previous;
+        long fpsWindowFrames = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            lag += now - previous;
+            previous = now;
+
+            // Run the ticks that are due, up to the catch-up limit
+            int steps = 0;
+            while (lag >= tickNanos && steps < maxCatchUpTicks) {
+                long start = System.nanoTime();
+                tick.run();
+                tickTimes.record(System.nanoTime() - start);
+                ticks++;
+                lag -= tickNanos;
+                steps++;
+            }
+
+            // Drop whatever is still owed rather than spiral
+            if (lag >= tickNanos) {
+                missedTicks += lag / tickNanos;
+                lag %= tickNanos;
+            }
+
+            // Render when a frame is due
+            now = System.nanoTime();
+            if (renderer != null && now >= nextFrame) {
+                renderer.render((double) lag / tickNanos);
+                frames++;
+                fpsWindowFrames++;
+                nextFrame += frameNanos;
+                if (nextFrame < now) {
+                    nextFrame = now + frameNanos;
+                }
+            }
+
+            if (now - fpsWindowStart >= NANOS_PER_SECOND) {
+                fps = fpsWindowFrames * (double) NANOS_PER_SECOND / (now - fpsWindowStart);
+                fpsWindowStart = now;
+                fpsWindowFrames = 0;
+            }
+
+            // Sleep until the next tick or frame is due
+            long nextTick = previous + (tickNanos - lag);
+            long wake = renderer != null ? Math.min(nextTick, nextFrame) : nextTick;
+            long wait = wake - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    /**
+     * Check if the loop is running.
+     *
+     * @return true if the loop is running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get the histogram of tick durations.
+     *
+     * @return Tick duration histogram
+     */
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    /**
+     * Get the number of ticks run.
+     *
+     * @return Number of ticks run
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get the number of ticks dropped because the loop fell too far behind.
+     *
+     * @return Number of dropped ticks
+     */
+    public long getMissedTicks() {
+        return missedTicks;
+    }
+
+    /**
+     * Get the number of frames rendered.
+     *
+     * @return Number of frames rendered
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get the frame rate achieved over the last second.
+     *
+     * @return Frames per second
+     */
+    public double getFps() {
+        return fps;
+    }
+}
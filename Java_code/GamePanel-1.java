@@ -7,10 +7,15 @@ import java.awt.*;
  * Implements the Observer pattern.
  */
 public class GamePanel extends JPanel implements GameObserver {
-    private static final int CELL_SIZE = 40;
-    private static final int WALL_THICKNESS = 3;
+    private static final int CELL_SIZE = GameRenderer.CELL_SIZE;
+    private static final int CELL_MARGIN = CELL_SIZE / 4;
+    private static final int INFO_WIDTH = 200;
+    private static final int INFO_HEIGHT = 60;
 
     private GameEngine gameEngine;
+    private GameRenderer renderer;
+    private int lastScrollX;
+    private int lastScrollY;
 
     /**
      * Constructor for creating a new game panel.
@@ -24,6 +29,7 @@ public class GamePanel extends JPanel implements GameObserver {
         // Set up the panel
         setPreferredSize(new Dimension(CELL_SIZE * 15, CELL_SIZE * 15));
         setBackground(Color.WHITE);
+        this.renderer = new GameRenderer(getBackground());
     }
 
     @Override
@@ -34,241 +40,98 @@ public class GamePanel extends JPanel implements GameObserver {
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // Get game objects
-        Maze maze = gameEngine.getMaze();
-        Player player = gameEngine.getPlayer();
-
-        // Render the maze
-        if (maze != null) {
-            renderMaze(g2d, maze);
-        }
-
-        // Render power-ups
-        if (maze != null) {
-            renderPowerUps(g2d, maze);
+        // Draw the last finished tick; the game loop may be in the middle of the next one
+        GameSnapshot snapshot = gameEngine.acquireSnapshot();
+        if (snapshot == null) {
+            return;
         }
 
-        // Render obstacles
-        if (maze != null) {
-            renderObstacles(g2d, maze);
-        }
-
-        // Render the player
-        if (player != null) {
-            renderPlayer(g2d, player);
+        try {
+            render(g2d, snapshot);
+        } finally {
+            snapshot.release();
         }
-
-        // Render game state information
-        renderGameInfo(g2d);
     }
 
     /**
-     * Render the maze.
+     * Render a snapshot.
      *
      * @param g2d Graphics2D context
-     * @param maze Maze to render
+     * @param snapshot Game state to render
      */
-    private void renderMaze(Graphics2D g2d, Maze maze) {
-        Cell[][] cells = maze.getCells();
-
-        // Set color for walls
-        g2d.setColor(Color.BLACK);
-        g2d.setStroke(new BasicStroke(WALL_THICKNESS));
-
-        // Draw cells
-        for (int x = 0; x < maze.getWidth(); x++) {
-            for (int y = 0; y < maze.getHeight(); y++) {
-                Cell cell = cells[x][y];
-                int cellX = x * CELL_SIZE;
-                int cellY = y * CELL_SIZE;
-
-                // Draw walls
-                if (cell.hasTopWall()) {
-                    g2d.drawLine(cellX, cellY, cellX + CELL_SIZE, cellY);
-                }
-
-                if (cell.hasRightWall()) {
-                    g2d.drawLine(cellX + CELL_SIZE, cellY, cellX + CELL_SIZE, cellY + CELL_SIZE);
-                }
-
-                if (cell.hasBottomWall()) {
-                    g2d.drawLine(cellX, cellY + CELL_SIZE, cellX + CELL_SIZE, cellY + CELL_SIZE);
-                }
-
-                if (cell.hasLeftWall()) {
-                    g2d.drawLine(cellX, cellY, cellX, cellY + CELL_SIZE);
-                }
-            }
+    private void render(Graphics2D g2d, GameSnapshot snapshot) {
+        // Scroll streamed and chunked mazes so the resident area starts at the top left
+        int scrollX = snapshot.getFirstColumn() * CELL_SIZE;
+        int scrollY = snapshot.getFirstRow() * CELL_SIZE;
+        g2d.translate(-scrollX, -scrollY);
+
+        // Only the cells inside the clip need drawing, plus a ring for shapes that overhang
+        Rectangle area = g2d.getClipBounds();
+        if (area == null) {
+            area = new Rectangle(scrollX, scrollY, getWidth(), getHeight());
         }
+        int minX = Math.floorDiv(area.x, CELL_SIZE) - 1;
+        int minY = Math.floorDiv(area.y, CELL_SIZE) - 1;
+        int maxX = Math.floorDiv(area.x + area.width, CELL_SIZE) + 1;
+        int maxY = Math.floorDiv(area.y + area.height, CELL_SIZE) + 1;
 
-        // Draw start and finish
-        g2d.setColor(Color.GREEN);
-        g2d.fillRect(maze.getStartX() * CELL_SIZE + CELL_SIZE / 4, maze.getStartY() * CELL_SIZE + CELL_SIZE / 4, CELL_SIZE / 2, CELL_SIZE / 2);
-
-        g2d.setColor(Color.RED);
-        g2d.fillRect(maze.getFinishX() * CELL_SIZE + CELL_SIZE / 4, maze.getFinishY() * CELL_SIZE + CELL_SIZE / 4, CELL_SIZE / 2, CELL_SIZE / 2);
-    }
-
-    /**
-     * Render power-ups.
-     *
-     * @param g2d Graphics2D context
-     * @param maze Maze containing power-ups
-     */
-    private void renderPowerUps(Graphics2D g2d, Maze maze) {
-        for (PowerUp powerUp : maze.getPowerUps()) {
-            int x = powerUp.getX() * CELL_SIZE + CELL_SIZE / 4;
-            int y = powerUp.getY() * CELL_SIZE + CELL_SIZE / 4;
-
-            // Choose color based on power-up type
-            switch (powerUp.getType()) {
-                case HEALTH:
-                    g2d.setColor(Color.RED);
-                    break;
-
-                case SPEED:
-                    g2d.setColor(Color.YELLOW);
-                    break;
-
-                case KEY:
-                    g2d.setColor(Color.ORANGE);
-                    break;
-
-                case SCORE_BOOST:
-                    g2d.setColor(Color.CYAN);
-                    break;
+        // Render the maze
+        renderer.renderMaze(g2d, snapshot, area);
 
-                case INVINCIBILITY:
-                    g2d.setColor(Color.MAGENTA);
-                    break;
+        // Render power-ups
+        for (int i = 0; i < snapshot.getPowerUpCount(); i++) {
+            int x = snapshot.getPowerUpX(i);
+            int y = snapshot.getPowerUpY(i);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                renderer.renderPowerUp(g2d, x, y, snapshot.getPowerUpType(i));
             }
-
-            // Draw power-up as a star
-            drawStar(g2d, x + CELL_SIZE / 4, y + CELL_SIZE / 4, CELL_SIZE / 4);
         }
-    }
 
-    /**
-     * Render obstacles.
-     *
-     * @param g2d Graphics2D context
-     * @param maze Maze containing obstacles
-     */
-    private void renderObstacles(Graphics2D g2d, Maze maze) {
-        for (Obstacle obstacle : maze.getObstacles()) {
-            int x = obstacle.getX() * CELL_SIZE + CELL_SIZE / 4;
-            int y = obstacle.getY() * CELL_SIZE + CELL_SIZE / 4;
-
-            // Choose color based on obstacle type
-            switch (obstacle.getType()) {
-                case TRAP:
-                    g2d.setColor(Color.RED);
-                    break;
-
-                case ENEMY:
-                    g2d.setColor(Color.DARK_GRAY);
-                    break;
-
-                case PIT:
-                    g2d.setColor(Color.BLACK);
-                    break;
-
-                case FIRE:
-                    g2d.setColor(Color.ORANGE);
-                    break;
-
-                case ICE:
-                    g2d.setColor(Color.CYAN);
-                    break;
+        // Render obstacles
+        for (int i = 0; i < snapshot.getObstacleCount(); i++) {
+            int x = snapshot.getObstacleX(i);
+            int y = snapshot.getObstacleY(i);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                renderer.renderObstacle(g2d, x, y, snapshot.getObstacleType(i));
             }
-
-            // Draw obstacle as a triangle
-            int[] xPoints = {x, x + CELL_SIZE / 2, x + CELL_SIZE / 2 * 2};
-            int[] yPoints = {y + CELL_SIZE / 2, y, y + CELL_SIZE / 2};
-            g2d.fillPolygon(xPoints, yPoints, 3);
         }
-    }
 
-    /**
-     * Render the player.
-     *
-     * @param g2d Graphics2D context
-     * @param player Player to render
-     */
-    private void renderPlayer(Graphics2D g2d, Player player) {
-        int x = player.getX() * CELL_SIZE;
-        int y = player.getY() * CELL_SIZE;
-
-        // Draw player as a circle
-        g2d.setColor(Color.BLUE);
-        g2d.fillOval(x + CELL_SIZE / 4, y + CELL_SIZE / 4, CELL_SIZE / 2, CELL_SIZE / 2);
-
-        // Draw player health bar
-        g2d.setColor(Color.RED);
-        g2d.fillRect(x + CELL_SIZE / 4, y - CELL_SIZE / 6, CELL_SIZE / 2, CELL_SIZE / 8);
+        // Render the player
+        renderer.renderPlayer(g2d, snapshot.getPlayerX(), snapshot.getPlayerY(), snapshot.getPlayerHealth());
 
-        g2d.setColor(Color.GREEN);
-        g2d.fillRect(x + CELL_SIZE / 4, y - CELL_SIZE / 6, player.getHealth() * CELL_SIZE / 200, CELL_SIZE / 8);
+        // Render game state information
+        g2d.translate(scrollX, scrollY);
+        renderer.renderGameInfo(g2d, snapshot.getLevel(), snapshot.getScore(), snapshot.getState(), getWidth(), getHeight());
     }
 
-    /**
-     * Render game information.
-     *
-     * @param g2d Graphics2D context
-     */
-    private void renderGameInfo(Graphics2D g2d) {
-        // Set font and color
-        g2d.setFont(new Font("Arial", Font.BOLD, 14));
-        g2d.setColor(Color.BLACK);
-
-        // Draw game information
-        g2d.drawString("Level: " + gameEngine.getLevel(), 10, getHeight() - 40);
-        g2d.drawString("Score: " + gameEngine.getScore(), 10, getHeight() - 20);
+    @Override
+    public void onGameUpdate(GameEngine gameEngine) {
+        // Follow wall changes in the current maze
+        Maze maze = gameEngine.getMaze();
+        renderer.bind(maze);
 
-        // Draw game state information
-        if (gameEngine.getState() instanceof GameOverState) {
-            g2d.setFont(new Font("Arial", Font.BOLD, 24));
-            g2d.setColor(Color.RED);
-            g2d.drawString("GAME OVER", getWidth() / 2 - 80, getHeight() / 2);
-            g2d.setFont(new Font("Arial", Font.PLAIN, 14));
-            g2d.drawString("Press SPACE to try again", getWidth() / 2 - 80, getHeight() / 2 + 30);
-        } else if (gameEngine.getState() instanceof CompletedState) {
-            g2d.setFont(new Font("Arial", Font.BOLD, 24));
-            g2d.setColor(Color.GREEN);
-            g2d.drawString("LEVEL COMPLETE!", getWidth() / 2 - 100, getHeight() / 2);
-            g2d.setFont(new Font("Arial", Font.PLAIN, 14));
-            g2d.drawString("Press SPACE to continue", getWidth() / 2 - 80, getHeight() / 2 + 30);
+        ChangeTracker changes = gameEngine.getChanges();
+        if (!changes.hasChanges() || maze == null) {
+            return;
         }
-    }
-
-    /**
-     * Draw a star shape.
-     *
-     * @param g2d Graphics2D context
-     * @param x X position
-     * @param y Y position
-     * @param radius Radius of the star
-     */
-    private void drawStar(Graphics2D g2d, int x, int y, int radius) {
-        int nPoints = 5;
-        int[] xPoints = new int[nPoints * 2];
-        int[] yPoints = new int[nPoints * 2];
-
-        double angleStep = Math.PI / nPoints;
 
-        for (int i = 0; i < nPoints * 2; i++) {
-            double r = (i % 2 == 0) ? radius : radius / 2;
-            double angle = i * angleStep;
-            xPoints[i] = (int) (x + r * Math.sin(angle));
-            yPoints[i] = (int) (y - r * Math.cos(angle));
+        // A scrolled window moves every cell on screen
+        int scrollX = maze.getFirstColumn() * CELL_SIZE;
+        int scrollY = maze.getFirstRow() * CELL_SIZE;
+        if (changes.isAll() || scrollX != lastScrollX || scrollY != lastScrollY) {
+            lastScrollX = scrollX;
+            lastScrollY = scrollY;
+            repaint();
+            return;
         }
 
-        g2d.fillPolygon(xPoints, yPoints, nPoints * 2);
-    }
-
-    @Override
-    public void onGameUpdate(GameEngine gameEngine) {
-        // Repaint the panel when the game is updated
-        repaint();
+        // Repaint only around the cells that changed; the margin covers the health bar
+        for (int i = 0; i < changes.getCount(); i++) {
+            repaint(changes.getX(i) * CELL_SIZE - scrollX - CELL_MARGIN, changes.getY(i) * CELL_SIZE - scrollY - CELL_MARGIN,
+                    CELL_SIZE + 2 * CELL_MARGIN, CELL_SIZE + 2 * CELL_MARGIN);
+        }
+        if (changes.isInfoChanged()) {
+            repaint(0, getHeight() - INFO_HEIGHT, INFO_WIDTH, INFO_HEIGHT);
+        }
     }
 }
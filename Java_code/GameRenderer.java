@@ -0,0 +1,228 @@
+//package com.motionmaze.ui;
+
+import java.awt.*;
+
+/**
+ * Draws the parts of a game frame.
+ * Shared by {@link GamePanel}, which paints on the Swing event thread, and
+ * {@link GameCanvas}, which paints from its own render thread, so both look
+ * the same. Positions are in cells; the graphics context is expected to be
+ * translated so that cell (0,0) is at the origin. A renderer keeps a wall
+ * layer and so must only be used by one painting thread.
+ */
+public class GameRenderer {
+    /** Size of a cell in pixels. */
+    public static final int CELL_SIZE = 40;
+    /** Thickness of a wall in pixels. */
+    public static final int WALL_THICKNESS = 3;
+
+    private WallLayer wallLayer;
+
+    /**
+     * Constructor for creating a new renderer.
+     *
+     * @param background Color behind the maze
+     */
+    public GameRenderer(Color background) {
+        this.wallLayer = new WallLayer(CELL_SIZE, WALL_THICKNESS, background);
+    }
+
+    /**
+     * Follow wall changes in the maze being played.
+     * Call from the game loop thread, for example in {@link GameObserver#onGameUpdate}.
+     *
+     * @param maze Maze being played, or null
+     */
+    public void bind(Maze maze) {
+        wallLayer.bind(maze);
+    }
+
+    /**
+     * Render the maze walls, start and finish.
+     *
+     * @param g2d Graphics2D context
+     * @param snapshot Game state to render the maze of
+     * @param area Area to render, in maze pixel coordinates
+     */
+    public void renderMaze(Graphics2D g2d, GameSnapshot snapshot, Rectangle area) {
+        // Walls come from the cached layer; only the markers are drawn each time
+        Maze maze = snapshot.getMaze();
+        wallLayer.paint(g2d, snapshot, area);
+
+        // Draw start and finish
+        g2d.setColor(Color.GREEN);
+        g2d.fillRect(maze.getStartX() * CELL_SIZE + CELL_SIZE / 4, maze.getStartY() * CELL_SIZE + CELL_SIZE / 4, CELL_SIZE / 2, CELL_SIZE / 2);
+
+        // Endless and open-world mazes have no finish
+        if (maze.getFinishX() < 0) {
+            return;
+        }
+
+        g2d.setColor(Color.RED);
+        g2d.fillRect(maze.getFinishX() * CELL_SIZE + CELL_SIZE / 4, maze.getFinishY() * CELL_SIZE + CELL_SIZE / 4, CELL_SIZE / 2, CELL_SIZE / 2);
+    }
+
+    /**
+     * Render a single power-up.
+     *
+     * @param g2d Graphics2D context
+     * @param cellX X position of the power-up
+     * @param cellY Y position of the power-up
+     * @param type Type of power-up
+     */
+    public void renderPowerUp(Graphics2D g2d, int cellX, int cellY, PowerUpType type) {
+        int x = cellX * CELL_SIZE + CELL_SIZE / 4;
+        int y = cellY * CELL_SIZE + CELL_SIZE / 4;
+
+        // Choose color based on power-up type
+        switch (type) {
+            case HEALTH:
+                g2d.setColor(Color.RED);
+                break;
+
+            case SPEED:
+                g2d.setColor(Color.YELLOW);
+                break;
+
+            case KEY:
+                g2d.setColor(Color.ORANGE);
+                break;
+
+            case SCORE_BOOST:
+                g2d.setColor(Color.CYAN);
+                break;
+
+            case INVINCIBILITY:
+                g2d.setColor(Color.MAGENTA);
+                break;
+        }
+
+        // Draw power-up as a star
+        drawStar(g2d, x + CELL_SIZE / 4, y + CELL_SIZE / 4, CELL_SIZE / 4);
+    }
+
+    /**
+     * Render a single obstacle.
+     *
+     * @param g2d Graphics2D context
+     * @param cellX X position of the obstacle
+     * @param cellY Y position of the obstacle
+     * @param type Type of obstacle
+     */
+    public void renderObstacle(Graphics2D g2d, int cellX, int cellY, ObstacleType type) {
+        int x = cellX * CELL_SIZE + CELL_SIZE / 4;
+        int y = cellY * CELL_SIZE + CELL_SIZE / 4;
+
+        // Choose color based on obstacle type
+        switch (type) {
+            case TRAP:
+                g2d.setColor(Color.RED);
+                break;
+
+            case ENEMY:
+                g2d.setColor(Color.DARK_GRAY);
+                break;
+
+            case PIT:
+                g2d.setColor(Color.BLACK);
+                break;
+
+            case FIRE:
+                g2d.setColor(Color.ORANGE);
+                break;
+
+            case ICE:
+                g2d.setColor(Color.CYAN);
+                break;
+        }
+
+        // Draw obstacle as a triangle
+        int[] xPoints = {x, x + CELL_SIZE / 2, x + CELL_SIZE / 2 * 2};
+        int[] yPoints = {y + CELL_SIZE / 2, y, y + CELL_SIZE / 2};
+        g2d.fillPolygon(xPoints, yPoints, 3);
+    }
+
+    /**
+     * Render the player.
+     *
+     * @param g2d Graphics2D context
+     * @param playerX X position of the player
+     * @param playerY Y position of the player
+     * @param health Health of the player
+     */
+    public void renderPlayer(Graphics2D g2d, int playerX, int playerY, int health) {
+        int x = playerX * CELL_SIZE;
+        int y = playerY * CELL_SIZE;
+
+        // Draw player as a circle
+        g2d.setColor(Color.BLUE);
+        g2d.fillOval(x + CELL_SIZE / 4, y + CELL_SIZE / 4, CELL_SIZE / 2, CELL_SIZE / 2);
+
+        // Draw player health bar
+        g2d.setColor(Color.RED);
+        g2d.fillRect(x + CELL_SIZE / 4, y - CELL_SIZE / 6, CELL_SIZE / 2, CELL_SIZE / 8);
+
+        g2d.setColor(Color.GREEN);
+        g2d.fillRect(x + CELL_SIZE / 4, y - CELL_SIZE / 6, health * CELL_SIZE / 200, CELL_SIZE / 8);
+    }
+
+    /**
+     * Render game information in view coordinates.
+     *
+     * @param g2d Graphics2D context
+     * @param level Current level
+     * @param score Current score
+     * @param state Current game state
+     * @param width Width of the view
+     * @param height Height of the view
+     */
+    public void renderGameInfo(Graphics2D g2d, int level, int score, GameState state, int width, int height) {
+        // Set font and color
+        g2d.setFont(new Font("Arial", Font.BOLD, 14));
+        g2d.setColor(Color.BLACK);
+
+        // Draw game information
+        g2d.drawString("Level: " + level, 10, height - 40);
+        g2d.drawString("Score: " + score, 10, height - 20);
+
+        // Draw game state information
+        if (state instanceof GameOverState) {
+            g2d.setFont(new Font("Arial", Font.BOLD, 24));
+            g2d.setColor(Color.RED);
+            g2d.drawString("GAME OVER", width / 2 - 80, height / 2);
+            g2d.setFont(new Font("Arial", Font.PLAIN, 14));
+            g2d.drawString("Press SPACE to try again", width / 2 - 80, height / 2 + 30);
+        } else if (state instanceof CompletedState) {
+            g2d.setFont(new Font("Arial", Font.BOLD, 24));
+            g2d.setColor(Color.GREEN);
+            g2d.drawString("LEVEL COMPLETE!", width / 2 - 100, height / 2);
+            g2d.setFont(new Font("Arial", Font.PLAIN, 14));
+            g2d.drawString("Press SPACE to continue", width / 2 - 80, height / 2 + 30);
+        }
+    }
+
+    /**
+     * Draw a star shape.
+     *
+     * @param g2d Graphics2D context
+     * @param x X position
+     * @param y Y position
+     * @param radius Radius of the star
+     */
+    private void drawStar(Graphics2D g2d, int x, int y, int radius) {
+        int nPoints = 5;
+        int[] xPoints = new int[nPoints * 2];
+        int[] yPoints = new int[nPoints * 2];
+
+        double angleStep = Math.PI / nPoints;
+
+        for (int i = 0; i < nPoints * 2; i++) {
+            double r = (i % 2 == 0) ? radius : radius / 2;
+            double angle = i * angleStep;
+            xPoints[i] = (int) (x + r * Math.sin(angle));
+            yPoints[i] = (int) (y - r * Math.cos(angle));
+        }
+
+        g2d.fillPolygon(xPoints, yPoints, nPoints * 2);
+    }
+}
@@ -0,0 +1,427 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Copy of the game state as of the end of one tick, for readers on other threads.
+ * Everything is held in primitive fields and arrays that are refilled in
+ * place, so taking a snapshot does not allocate once the arrays have grown
+ * to fit the maze. Snapshots are handed out by a {@link SnapshotBuffer}:
+ * while a reader holds one it is never refilled, so it reads as immutable
+ * and needs no locks. Entities are copied for the resident part of the
+ * maze only. The maze itself is shared for its walls, which readers must
+ * only read with {@link WallStore#peekBits}: the game loop's own reads may
+ * load or evict parts of the store. A wall layer follows changes through
+ * the maze's wall change listener.
+ *
+ * Readers get a snapshot from {@link GameEngine#acquireSnapshot()} and must
+ * {@link #release()} it when done.
+ */
+public class GameSnapshot {
+    private static final int INITIAL_ENTITIES = 16;
+
+    private AtomicInteger pins;
+    private Consumer<PowerUp> powerUpCollector;
+    private Consumer<Obstacle> obstacleCollector;
+
+    private long tick;
+    private GameState state;
+    private int level;
+    private int score;
+    private Maze maze;
+    private int mazeWidth;
+    private int mazeHeight;
+    private int firstColumn;
+    private int firstRow;
+    private int lastColumn;
+    private int lastRow;
+    private int playerX;
+    private int playerY;
+    private int playerHealth;
+    private int playerScore;
+    private boolean trapped;
+    private boolean shielded;
+    private boolean speedBoost;
+    private boolean slowed;
+    private boolean hasKey;
+
+    private int powerUpCount;
+    private int[] powerUpX;
+    private int[] powerUpY;
+    private PowerUpType[] powerUpType;
+    private int obstacleCount;
+    private int[] obstacleX;
+    private int[] obstacleY;
+    private ObstacleType[] obstacleType;
+
+    /**
+     * Constructor for creating a new, empty snapshot.
+     */
+    public GameSnapshot() {
+        this.pins = new AtomicInteger();
+        this.powerUpCollector = this::addPowerUp;
+        this.obstacleCollector = this::addObstacle;
+        this.powerUpX = new int[INITIAL_ENTITIES];
+        this.powerUpY = new int[INITIAL_ENTITIES];
+        this.powerUpType = new PowerUpType[INITIAL_ENTITIES];
+        this.obstacleX = new int[INITIAL_ENTITIES];
+        this.obstacleY = new int[INITIAL_ENTITIES];
+        this.obstacleType = new ObstacleType[INITIAL_ENTITIES];
+    }
+
+    /**
+     * Fill the snapshot from a game engine.
+     * Call on the game loop thread, between ticks, and only while no reader holds the snapshot.
+     *
+     * @param gameEngine Game engine to capture
+     */
+    void capture(GameEngine gameEngine) {
+        Maze maze = gameEngine.getMaze();
+        Player player = gameEngine.getPlayer();
+
+        this.tick = gameEngine.getTick();
+        this.state = gameEngine.getState();
+        this.level = gameEngine.getLevel();
+        this.score = gameEngine.getScore();
+        this.maze = maze;
+        this.mazeWidth = maze.getWidth();
+        this.mazeHeight = maze.getHeight();
+        this.firstColumn = maze.getFirstColumn();
+        this.firstRow = maze.getFirstRow();
+        this.lastColumn = maze.getLastColumn();
+        this.lastRow = maze.getLastRow();
+        this.playerX = player.getX();
+        this.playerY = player.getY();
+        this.playerHealth = player.getHealth();
+        this.playerScore = player.getScore();
+        this.trapped = player.isTrapped();
+        this.shielded = player.isShielded();
+        this.speedBoost = player.hasSpeedBoost();
+        this.slowed = player.isSlowed();
+        this.hasKey = player.hasKey();
+
+        powerUpCount = 0;
+        maze.forEachPowerUpIn(firstColumn, firstRow, lastColumn, lastRow, powerUpCollector);
+        obstacleCount = 0;
+        maze.forEachObstacleIn(firstColumn, firstRow, lastColumn, lastRow, obstacleCollector);
+    }
+
+    /**
+     * Copy a power-up into the snapshot, growing the arrays if they are full.
+     *
+     * @param powerUp Power-up to copy
+     */
+    private void addPowerUp(PowerUp powerUp) {
+        if (powerUpCount == powerUpX.length) {
+            int capacity = powerUpCount * 2;
+            powerUpX = Arrays.copyOf(powerUpX, capacity);
+            powerUpY = Arrays.copyOf(powerUpY, capacity);
+            powerUpType = Arrays.copyOf(powerUpType, capacity);
+        }
+        powerUpX[powerUpCount] = powerUp.getX();
+        powerUpY[powerUpCount] = powerUp.getY();
+        powerUpType[powerUpCount] = powerUp.getType();
+        powerUpCount++;
+    }
+
+    /**
+     * Copy an obstacle into the snapshot, growing the arrays if they are full.
+     *
+     * @param obstacle Obstacle to copy
+     */
+    private void addObstacle(Obstacle obstacle) {
+        if (obstacleCount == obstacleX.length) {
+            int capacity = obstacleCount * 2;
+            obstacleX = Arrays.copyOf(obstacleX, capacity);
+            obstacleY = Arrays.copyOf(obstacleY, capacity);
+            obstacleType = Arrays.copyOf(obstacleType, capacity);
+        }
+        obstacleX[obstacleCount] = obstacle.getX();
+        obstacleY[obstacleCount] = obstacle.getY();
+        obstacleType[obstacleCount] = obstacle.getType();
+        obstacleCount++;
+    }
+
+    /**
+     * Hold the snapshot so it is not refilled.
+     */
+    void pin() {
+        pins.incrementAndGet();
+    }
+
+    /**
+     * Check if any reader holds the snapshot.
+     *
+     * @return true if the snapshot is held, false otherwise
+     */
+    boolean isPinned() {
+        return pins.get() != 0;
+    }
+
+    /**
+     * Give the snapshot back once done reading it.
+     */
+    public void release() {
+        pins.decrementAndGet();
+    }
+
+    /**
+     * Get the tick the snapshot was taken after.
+     *
+     * @return Tick number
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the game state.
+     *
+     * @return Game state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Get the level.
+     *
+     * @return Level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the game score.
+     *
+     * @return Score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the maze.
+     *
+     * @return Maze
+     */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /**
+     * Get the width of the maze.
+     *
+     * @return Width
+     */
+    public int getMazeWidth() {
+        return mazeWidth;
+    }
+
+    /**
+     * Get the height of the maze.
+     *
+     * @return Height
+     */
+    public int getMazeHeight() {
+        return mazeHeight;
+    }
+
+    /**
+     * Get the first resident column.
+     *
+     * @return First column
+     */
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    /**
+     * Get the first resident row.
+     *
+     * @return First row
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Get the last resident column.
+     *
+     * @return Last column
+     */
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    /**
+     * Get the last resident row.
+     *
+     * @return Last row
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * Get the player's X position.
+     *
+     * @return X position
+     */
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    /**
+     * Get the player's Y position.
+     *
+     * @return Y position
+     */
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    /**
+     * Get the player's health.
+     *
+     * @return Health
+     */
+    public int getPlayerHealth() {
+        return playerHealth;
+    }
+
+    /**
+     * Get the player's score.
+     *
+     * @return Player score
+     */
+    public int getPlayerScore() {
+        return playerScore;
+    }
+
+    /**
+     * Check if the player is trapped.
+     *
+     * @return true if the player is trapped, false otherwise
+     */
+    public boolean isTrapped() {
+        return trapped;
+    }
+
+    /**
+     * Check if the player is shielded.
+     *
+     * @return true if the player is shielded, false otherwise
+     */
+    public boolean isShielded() {
+        return shielded;
+    }
+
+    /**
+     * Check if the player has a speed boost.
+     *
+     * @return true if the player has a speed boost, false otherwise
+     */
+    public boolean hasSpeedBoost() {
+        return speedBoost;
+    }
+
+    /**
+     * Check if the player is slowed.
+     *
+     * @return true if the player is slowed, false otherwise
+     */
+    public boolean isSlowed() {
+        return slowed;
+    }
+
+    /**
+     * Check if the player has a key.
+     *
+     * @return true if the player has a key, false otherwise
+     */
+    public boolean hasKey() {
+        return hasKey;
+    }
+
+    /**
+     * Get the number of resident power-ups.
+     *
+     * @return Number of power-ups
+     */
+    public int getPowerUpCount() {
+        return powerUpCount;
+    }
+
+    /**
+     * Get the X position of a resident power-up.
+     *
+     * @param i Index, from 0 to {@link #getPowerUpCount()} - 1
+     * @return X position
+     */
+    public int getPowerUpX(int i) {
+        return powerUpX[i];
+    }
+
+    /**
+     * Get the Y position of a resident power-up.
+     *
+     * @param i Index, from 0 to {@link #getPowerUpCount()} - 1
+     * @return Y position
+     */
+    public int getPowerUpY(int i) {
+        return powerUpY[i];
+    }
+
+    /**
+     * Get the type of a resident power-up.
+     *
+     * @param i Index, from 0 to {@link #getPowerUpCount()} - 1
+     * @return Type of power-up
+     */
+    public PowerUpType getPowerUpType(int i) {
+        return powerUpType[i];
+    }
+
+    /**
+     * Get the number of resident obstacles.
+     *
+     * @return Number of obstacles
+     */
+    public int getObstacleCount() {
+        return obstacleCount;
+    }
+
+    /**
+     * Get the X position of a resident obstacle.
+     *
+     * @param i Index, from 0 to {@link #getObstacleCount()} - 1
+     * @return X position
+     */
+    public int getObstacleX(int i) {
+        return obstacleX[i];
+    }
+
+    /**
+     * Get the Y position of a resident obstacle.
+     *
+     * @param i Index, from 0 to {@link #getObstacleCount()} - 1
+     * @return Y position
+     */
+    public int getObstacleY(int i) {
+        return obstacleY[i];
+    }
+
+    /**
+     * Get the type of a resident obstacle.
+     *
+     * @param i Index, from 0 to {@link #getObstacleCount()} - 1
+     * @return Type of obstacle
+     */
+    public ObstacleType getObstacleType(int i) {
+        return obstacleType[i];
+    }
+}
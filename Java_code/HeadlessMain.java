@@ -0,0 +1,204 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Headless entry point for Motion Maze.
+ * Drives the {@link GameEngine} without any user interface, so no Swing or
+ * AWT class is ever loaded. Meant for CI, load and soak tests.
+ *
+ * Run with: java HeadlessMain [realtime|uncapped|simulated] [game seconds]
+ * Set -Dmotionmaze.seed to repeat a run exactly in simulated mode, and
+ * -Dmotionmaze.record to log its inputs for {@link InputReplayer}; -Dmotionmaze.mazes
+ * names a directory of level-N.mmz files to play instead of generated mazes.
+ * -Dmotionmaze.events=sync|async|coalesce adds an event subscriber with that
+ * policy, to measure the cost of the event bus.
+ * In simulated mode (the default) an hour of play takes well under a
+ * second. Unless -Dmotionmaze.zigbee names a real link, the controller is
+ * simulated with random input and frames to the Arduino are discarded.
+ */
+public class HeadlessMain {
+    private static final int TICKS_PER_SECOND = 60;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+    private static final double SIMULATED_INPUT_CHANCE = 0.1;
+
+    private static SplittableRandom inputRandom;
+
+    /**
+     * Main method.
+     *
+     * @param args Mode (default simulated) and game seconds to run (default 3600)
+     * @throws InterruptedException If interrupted while running in real time
+     * @throws IOException If the input log could not be created
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        HeadlessMode mode = args.length > 0 ? HeadlessMode.valueOf(args[0].toUpperCase()) : HeadlessMode.SIMULATED;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 3600;
+        System.out.println("Starting Motion Maze headless (" + mode + ", " + seconds + " game seconds)...");
+
+        // Create the game engine, from a fixed seed if one is given
+        Long seed = Long.getLong("motionmaze.seed");
+        GameEngine gameEngine = seed != null ? new GameEngine(seed) : new GameEngine();
+        System.out.println("Game seed: " + gameEngine.getSeed());
+        boolean simulatedInput = configureZigBee(gameEngine.getZigBeeManager(), System.getProperty("motionmaze.zigbee"));
+        inputRandom = simulatedInput ? gameEngine.splitRandom() : null;
+
+        // Load designed mazes from a directory if one is given
+        String mazes = System.getProperty("motionmaze.mazes");
+        if (mazes != null) {
+            gameEngine.setMazeDirectory(Paths.get(mazes));
+        }
+
+        // Record the inputs if asked to
+        String recordPath = System.getProperty("motionmaze.record");
+        if (recordPath != null) {
+            gameEngine.setRecorder(new InputRecorder(Paths.get(recordPath), gameEngine.getSeed(),
+                    gameEngine.getMazeMode(), gameEngine.getTick()));
+        }
+
+        // Subscribe to game events if asked to
+        GameEventBus.Subscription events = null;
+        String eventPolicy = System.getProperty("motionmaze.events");
+        if (eventPolicy != null) {
+            events = gameEngine.subscribe("headless", event -> { }, DeliveryPolicy.valueOf(eventPolicy.toUpperCase()));
+        }
+
+        SimulatedClock clock = null;
+        if (mode == HeadlessMode.SIMULATED) {
+            clock = new SimulatedClock();
+            gameEngine.setClock(clock);
+        }
+
+        // Start the game engine
+        gameEngine.start();
+
+        long ticks = seconds * TICKS_PER_SECOND;
+        long start = System.nanoTime();
+        LatencyHistogram tickTimes;
+        if (mode == HeadlessMode.REALTIME) {
+            tickTimes = runRealtime(gameEngine, seconds);
+        } else {
+            tickTimes = runBackToBack(gameEngine, ticks, clock);
+        }
+        long wall = System.nanoTime() - start;
+
+        gameEngine.stop();
+        report(gameEngine, tickTimes, wall);
+        if (events != null) {
+            System.out.println("Events: " + events.summary());
+        }
+    }
+
+    /**
+     * Set up the ZigBee link.
+     *
+     * @param zigBeeManager ZigBee manager to configure
+     * @param spec Link to use (see {@link ZigBeeTransport#fromSpec}), or null for a simulated controller
+     * @return true if the controller is simulated, false if a real link is used
+     */
+    private static boolean configureZigBee(ZigBeeManager zigBeeManager, String spec) {
+        boolean simulated = spec == null || spec.isEmpty();
+        if (simulated) {
+            // A coordinator without a radio encodes and counts every frame, then drops it
+            zigBeeManager.setTransport(new ZigBeeCoordinator(null).bind(0));
+        } else {
+            zigBeeManager.setTransport(ZigBeeTransport.fromSpec(spec, ZigBeeManager.BAUD_RATE));
+        }
+        zigBeeManager.setSimulationMode(false);
+        return simulated;
+    }
+
+    /**
+     * Run the fixed-rate game loop on the wall clock.
+     *
+     * @param gameEngine Game engine to update
+     * @param seconds How long to run
+     * @return Tick time histogram
+     * @throws InterruptedException If interrupted while running
+     */
+    private static LatencyHistogram runRealtime(GameEngine gameEngine, long seconds) throws InterruptedException {
+        GameLoop gameLoop = new GameLoop(() -> tick(gameEngine), interpolation -> { }, TICKS_PER_SECOND, 1, MAX_CATCH_UP_TICKS);
+        gameLoop.start();
+        for (long elapsed = 0; elapsed < seconds; elapsed += 5) {
+            Thread.sleep(Math.min(5, seconds - elapsed) * 1000);
+            System.out.println("Ticks: " + gameLoop.getTicks() + " (missed " + gameLoop.getMissedTicks()
+                    + "), tick time " + gameLoop.getTickTimes().summary());
+        }
+        gameLoop.stop();
+        return gameLoop.getTickTimes();
+    }
+
+    /**
+     * Run ticks back to back, with no sleeping in between.
+     *
+     * @param gameEngine Game engine to update
+     * @param ticks Number of ticks to run
+     * @param clock Simulated clock to advance one tick period per tick, or null to use the wall clock
+     * @return Tick time histogram
+     */
+    private static LatencyHistogram runBackToBack(GameEngine gameEngine, long ticks, SimulatedClock clock) {
+        LatencyHistogram tickTimes = new LatencyHistogram();
+        long nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+
+        for (long i = 0; i < ticks; i++) {
+            if (clock != null) {
+                clock.advance(TICK_NANOS);
+            }
+
+            long tickStart = System.nanoTime();
+            tick(gameEngine);
+            long tickEnd = System.nanoTime();
+            tickTimes.record(tickEnd - tickStart);
+
+            if (tickEnd >= nextReport) {
+                nextReport = tickEnd + REPORT_INTERVAL_NANOS;
+                System.out.println("Ticks: " + (i + 1) + "/" + ticks + ", tick time " + tickTimes.summary());
+            }
+        }
+        return tickTimes;
+    }
+
+    /**
+     * Feed simulated controller input, if any, and update the engine once.
+     *
+     * @param gameEngine Game engine to update
+     */
+    private static void tick(GameEngine gameEngine) {
+        if (inputRandom != null && inputRandom.nextDouble() < SIMULATED_INPUT_CHANCE) {
+            gameEngine.submit(GameCommand.fromInput(inputRandom.nextInt(6) + 1));
+        }
+        gameEngine.update();
+    }
+
+    /**
+     * Print a summary of the run.
+     *
+     * @param gameEngine Game engine that was run
+     * @param tickTimes Tick time histogram
+     * @param wall Wall-clock time the run took, in nanoseconds
+     */
+    private static void report(GameEngine gameEngine, LatencyHistogram tickTimes, long wall) {
+        double gameSeconds = (double) gameEngine.getTick() / TICKS_PER_SECOND;
+        double wallSeconds = wall / 1e9;
+
+        System.out.println("\n--- MOTION MAZE HEADLESS RUN ---");
+        System.out.println(String.format("Game Time: %.0f s in %.3f s wall (%.0fx real time)",
+                gameSeconds, wallSeconds, gameSeconds / wallSeconds));
+        System.out.println("Ticks: " + gameEngine.getTick());
+        System.out.println("Tick Time: " + tickTimes.summary());
+        System.out.println("Game State: " + gameEngine.getState().getClass().getSimpleName());
+        System.out.println("Level: " + gameEngine.getLevel());
+        System.out.println("Player Score: " + gameEngine.getPlayer().getScore());
+        System.out.println("Player Health: " + gameEngine.getPlayer().getHealth());
+        System.out.println("Player Position: (" + gameEngine.getPlayer().getX() + "," + gameEngine.getPlayer().getY() + ")");
+        System.out.println("ZigBee Packets: " + gameEngine.getZigBeeManager().getPacketsSent()
+                + " (coalesced " + gameEngine.getZigBeeManager().getCommandsCoalesced()
+                + ", servo deferred " + gameEngine.getZigBeeManager().getServoDeferrals() + ")");
+        System.out.println("Dropped Inputs: " + gameEngine.getDroppedCommands());
+        System.out.println("--------------------------------");
+    }
+}
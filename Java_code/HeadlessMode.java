@@ -0,0 +1,13 @@
+//package com.motionmaze.game;
+
+/**
+ * How the headless runtime paces the game loop.
+ */
+public enum HeadlessMode {
+    /** Fixed tick rate on the wall clock, as with the UI. */
+    REALTIME,
+    /** Ticks back to back on the wall clock, as fast as the engine allows. */
+    UNCAPPED,
+    /** Ticks back to back on a simulated clock that advances one tick period per tick. */
+    SIMULATED
+}
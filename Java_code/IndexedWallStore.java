@@ -0,0 +1,24 @@
+//package com.motionmaze.game;
+
+/**
+ * Wall store that holds the whole maze and can address its cells by a flat
+ * index, row by row. Path finding works on the index directly.
+ */
+public interface IndexedWallStore extends WallStore {
+    /**
+     * Get the index of a cell.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Index of the cell
+     */
+    int index(int x, int y);
+
+    /**
+     * Get the raw bits of a cell by index.
+     *
+     * @param index Index of the cell, as returned by {@link #index(int, int)}
+     * @return Wall and flag bits of the cell
+     */
+    int getBits(int index);
+}
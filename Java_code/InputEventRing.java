@@ -0,0 +1,241 @@
+//package com.motionmaze.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer of controller input events between the ZigBee reader thread
+ * and the game loop.
+ * Events are stored as primitives (input code and arrival time) in parallel
+ * arrays, with one producer (the transport's reader thread) and one consumer
+ * (the game loop), so neither side locks or allocates. The consumer drains
+ * the ring once per tick and merges repeats of the same movement or motion
+ * event within that tick. When the ring is full, the configured
+ * {@link OverflowPolicy} decides what is lost.
+ */
+public class InputEventRing {
+    /**
+     * What to do with an event that arrives while the ring is full.
+     */
+    public enum OverflowPolicy {
+        /** Drop the new event. */
+        DROP_NEWEST,
+        /** Keep the newest movement in a side slot, replacing any older one; other events are dropped. */
+        LATEST_WINS
+    }
+
+    /**
+     * Receiver for drained events.
+     */
+    public interface Sink {
+        /**
+         * Called on the consumer thread for each event drained.
+         *
+         * @param code Input code (1-4 tilt, 5 button, 6 motion)
+         * @param receivedNanos System.nanoTime() when the event arrived
+         */
+        void onInput(int code, long receivedNanos);
+    }
+
+    private static final int MOTION = 6;
+
+    private int[] codes;
+    private long[] times;
+    private int mask;
+    private AtomicLong head;
+    private AtomicLong tail;
+    private AtomicLong latestMovement;
+    private volatile OverflowPolicy policy;
+
+    // Written by the producer only
+    private volatile long dropped;
+    private volatile long overwritten;
+
+    // Written by the consumer only
+    private volatile long coalesced;
+    private volatile int maxDepth;
+
+    /**
+     * Constructor for creating a new ring.
+     *
+     * @param capacity Number of events the ring can hold (rounded up to a power of two)
+     * @param policy What to do when the ring is full
+     */
+    public InputEventRing(int capacity, OverflowPolicy policy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.codes = new int[size];
+        this.times = new long[size];
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+        this.latestMovement = new AtomicLong();
+        this.policy = policy;
+    }
+
+    /**
+     * Add an event. Must only be called from the producer thread.
+     *
+     * @param code Input code (1-4 tilt, 5 button, 6 motion)
+     * @param receivedNanos System.nanoTime() when the event arrived
+     * @return true if the event was kept, false if it was dropped
+     */
+    public boolean offer(int code, long receivedNanos) {
+        long position = tail.get();
+        if (position - head.get() > mask) {
+            if (policy == OverflowPolicy.LATEST_WINS && isMovement(code)) {
+                // Tilt is state, so only the newest direction matters
+                if (latestMovement.getAndSet(packMovement(code, receivedNanos)) != 0) {
+                    overwritten++;
+                }
+                return true;
+            }
+            dropped++;
+            return false;
+        }
+
+        int slot = (int) position & mask;
+        codes[slot] = code;
+        times[slot] = receivedNanos;
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Pass every waiting event to a sink. Must only be called from the consumer thread.
+     * Repeats of the same movement or motion event are merged.
+     *
+     * @param sink Receiver for the events
+     * @return Number of events passed on
+     */
+    public int drain(Sink sink) {
+        long position = head.get();
+        long end = tail.get();
+        int depth = (int) (end - position);
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        int delivered = 0;
+        int previous = 0;
+        for (; position < end; position++) {
+            int slot = (int) position & mask;
+            int code = codes[slot];
+            long receivedNanos = times[slot];
+            head.lazySet(position + 1);
+
+            if (code == previous && (isMovement(code) || code == MOTION)) {
+                coalesced++;
+                continue;
+            }
+            sink.onInput(code, receivedNanos);
+            previous = code;
+            delivered++;
+        }
+
+        // A movement parked while the ring was full goes last, as it is the newest
+        long parked = latestMovement.getAndSet(0);
+        if (parked != 0) {
+            int code = (int) (parked & 7);
+            if (code == previous) {
+                coalesced++;
+            } else {
+                sink.onInput(code, parked & ~7L);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Set what to do when the ring is full.
+     *
+     * @param policy Overflow policy
+     */
+    public void setPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Get what happens when the ring is full.
+     *
+     * @return Overflow policy
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the number of events waiting.
+     *
+     * @return Queue depth
+     */
+    public int getDepth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Get the deepest the queue has been when drained.
+     *
+     * @return Largest queue depth seen
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Get the number of events dropped because the ring was full.
+     *
+     * @return Number of dropped events
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Get the number of parked movements replaced by a newer one.
+     *
+     * @return Number of overwritten movements
+     */
+    public long getOverwritten() {
+        return overwritten;
+    }
+
+    /**
+     * Get the number of repeated events merged into the one before.
+     *
+     * @return Number of coalesced events
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Get the number of slots in the ring.
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Check if an input code is a movement.
+     *
+     * @param code Input code
+     * @return true for codes 1-4, false otherwise
+     */
+    private static boolean isMovement(int code) {
+        return code >= 1 && code <= 4;
+    }
+
+    /**
+     * Pack a movement and its arrival time into one value, so both change together.
+     * The lowest three bits of the time give way to the code.
+     *
+     * @param code Movement code (1-4)
+     * @param receivedNanos Arrival time
+     * @return Packed value, never 0
+     */
+    private static long packMovement(int code, long receivedNanos) {
+        return (receivedNanos & ~7L) | code;
+    }
+}
@@ -0,0 +1,149 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary log of every input the game engine applies.
+ * <pre>
+ * header: "MMIR" [version] [seed: 8 bytes] [maze mode]
+ * event:  varint((ticks since previous event &lt;&lt; 4) | code)
+ * </pre>
+ * Codes 0-6 are {@link GameCommand} ordinals, {@link #END} closes the log at
+ * the last tick run, and {@link #MAZE_MODE} plus a mode ordinal records a
+ * change of maze mode. A typical input takes one or two bytes. Together with
+ * the seed this is enough for {@link InputReplayer} to run the same game
+ * again.
+ */
+public class InputRecorder {
+    /** Magic bytes at the start of every log. */
+    public static final int MAGIC = 0x4D4D4952;
+    /** Log format version. */
+    public static final int VERSION = 1;
+    /** Event code that marks the last tick of the recording. */
+    public static final int END = 7;
+    /** First event code for a maze mode change. */
+    public static final int MAZE_MODE = 8;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_VARINT = 10;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long lastTick;
+    private long events;
+    private boolean failed;
+
+    /**
+     * Constructor for creating a new log.
+     * Any existing file at the path is replaced.
+     *
+     * @param path File to record into
+     * @param seed Seed of the game being recorded
+     * @param mazeMode Maze mode at the start of the game
+     * @param tick Current tick of the game
+     * @throws IOException If the file could not be created
+     */
+    public InputRecorder(Path path, long seed, MazeMode mazeMode, long tick) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.lastTick = tick;
+        this.events = 0;
+
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putLong(seed);
+        buffer.put((byte) mazeMode.ordinal());
+    }
+
+    /**
+     * Record a command applied by the engine.
+     *
+     * @param tick Tick the command was applied on
+     * @param command Command applied
+     */
+    public void record(long tick, GameCommand command) {
+        append(tick, command.ordinal());
+    }
+
+    /**
+     * Record a change of maze mode.
+     *
+     * @param tick Tick the change was made on
+     * @param mazeMode New maze mode
+     */
+    public void recordMazeMode(long tick, MazeMode mazeMode) {
+        append(tick, MAZE_MODE + mazeMode.ordinal());
+    }
+
+    /**
+     * Mark the end of the recording and close the file.
+     *
+     * @param tick Last tick run
+     */
+    public void close(long tick) {
+        append(tick, END);
+        write();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Input recording close failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the number of events recorded.
+     *
+     * @return Number of events
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Append one event, writing the buffer out when it is nearly full.
+     *
+     * @param tick Tick of the event
+     * @param code Event code
+     */
+    private void append(long tick, int code) {
+        if (failed) {
+            return;
+        }
+        if (buffer.remaining() < MAX_VARINT) {
+            write();
+        }
+
+        // Low seven bits first, high bit set on every byte but the last
+        long value = ((tick - lastTick) << 4) | code;
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+
+        lastTick = tick;
+        events++;
+    }
+
+    /**
+     * Write the buffered bytes to the file.
+     * A failing disk stops the recording rather than the game.
+     */
+    private void write() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.err.println("Input recording failed: " + e.getMessage());
+            failed = true;
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,195 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays a log written by {@link InputRecorder}.
+ * The log is mapped into memory and decoded one event at a time as the
+ * engine reaches each event's tick, so nothing is allocated per event.
+ *
+ * Run headless with: java InputReplayer [log file]
+ * The game is rebuilt from the recorded seed and run on a simulated clock
+ * as fast as the engine allows.
+ */
+public class InputReplayer implements InputSource {
+    private static final long TICK_NANOS = 1_000_000_000L / 60;
+    private static final int HEADER_SIZE = 14;
+
+    private ByteBuffer log;
+    private long seed;
+    private MazeMode mazeMode;
+    private long nextTick;
+    private int nextCode;
+    private long endTick;
+    private long events;
+
+    /**
+     * Constructor for creating a new replayer.
+     *
+     * @param path Log file to replay
+     * @throws IOException If the file could not be read or is not an input log
+     */
+    public InputReplayer(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (log.remaining() < HEADER_SIZE || log.getInt() != InputRecorder.MAGIC) {
+            throw new IOException("Not an input log: " + path);
+        }
+        int version = log.get();
+        if (version != InputRecorder.VERSION) {
+            throw new IOException("Unsupported input log version " + version + ": " + path);
+        }
+        this.seed = log.getLong();
+        this.mazeMode = MazeMode.values()[log.get()];
+        this.nextTick = 0;
+        this.endTick = -1;
+        this.events = 0;
+        readNext();
+    }
+
+    /**
+     * Create a game engine in the state the recording started from.
+     * The engine is not started yet.
+     *
+     * @return New game engine
+     */
+    public GameEngine createEngine() {
+        GameEngine gameEngine = new GameEngine(seed);
+        gameEngine.setMazeMode(mazeMode);
+        gameEngine.setInputSource(this);
+        return gameEngine;
+    }
+
+    /**
+     * Apply the recorded inputs for a tick.
+     *
+     * @param gameEngine Game engine being updated
+     * @param tick Number of the tick being run
+     */
+    @Override
+    public void feed(GameEngine gameEngine, long tick) {
+        while (nextCode >= 0 && nextCode != InputRecorder.END && nextTick == tick) {
+            if (nextCode >= InputRecorder.MAZE_MODE) {
+                gameEngine.setMazeMode(MazeMode.values()[nextCode - InputRecorder.MAZE_MODE]);
+            } else {
+                gameEngine.apply(GameCommand.values()[nextCode]);
+            }
+            events++;
+            readNext();
+        }
+    }
+
+    /**
+     * Check if the recording has more ticks to run.
+     *
+     * @param tick Last tick run
+     * @return true if the recording goes on past the tick, false otherwise
+     */
+    public boolean hasMore(long tick) {
+        if (nextCode == InputRecorder.END) {
+            return tick < nextTick;
+        }
+        return nextCode >= 0;
+    }
+
+    /**
+     * Get the seed of the recorded game.
+     *
+     * @return Seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of events replayed so far.
+     *
+     * @return Number of events
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the last tick of the recording, once it has been reached.
+     *
+     * @return Last tick, or -1 if the end has not been read
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * Decode the next event.
+     * A log cut short by a crash simply ends after its last whole event.
+     */
+    private void readNext() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (!log.hasRemaining() || shift > 63) {
+                nextCode = -1;
+                return;
+            }
+            int b = log.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+
+        nextTick += value >>> 4;
+        nextCode = (int) (value & 0x0F);
+        if (nextCode == InputRecorder.END) {
+            endTick = nextTick;
+        }
+    }
+
+    /**
+     * Main method: replay a log headlessly and print the final state.
+     *
+     * @param args Log file to replay
+     * @throws IOException If the log could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java InputReplayer <log file>");
+            System.exit(2);
+        }
+
+        InputReplayer replayer = new InputReplayer(Paths.get(args[0]));
+        GameEngine gameEngine = replayer.createEngine();
+        gameEngine.getZigBeeManager().setTransport(new ZigBeeCoordinator(null).bind(0));
+        gameEngine.getZigBeeManager().setSimulationMode(false);
+        SimulatedClock clock = new SimulatedClock();
+        gameEngine.setClock(clock);
+        gameEngine.start();
+
+        long start = System.nanoTime();
+        while (replayer.hasMore(gameEngine.getTick())) {
+            clock.advance(TICK_NANOS);
+            gameEngine.update();
+        }
+        long wall = System.nanoTime() - start;
+        gameEngine.stop();
+
+        System.out.println("\n--- MOTION MAZE REPLAY ---");
+        System.out.println("Seed: " + replayer.getSeed());
+        System.out.println(String.format("Replayed %d events over %d ticks in %.3f s",
+                replayer.getEvents(), gameEngine.getTick(), wall / 1e9));
+        System.out.println("Game State: " + gameEngine.getState().getClass().getSimpleName());
+        System.out.println("Level: " + gameEngine.getLevel());
+        System.out.println("Player Score: " + gameEngine.getPlayer().getScore());
+        System.out.println("Player Health: " + gameEngine.getPlayer().getHealth());
+        System.out.println("Player Position: (" + gameEngine.getPlayer().getX() + "," + gameEngine.getPlayer().getY() + ")");
+        System.out.println("--------------------------");
+    }
+}
@@ -0,0 +1,16 @@
+//package com.motionmaze.game;
+
+/**
+ * Source of inputs applied by the game engine at a given tick, such as a
+ * recorded input log being replayed.
+ */
+public interface InputSource {
+    /**
+     * Called once per tick, after the queued inputs, to apply this tick's inputs
+     * with {@link GameEngine#apply}.
+     *
+     * @param gameEngine Game engine being updated
+     * @param tick Number of the tick being run
+     */
+    void feed(GameEngine gameEngine, long tick);
+}
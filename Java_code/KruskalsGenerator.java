@@ -0,0 +1,110 @@
+//package com.motionmaze.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Randomized Kruskal's maze generator.
+ * Shuffles every interior edge once and joins cells with a union-find forest
+ * stored in an int array (path halving, union by size).
+ */
+public class KruskalsGenerator implements MazeGenerator {
+    private int[] edges = new int[0];
+    private int[] parent = new int[0];
+
+    @Override
+    public void generate(WallGrid grid, SplittableRandom random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int size = width * height;
+        ensureCapacity(size);
+
+        // Each cell owns the edge to its right (even) and the edge below it (odd)
+        int edgeCount = 0;
+        for (int cell = 0; cell < size; cell++) {
+            parent[cell] = -1;
+            if (cell % width < width - 1) {
+                edges[edgeCount++] = cell << 1;
+            }
+            if (cell / width < height - 1) {
+                edges[edgeCount++] = (cell << 1) | 1;
+            }
+        }
+
+        // Fisher-Yates shuffle
+        for (int i = edgeCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = edges[i];
+            edges[i] = edges[j];
+            edges[j] = tmp;
+        }
+
+        // Join cells until the forest is a single tree
+        int joined = 0;
+        for (int i = 0; i < edgeCount && joined < size - 1; i++) {
+            int edge = edges[i];
+            int cell = edge >>> 1;
+            boolean down = (edge & 1) != 0;
+            int other = down ? cell + width : cell + 1;
+
+            if (union(cell, other)) {
+                grid.carve(cell % width, cell / width, down ? WallGrid.BOTTOM : WallGrid.RIGHT);
+                joined++;
+            }
+        }
+    }
+
+    /**
+     * Find the root of a cell's set.
+     *
+     * @param cell Cell index
+     * @return Root cell index
+     */
+    private int find(int cell) {
+        while (parent[cell] >= 0) {
+            int up = parent[cell];
+            if (parent[up] >= 0) {
+                // Path halving
+                parent[cell] = parent[up];
+            }
+            cell = up;
+        }
+        return cell;
+    }
+
+    /**
+     * Merge the sets of two cells.
+     *
+     * @param a First cell index
+     * @param b Second cell index
+     * @return true if the cells were in different sets, false otherwise
+     */
+    private boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+
+        // Roots store the negated size of their set
+        if (parent[rootA] > parent[rootB]) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+        parent[rootA] += parent[rootB];
+        parent[rootB] = rootA;
+        return true;
+    }
+
+    /**
+     * Make sure the scratch buffers can hold a grid.
+     *
+     * @param size Number of cells in the grid
+     */
+    private void ensureCapacity(int size) {
+        if (parent.length < size) {
+            parent = new int[size];
+            edges = new int[size * 2];
+        }
+    }
+}
@@ -0,0 +1,146 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in nanoseconds.
+ * Buckets are log-linear: every power of two is split into 16 sub-buckets,
+ * so any recorded value is reported within about 6% of its true value, and
+ * recording never allocates. Only one thread should record; other threads
+ * may read, and will see a slightly stale view.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private long[] counts;
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Constructor for creating a new, empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos Duration in nanoseconds (negative values count as zero)
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Clear every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return Largest value in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return Mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * Get the value below which a fraction of the recorded values fall.
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket holding the percentile, in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, upperBound(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Summarise the histogram in milliseconds.
+     *
+     * @return Summary line
+     */
+    public String summary() {
+        return String.format("n=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                count, getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(99) / 1e6, max / 1e6);
+    }
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param value Non-negative value
+     * @return Bucket index
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        // Keep the top SUB_BUCKET_BITS + 1 bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Get the largest value that falls in a bucket.
+     *
+     * @param bucket Bucket index
+     * @return Upper bound of the bucket
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long base = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return base + (1L << shift) - 1;
+    }
+}
@@ -1,4 +1,7 @@
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -7,6 +10,10 @@ import java.util.concurrent.TimeUnit;
  * Main class for Motion Maze.
  */
 public class Main {
+    private static final int TICKS_PER_SECOND = 60;
+    private static final int FRAMES_PER_SECOND = 60;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
     /**
      * Main method.
      *
@@ -15,103 +22,200 @@ public class Main {
     public static void main(String[] args) {
         System.out.println("Starting Motion Maze...");
 
-        // Create the game engine
-        GameEngine gameEngine = new GameEngine();
+        // Create the game engine, from a fixed seed if one is given
+        Long seed = Long.getLong("motionmaze.seed");
+        GameEngine gameEngine = seed != null ? new GameEngine(seed) : new GameEngine();
+        System.out.println("Game seed: " + gameEngine.getSeed());
+
+        // Load designed mazes from a directory if one is given
+        String mazes = System.getProperty("motionmaze.mazes");
+        if (mazes != null) {
+            gameEngine.setMazeDirectory(Paths.get(mazes));
+        }
+
+        // Record the inputs for replay if asked to
+        String recordPath = System.getProperty("motionmaze.record");
+        if (recordPath != null) {
+            try {
+                gameEngine.setRecorder(new InputRecorder(Paths.get(recordPath), gameEngine.getSeed(),
+                        gameEngine.getMazeMode(), gameEngine.getTick()));
+            } catch (IOException e) {
+                System.err.println("Input recording not started: " + e.getMessage());
+            }
+        }
+
+        // Use a real ZigBee link if one is configured
+        configureZigBee(gameEngine.getZigBeeManager(), System.getProperty("motionmaze.zigbee"));
+
+        // Print game events if asked to, off the game loop unless "sync" is given
+        String eventLog = System.getProperty("motionmaze.events");
+        if (eventLog != null) {
+            gameEngine.subscribe("log", Main::printEvent, DeliveryPolicy.valueOf(eventLog.toUpperCase()));
+        }
 
         // Create the UI on the EDT
         SwingUtilities.invokeLater(() -> {
-            GameFrame gameFrame = new GameFrame(gameEngine);
+            GameFrame gameFrame = createFrame(gameEngine, System.getProperty("motionmaze.render"));
             gameFrame.setVisible(true);
 
             // Start the game engine
             gameEngine.start();
 
             // Start the game loop
-            startGameLoop(gameEngine);
+            GameLoop gameLoop = startGameLoop(gameEngine);
 
-            // Start a status reporter (for headless environments)
-            startStatusReporter(gameEngine);
+            // Start a status reporter (for when the window is not watched)
+            startStatusReporter(gameEngine, gameLoop, gameFrame.getGameCanvas());
         });
     }
 
     /**
-     * Start the game loop.
+     * Print a game event.
      *
-     * @param gameEngine Game engine to update
+     * @param event Event to print
      */
-    private static void startGameLoop(GameEngine gameEngine) {
-        Thread gameLoop = new Thread(() -> {
-            final long TARGET_FPS = 60;
-            final long OPTIMAL_TIME = 1000000000 / TARGET_FPS;
+    private static void printEvent(GameEvent event) {
+        Object subject = event.getSubject();
+        String detail = "";
+        if (subject instanceof PowerUp) {
+            detail = " " + ((PowerUp) subject).getType();
+        } else if (subject instanceof Obstacle) {
+            detail = " " + ((Obstacle) subject).getType();
+        } else if (subject != null) {
+            detail = " " + subject.getClass().getSimpleName();
+        }
+        System.out.println("Tick " + event.getTick() + ": " + event.getType()
+                + " at (" + event.getX() + ", " + event.getY() + ")" + detail);
+    }
 
-            long lastUpdateTime = System.nanoTime();
-            long lastFpsTime = 0;
-            int fps = 0;
+    /**
+     * Create the game frame.
+     *
+     * @param gameEngine Game engine to show
+     * @param render "active", "active:fixed_rate", "active:uncapped" or "active:vsync" (the default
+     *               for active) to draw from a render thread, or null to paint through Swing
+     * @return New game frame
+     */
+    private static GameFrame createFrame(GameEngine gameEngine, String render) {
+        if (render == null || !render.startsWith("active")) {
+            return new GameFrame(gameEngine);
+        }
+
+        int colon = render.indexOf(':');
+        FramePacing pacing = colon < 0 ? FramePacing.VSYNC : FramePacing.valueOf(render.substring(colon + 1).toUpperCase());
+        return new GameFrame(gameEngine, pacing, FRAMES_PER_SECOND);
+    }
 
-            while (true) {
-                long currentTime = System.nanoTime();
-                long updateLength = currentTime - lastUpdateTime;
-                lastUpdateTime = currentTime;
+    /**
+     * Print the game part of a status report.
+     *
+     * @param snapshot Game state to print
+     */
+    private static void printSnapshot(GameSnapshot snapshot) {
+        System.out.println("\n--- MOTION MAZE STATUS REPORT ---");
+        System.out.println("Game State: " + snapshot.getState().getClass().getSimpleName());
+        System.out.println("Player Position: (" + snapshot.getPlayerX() + "," + snapshot.getPlayerY() + ")");
+        System.out.println("Player Health: " + snapshot.getPlayerHealth());
+        System.out.println("Player Score: " + snapshot.getPlayerScore());
+        System.out.println("Level: " + snapshot.getLevel());
+        System.out.println("Maze Size: " + snapshot.getMazeWidth() + "x" + snapshot.getMazeHeight());
+        System.out.println("Power-ups Remaining: " + snapshot.getPowerUpCount());
+        System.out.println("Obstacles Remaining: " + snapshot.getObstacleCount());
+        System.out.println("Special States:");
+        System.out.println("  - Trapped: " + snapshot.isTrapped());
+        System.out.println("  - Shielded: " + snapshot.isShielded());
+        System.out.println("  - Speed Boost: " + snapshot.hasSpeedBoost());
+        System.out.println("  - Slowed: " + snapshot.isSlowed());
+        System.out.println("  - Has Key: " + snapshot.hasKey());
+    }
 
-                double delta = updateLength / ((double) OPTIMAL_TIME);
+    /**
+     * Set up the ZigBee transport.
+     *
+     * @param zigBeeManager ZigBee manager to configure
+     * @param spec Link to use (see {@link ZigBeeTransport#fromSpec}), or null to stay in simulation mode
+     */
+    private static void configureZigBee(ZigBeeManager zigBeeManager, String spec) {
+        if (spec == null || spec.isEmpty()) {
+            return;
+        }
 
-                lastFpsTime += updateLength;
-                fps++;
+        zigBeeManager.setTransport(ZigBeeTransport.fromSpec(spec, ZigBeeManager.BAUD_RATE));
+        zigBeeManager.setSimulationMode(false);
+    }
 
-                if (lastFpsTime >= 1000000000) {
-                    lastFpsTime = 0;
-                    fps = 0;
-                }
+    /**
+     * Start the game loop.
+     *
+     * @param gameEngine Game engine to update
+     * @return Running game loop
+     */
+    private static GameLoop startGameLoop(GameEngine gameEngine) {
+        // The game panel schedules its own repaints of the cells each tick changes
+        GameLoop gameLoop = new GameLoop(gameEngine::update, null, TICKS_PER_SECOND, FRAMES_PER_SECOND, MAX_CATCH_UP_TICKS);
+        gameLoop.start();
 
-                // Update the game engine
-                gameEngine.update();
-
-                try {
-                    long sleepTime = (lastUpdateTime - System.nanoTime() + OPTIMAL_TIME) / 1000000;
-                    if (sleepTime > 0) {
-                        Thread.sleep(sleepTime);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        });
+        // Stop the loop cleanly when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gameLoop.stop();
+            gameEngine.stop();
+        }));
 
-        gameLoop.start();
+        return gameLoop;
     }
 
     /**
      * Start a status reporter to regularly print game status.
-     * This is especially useful in headless environments where the UI isn't visible.
+     * This is useful when the UI isn't visible; for runs with no UI at all, use {@link HeadlessMain}.
      *
      * @param gameEngine Game engine to report status for
+     * @param gameLoop Game loop to report timing for
+     * @param gameCanvas Active rendering canvas to report frame times for, or null
      */
-    private static void startStatusReporter(GameEngine gameEngine) {
+    private static void startStatusReporter(GameEngine gameEngine, GameLoop gameLoop, GameCanvas gameCanvas) {
         ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+        SplittableRandom random = gameEngine.splitRandom();
         executorService.scheduleAtFixedRate(() -> {
-            System.out.println("\n--- MOTION MAZE STATUS REPORT ---");
-            System.out.println("Game State: " + gameEngine.getState().getClass().getSimpleName());
-            System.out.println("Player Position: (" + gameEngine.getPlayer().getX() + "," + gameEngine.getPlayer().getY() + ")");
-            System.out.println("Player Health: " + gameEngine.getPlayer().getHealth());
-            System.out.println("Player Score: " + gameEngine.getPlayer().getScore());
-            System.out.println("Level: " + gameEngine.getLevel());
-            System.out.println("Maze Size: " + gameEngine.getMaze().getWidth() + "x" + gameEngine.getMaze().getHeight());
-            System.out.println("Power-ups Remaining: " + gameEngine.getMaze().getPowerUps().size());
-            System.out.println("Obstacles Remaining: " + gameEngine.getMaze().getObstacles().size());
+            // Read the game from the last finished tick rather than while the loop changes it
+            GameSnapshot snapshot = gameEngine.acquireSnapshot();
+            if (snapshot == null) {
+                return;
+            }
+
+            try {
+                printSnapshot(snapshot);
+            } finally {
+                snapshot.release();
+            }
             System.out.println("ZigBee Status: " + (gameEngine.getZigBeeManager().isConnected() ? "Connected" : "Disconnected"));
             System.out.println("ZigBee Mode: " + (gameEngine.getZigBeeManager().isSimulationMode() ? "Simulation" : "Hardware"));
-            System.out.println("Special States:");
-            System.out.println("  - Trapped: " + gameEngine.getPlayer().isTrapped());
-            System.out.println("  - Shielded: " + gameEngine.getPlayer().isShielded());
-            System.out.println("  - Speed Boost: " + gameEngine.getPlayer().hasSpeedBoost());
-            System.out.println("  - Slowed: " + gameEngine.getPlayer().isSlowed());
-            System.out.println("  - Has Key: " + gameEngine.getPlayer().hasKey());
+            System.out.println("ZigBee Input Latency: " + gameEngine.getZigBeeManager().getInputLatency().summary());
+            InputEventRing inputEvents = gameEngine.getZigBeeManager().getInputEvents();
+            System.out.println("ZigBee Input Queue: depth " + inputEvents.getDepth() + "/" + inputEvents.getCapacity()
+                    + " (max " + inputEvents.getMaxDepth() + ", merged " + inputEvents.getCoalesced()
+                    + ", dropped " + inputEvents.getDropped() + ", overwritten " + inputEvents.getOverwritten() + ")");
+            System.out.println("ZigBee Packets: " + gameEngine.getZigBeeManager().getPacketsSent()
+                    + " (coalesced " + gameEngine.getZigBeeManager().getCommandsCoalesced()
+                    + ", servo deferred " + gameEngine.getZigBeeManager().getServoDeferrals() + ")");
+            System.out.println("Tick Time: " + gameLoop.getTickTimes().summary());
+            System.out.println("Ticks: " + gameLoop.getTicks() + " (missed " + gameLoop.getMissedTicks() + ")");
+            if (gameCanvas != null) {
+                System.out.println("Frames: " + gameCanvas.getFrames() + " " + gameCanvas.getPacing()
+                        + " (repeated " + gameCanvas.getRepeatedFrames() + ")");
+                System.out.println("Frame Time: " + gameCanvas.getFrameTimes().summary());
+                System.out.println("Render Time: " + gameCanvas.getRenderTimes().summary());
+            }
+            System.out.println("Dropped Inputs: " + gameEngine.getDroppedCommands());
+            System.out.println("Snapshots: " + gameEngine.getSnapshots().getPublished()
+                    + " (skipped " + gameEngine.getSnapshots().getSkipped() + ")");
+            for (GameEventBus.Subscription subscription : gameEngine.getEvents().getSubscriptions()) {
+                System.out.println("Events: " + subscription.summary());
+            }
             System.out.println("----------------------------------\n");
 
             // Simulate some random event occasionally to demonstrate the game's functionality
-            if (Math.random() < 0.3) { // 30% chance
-                int randomEvent = (int)(Math.random() * 6) + 1;
+            if (random.nextDouble() < 0.3) { // 30% chance
+                int randomEvent = random.nextInt(6) + 1;
                 switch(randomEvent) {
                     case 1:
                         System.out.println("ACTION: Moving UP");
@@ -0,0 +1,125 @@
+//package com.motionmaze.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wall storage backed by a memory-mapped maze file.
+ * Cells use the same one-byte layout as {@link WallGrid}, read straight from
+ * the mapping, so opening a maze costs nothing up front and the operating
+ * system pages rows in as the player reaches them. Changes made during play
+ * stay in memory and are never written back to the file.
+ */
+public class MappedWallGrid implements IndexedWallStore {
+    private int width;
+    private int height;
+    private ByteBuffer cells;
+
+    /**
+     * Constructor for creating a new grid over mapped wall bytes.
+     *
+     * @param cells Wall bytes, one per cell row by row, starting at index 0
+     * @param width Width of the grid
+     * @param height Height of the grid
+     */
+    public MappedWallGrid(ByteBuffer cells, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int getBits(int x, int y) {
+        return cells.get(y * width + x);
+    }
+
+    @Override
+    public int peekBits(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return WallGrid.ALL_WALLS;
+        }
+        return cells.get(y * width + x);
+    }
+
+    @Override
+    public int getBits(int index) {
+        return cells.get(index);
+    }
+
+    @Override
+    public boolean hasWall(int x, int y, int wall) {
+        return (cells.get(y * width + x) & wall) != 0;
+    }
+
+    /**
+     * Set or clear a flag on a single cell, without touching its neighbor.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param flag Wall or flag bit
+     * @param present Whether the bit should be set
+     * @throws java.nio.ReadOnlyBufferException if the maze file was opened read-only
+     */
+    @Override
+    public void setFlag(int x, int y, int flag, boolean present) {
+        int i = y * width + x;
+        int bits = cells.get(i);
+        cells.put(i, (byte) (present ? bits | flag : bits & ~flag));
+    }
+
+    @Override
+    public void setWall(int x, int y, int wall, boolean present) {
+        setFlag(x, y, wall, present);
+
+        // Keep the shared wall consistent on the other side
+        int nx = x + WallGrid.dx(wall);
+        int ny = y + WallGrid.dy(wall);
+        if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+            setFlag(nx, ny, WallGrid.opposite(wall), present);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFirstRow() {
+        return 0;
+    }
+
+    @Override
+    public int getLastRow() {
+        return height - 1;
+    }
+
+    @Override
+    public int getFirstColumn() {
+        return 0;
+    }
+
+    @Override
+    public int getLastColumn() {
+        return width - 1;
+    }
+
+    @Override
+    public void focus(int x, int y) {
+        // The operating system pages rows in on first touch
+    }
+
+    @Override
+    public void setListener(WallStoreListener listener) {
+        // The whole grid is always addressable, so there is nothing to report
+    }
+}
@@ -2,8 +2,8 @@
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.Stack;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
 
 /**
  * Maze for the game.
@@ -12,13 +12,18 @@ public class Maze {
     private int width;
     private int height;
     private int level;
-    private Cell[][] cells;
+    private WallStore walls;
+    private Cell[][] cellViews;
     private int startX;
     private int startY;
     private int finishX;
     private int finishY;
-    private List<PowerUp> powerUps;
-    private List<Obstacle> obstacles;
+    private EntityIndex<PowerUp> powerUps;
+    private EntityIndex<Obstacle> obstacles;
+    private SplittableRandom random;
+    private ChunkedWallWorld world;
+    private List<WallChangeListener> wallListeners;
+    private ChangeTracker changes;
 
     /**
      * Constructor for creating a new maze.
@@ -28,22 +33,44 @@ public class Maze {
      * @param level Level of the maze
      */
     public Maze(int width, int height, int level) {
+        this(width, height, level, MazeAlgorithm.forLevel(level).createGenerator());
+    }
+
+    /**
+     * Constructor for creating a new maze with a specific generator.
+     *
+     * @param width Width of the maze
+     * @param height Height of the maze
+     * @param level Level of the maze
+     * @param generator Generator used to carve the maze
+     */
+    public Maze(int width, int height, int level, MazeGenerator generator) {
+        this(width, height, level, generator, new SplittableRandom());
+    }
+
+    /**
+     * Constructor for creating a new maze from a random stream.
+     * The same stream state always gives the same maze.
+     *
+     * @param width Width of the maze
+     * @param height Height of the maze
+     * @param level Level of the maze
+     * @param generator Generator used to carve the maze
+     * @param random Random source for carving and for placing power-ups and obstacles
+     */
+    public Maze(int width, int height, int level, MazeGenerator generator, SplittableRandom random) {
         this.width = width;
         this.height = height;
         this.level = level;
-        this.cells = new Cell[width][height];
-        this.powerUps = new ArrayList<>();
-        this.obstacles = new ArrayList<>();
-
-        // Initialize cells
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                cells[x][y] = new Cell(x, y);
-            }
-        }
+        this.powerUps = new EntityIndex<>();
+        this.obstacles = new EntityIndex<>();
+        this.wallListeners = new ArrayList<>();
+        this.random = random;
 
         // Generate the maze
-        generateMaze();
+        WallGrid grid = new WallGrid(width, height);
+        generator.generate(grid, random.split());
+        this.walls = grid;
 
         // Set start and finish points
         this.startX = 0;
@@ -56,105 +83,132 @@ public class Maze {
     }
 
     /**
-     * Generate the maze using a depth-first search algorithm.
+     * Constructor for creating a maze around existing walls, such as a loaded maze file.
+     * The maze starts with no power-ups or obstacles.
+     *
+     * @param walls Walls of the whole maze
+     * @param level Level of the maze
+     * @param startX X position of the start
+     * @param startY Y position of the start
+     * @param finishX X position of the finish
+     * @param finishY Y position of the finish
      */
-    private void generateMaze() {
-        Random random = new Random();
-        Stack<Cell> stack = new Stack<>();
-        Cell current = cells[0][0];
-        current.setVisited(true);
-
-        // Depth-first search
-        do {
-            List<Cell> unvisitedNeighbors = getUnvisitedNeighbors(current);
-
-            if (!unvisitedNeighbors.isEmpty()) {
-                // Choose a random unvisited neighbor
-                Cell next = unvisitedNeighbors.get(random.nextInt(unvisitedNeighbors.size()));
+    public Maze(IndexedWallStore walls, int level, int startX, int startY, int finishX, int finishY) {
+        this.width = walls.getWidth();
+        this.height = walls.getHeight();
+        this.level = level;
+        this.walls = walls;
+        this.powerUps = new EntityIndex<>();
+        this.obstacles = new EntityIndex<>();
+        this.wallListeners = new ArrayList<>();
+        this.startX = startX;
+        this.startY = startY;
+        this.finishX = finishX;
+        this.finishY = finishY;
+    }
 
-                // Remove the wall between the current cell and the chosen cell
-                removeWalls(current, next);
+    /**
+     * Constructor for creating a new streaming maze.
+     *
+     * @param window Streaming window holding the resident rows
+     * @param level Level of the maze
+     * @param random Random source for placing power-ups and obstacles
+     */
+    private Maze(StreamingWallWindow window, int level, SplittableRandom random) {
+        this.width = window.getWidth();
+        this.height = window.getHeight();
+        this.level = level;
+        this.walls = window;
+        this.powerUps = new EntityIndex<>();
+        this.obstacles = new EntityIndex<>();
+        this.wallListeners = new ArrayList<>();
+        this.random = random;
 
-                // Mark the chosen cell as visited and push it to the stack
-                next.setVisited(true);
-                stack.push(current);
-                current = next;
-            } else if (!stack.isEmpty()) {
-                // Backtrack
-                current = stack.pop();
-            }
-        } while (!stack.isEmpty());
+        // Endless mazes have no exit
+        this.startX = 0;
+        this.startY = 0;
+        this.finishX = -1;
+        this.finishY = -1;
 
-        // Reset visited flags
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                cells[x][y].setVisited(false);
-            }
-        }
+        // Populate rows as they scroll in and drop their contents as they scroll out
+        window.setListener(new RegionPopulator());
+        window.focus(startX, startY);
     }
 
     /**
-     * Get the unvisited neighbors of a cell.
+     * Create an endless maze that is generated row by row as the player moves down.
+     * Only a window of rows is kept in memory.
      *
-     * @param cell Cell to get the neighbors of
-     * @return List of unvisited neighbors
+     * @param width Width of the maze
+     * @param windowRows Number of rows kept in memory
+     * @param level Level of the maze
+     * @return New streaming maze
      */
-    private List<Cell> getUnvisitedNeighbors(Cell cell) {
-        List<Cell> neighbors = new ArrayList<>();
-        int x = cell.getX();
-        int y = cell.getY();
-
-        // Check the four adjacent cells
-        if (x > 0 && !cells[x - 1][y].isVisited()) {
-            neighbors.add(cells[x - 1][y]);
-        }
+    public static Maze streaming(int width, int windowRows, int level) {
+        return streaming(width, windowRows, level, new SplittableRandom());
+    }
 
-        if (x < width - 1 && !cells[x + 1][y].isVisited()) {
-            neighbors.add(cells[x + 1][y]);
-        }
+    /**
+     * Create an endless maze from a random stream.
+     * The same stream state always gives the same maze.
+     *
+     * @param width Width of the maze
+     * @param windowRows Number of rows kept in memory
+     * @param level Level of the maze
+     * @param random Random source for carving rows and for placing power-ups and obstacles
+     * @return New streaming maze
+     */
+    public static Maze streaming(int width, int windowRows, int level, SplittableRandom random) {
+        StreamingWallWindow window = new StreamingWallWindow(width, windowRows, random.split());
+        return new Maze(window, level, random);
+    }
 
-        if (y > 0 && !cells[x][y - 1].isVisited()) {
-            neighbors.add(cells[x][y - 1]);
-        }
+    /**
+     * Constructor for creating a new open-world maze.
+     *
+     * @param world Chunked world holding the resident chunks
+     * @param level Level of the maze
+     */
+    private Maze(ChunkedWallWorld world, int level) {
+        this.width = world.getWidth();
+        this.height = world.getHeight();
+        this.level = level;
+        this.walls = world;
+        this.world = world;
+        this.powerUps = new EntityIndex<>();
+        this.obstacles = new EntityIndex<>();
+        this.wallListeners = new ArrayList<>();
 
-        if (y < height - 1 && !cells[x][y + 1].isVisited()) {
-            neighbors.add(cells[x][y + 1]);
-        }
+        // Open worlds have no exit
+        this.startX = 0;
+        this.startY = 0;
+        this.finishX = -1;
+        this.finishY = -1;
 
-        return neighbors;
+        // Populate chunks as they are loaded and drop their contents when they are evicted
+        world.setListener(new RegionPopulator());
+        world.focus(startX, startY);
     }
 
     /**
-     * Remove the walls between two cells.
+     * Create an open-world maze made of chunks generated on demand from a seed.
+     * Only the chunks that fit in the memory budget are kept; changes to
+     * evicted chunks are kept as compact deltas.
      *
-     * @param current Current cell
-     * @param next Next cell
+     * @param seed World seed
+     * @param chunkSize Width and height of a chunk in cells (at most 256)
+     * @param memoryBudget Maximum number of bytes of wall data to keep in memory
+     * @param level Level of the maze
+     * @return New open-world maze
      */
-    private void removeWalls(Cell current, Cell next) {
-        int dx = next.getX() - current.getX();
-        int dy = next.getY() - current.getY();
-
-        if (dx == 1) {
-            current.setRightWall(false);
-            next.setLeftWall(false);
-        } else if (dx == -1) {
-            current.setLeftWall(false);
-            next.setRightWall(false);
-        } else if (dy == 1) {
-            current.setBottomWall(false);
-            next.setTopWall(false);
-        } else if (dy == -1) {
-            current.setTopWall(false);
-            next.setBottomWall(false);
-        }
+    public static Maze chunked(long seed, int chunkSize, long memoryBudget, int level) {
+        return new Maze(new ChunkedWallWorld(seed, chunkSize, memoryBudget), level);
     }
 
     /**
      * Add power-ups and obstacles to the maze.
      */
     private void addPowerUpsAndObstacles() {
-        Random random = new Random();
-
         // Add power-ups
         int numPowerUps = Math.min(5, level + 2);
         for (int i = 0; i < numPowerUps; i++) {
@@ -195,7 +249,7 @@ public class Maze {
      */
     public boolean isValidMove(int x, int y) {
         // Check if the position is within the maze bounds
-        if (x < 0 || x >= width || y < 0 || y >= height) {
+        if (x < walls.getFirstColumn() || x > walls.getLastColumn() || y < walls.getFirstRow() || y >= height) {
             return false;
         }
 
@@ -204,6 +258,59 @@ public class Maze {
         return true;
     }
 
+    /**
+     * Check if the way from a cell in a direction is open.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit of the direction (TOP, RIGHT, BOTTOM or LEFT)
+     * @return true if there is no wall in the way, false otherwise
+     */
+    public boolean isOpen(int x, int y, int wall) {
+        return !walls.hasWall(x, y, wall);
+    }
+
+    /**
+     * Add or remove a wall and tell the wall listeners.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit (TOP, RIGHT, BOTTOM or LEFT)
+     * @param present Whether the wall should be present
+     */
+    public void setWall(int x, int y, int wall, boolean present) {
+        if (walls.hasWall(x, y, wall) == present) {
+            return;
+        }
+
+        walls.setWall(x, y, wall, present);
+        if (changes != null) {
+            changes.markCell(x, y);
+            changes.markCell(x + WallGrid.dx(wall), y + WallGrid.dy(wall));
+        }
+        for (WallChangeListener listener : wallListeners) {
+            listener.onWallChanged(x, y, wall, present);
+        }
+    }
+
+    /**
+     * Add a wall change listener.
+     *
+     * @param listener Listener to add
+     */
+    public void addWallChangeListener(WallChangeListener listener) {
+        wallListeners.add(listener);
+    }
+
+    /**
+     * Remove a wall change listener.
+     *
+     * @param listener Listener to remove
+     */
+    public void removeWallChangeListener(WallChangeListener listener) {
+        wallListeners.remove(listener);
+    }
+
     /**
      * Check if a position is the exit of the maze.
      *
@@ -223,13 +330,7 @@ public class Maze {
      * @return Power-up at the position, or null if there is none
      */
     public PowerUp getPowerUpAt(int x, int y) {
-        for (PowerUp powerUp : powerUps) {
-            if (powerUp.getX() == x && powerUp.getY() == y) {
-                return powerUp;
-            }
-        }
-
-        return null;
+        return powerUps.get(x, y);
     }
 
     /**
@@ -240,13 +341,33 @@ public class Maze {
      * @return Obstacle at the position, or null if there is none
      */
     public Obstacle getObstacleAt(int x, int y) {
-        for (Obstacle obstacle : obstacles) {
-            if (obstacle.getX() == x && obstacle.getY() == y) {
-                return obstacle;
-            }
-        }
+        return obstacles.get(x, y);
+    }
 
-        return null;
+    /**
+     * Visit the power-ups inside a rectangle of cells, such as the visible viewport.
+     *
+     * @param minX Left column (inclusive)
+     * @param minY Top row (inclusive)
+     * @param maxX Right column (inclusive)
+     * @param maxY Bottom row (inclusive)
+     * @param action Action to run for each power-up
+     */
+    public void forEachPowerUpIn(int minX, int minY, int maxX, int maxY, Consumer<? super PowerUp> action) {
+        powerUps.forEachIn(minX, minY, maxX, maxY, action);
+    }
+
+    /**
+     * Visit the obstacles inside a rectangle of cells, such as the visible viewport.
+     *
+     * @param minX Left column (inclusive)
+     * @param minY Top row (inclusive)
+     * @param maxX Right column (inclusive)
+     * @param maxY Bottom row (inclusive)
+     * @param action Action to run for each obstacle
+     */
+    public void forEachObstacleIn(int minX, int minY, int maxX, int maxY, Consumer<? super Obstacle> action) {
+        obstacles.forEachIn(minX, minY, maxX, maxY, action);
     }
 
     /**
@@ -255,7 +376,10 @@ public class Maze {
      * @param powerUp Power-up to remove
      */
     public void removePowerUp(PowerUp powerUp) {
-        powerUps.remove(powerUp);
+        if (powerUps.remove(powerUp) && world != null) {
+            recordDelta(ChunkDeltas.POWER_UP, false, powerUp.getType().ordinal(), powerUp.getX(), powerUp.getY());
+        }
+        markCell(powerUp.getX(), powerUp.getY());
     }
 
     /**
@@ -265,6 +389,10 @@ public class Maze {
      */
     public void addPowerUp(PowerUp powerUp) {
         powerUps.add(powerUp);
+        if (world != null) {
+            recordDelta(ChunkDeltas.POWER_UP, true, powerUp.getType().ordinal(), powerUp.getX(), powerUp.getY());
+        }
+        markCell(powerUp.getX(), powerUp.getY());
     }
 
     /**
@@ -273,7 +401,10 @@ public class Maze {
      * @param obstacle Obstacle to remove
      */
     public void removeObstacle(Obstacle obstacle) {
-        obstacles.remove(obstacle);
+        if (obstacles.remove(obstacle) && world != null) {
+            recordDelta(ChunkDeltas.OBSTACLE, false, obstacle.getType().ordinal(), obstacle.getX(), obstacle.getY());
+        }
+        markCell(obstacle.getX(), obstacle.getY());
     }
 
     /**
@@ -283,6 +414,44 @@ public class Maze {
      */
     public void addObstacle(Obstacle obstacle) {
         obstacles.add(obstacle);
+        if (world != null) {
+            recordDelta(ChunkDeltas.OBSTACLE, true, obstacle.getType().ordinal(), obstacle.getX(), obstacle.getY());
+        }
+        markCell(obstacle.getX(), obstacle.getY());
+    }
+
+    /**
+     * Set the tracker told about cells that change during play.
+     *
+     * @param changes Change tracker, or null to stop tracking
+     */
+    public void setChangeTracker(ChangeTracker changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Tell the change tracker, if any, that a cell changed.
+     *
+     * @param x X position
+     * @param y Y position
+     */
+    private void markCell(int x, int y) {
+        if (changes != null) {
+            changes.markCell(x, y);
+        }
+    }
+
+    /**
+     * Record a change to the contents of an open-world chunk.
+     *
+     * @param kind Kind of change
+     * @param added Whether the entity was added
+     * @param type Entity type ordinal
+     * @param x X position
+     * @param y Y position
+     */
+    private void recordDelta(int kind, boolean added, int type, int x, int y) {
+        world.getDeltas().record(world.keyAt(x, y), kind, added, type, world.localIndex(x, y));
     }
 
     /**
@@ -314,11 +483,93 @@ public class Maze {
 
     /**
      * Get the cells of the maze.
+     * The views are built on the first call and share the maze's wall store,
+     * so prefer {@link #getCell(int, int)} or {@link #getWalls()} on large mazes.
      *
      * @return Cells of the maze
+     * @throws UnsupportedOperationException if the maze is not fully resident
      */
     public Cell[][] getCells() {
-        return cells;
+        if (!(walls instanceof IndexedWallStore)) {
+            throw new UnsupportedOperationException("Cells are only available for fully resident mazes");
+        }
+
+        if (cellViews == null) {
+            cellViews = new Cell[width][height];
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    cellViews[x][y] = new Cell(walls, x, y);
+                }
+            }
+        }
+
+        return cellViews;
+    }
+
+    /**
+     * Get a view of a single cell.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Cell view backed by the maze's wall store
+     */
+    public Cell getCell(int x, int y) {
+        return new Cell(walls, x, y);
+    }
+
+    /**
+     * Get the wall store of the maze.
+     *
+     * @return Wall store
+     */
+    public WallStore getWalls() {
+        return walls;
+    }
+
+    /**
+     * Get the first row currently held in memory.
+     *
+     * @return First resident row
+     */
+    public int getFirstRow() {
+        return walls.getFirstRow();
+    }
+
+    /**
+     * Get the last row currently held in memory.
+     *
+     * @return Last resident row
+     */
+    public int getLastRow() {
+        return walls.getLastRow();
+    }
+
+    /**
+     * Get the first column currently held in memory.
+     *
+     * @return First resident column
+     */
+    public int getFirstColumn() {
+        return walls.getFirstColumn();
+    }
+
+    /**
+     * Get the last column currently held in memory.
+     *
+     * @return Last resident column
+     */
+    public int getLastColumn() {
+        return walls.getLastColumn();
+    }
+
+    /**
+     * Tell the maze where the player is, so streamed rows and chunks are loaded around them.
+     *
+     * @param x X position of the player
+     * @param y Y position of the player
+     */
+    public void focus(int x, int y) {
+        walls.focus(x, y);
     }
 
     /**
@@ -359,19 +610,143 @@ public class Maze {
 
     /**
      * Get the power-ups in the maze.
+     * The list is read-only; use addPowerUp and removePowerUp to change it.
      *
      * @return Power-ups in the maze
      */
     public List<PowerUp> getPowerUps() {
-        return powerUps;
+        return powerUps.asList();
     }
 
     /**
      * Get the obstacles in the maze.
+     * The list is read-only; use addObstacle and removeObstacle to change it.
      *
      * @return Obstacles in the maze
      */
     public List<Obstacle> getObstacles() {
-        return obstacles;
+        return obstacles.asList();
+    }
+
+    /**
+     * Places power-ups and obstacles in rows or chunks as they are loaded,
+     * and removes them again when they are dropped.
+     */
+    private class RegionPopulator implements WallStoreListener {
+        @Override
+        public void onRegionLoaded(int x, int y, int width, int height) {
+            if (changes != null) {
+                changes.markAll();
+            }
+            if (world != null) {
+                populateChunk(x, y, width);
+            } else {
+                populateRows(x, y, width, height);
+            }
+        }
+
+        @Override
+        public void onRegionEvicted(int x, int y, int width, int height) {
+            if (changes != null) {
+                changes.markAll();
+            }
+            powerUps.removeIn(x, y, x + width - 1, y + height - 1);
+            obstacles.removeIn(x, y, x + width - 1, y + height - 1);
+        }
+
+        /**
+         * Randomly place power-ups and obstacles in streamed rows.
+         *
+         * @param x X position of the rows
+         * @param y First row
+         * @param width Width of the rows
+         * @param height Number of rows
+         */
+        private void populateRows(int x, int y, int width, int height) {
+            for (int row = y; row < y + height; row++) {
+                // Keep the start row clear
+                if (row == startY) {
+                    continue;
+                }
+
+                // Roughly one power-up every five rows
+                if (random.nextInt(5) == 0) {
+                    PowerUpType[] types = PowerUpType.values();
+                    powerUps.add(new PowerUp(x + random.nextInt(width), row, types[random.nextInt(types.length)]));
+                }
+
+                // Obstacles get more frequent with the level
+                if (random.nextInt(10) < Math.min(3, level)) {
+                    ObstacleType[] types = ObstacleType.values();
+                    obstacles.add(new Obstacle(x + random.nextInt(width), row, types[random.nextInt(types.length)]));
+                }
+            }
+        }
+
+        /**
+         * Rebuild the contents of a chunk from the world seed and its recorded changes.
+         *
+         * @param x X position of the chunk
+         * @param y Y position of the chunk
+         * @param size Width and height of the chunk
+         */
+        private void populateChunk(int x, int y, int size) {
+            long key = world.keyAt(x, y);
+            // Split off the chunk's stream, so the entities do not repeat the choices that carved its walls
+            SplittableRandom chunkRandom = new SplittableRandom(Seeds.derive(world.getSeed(), key)).split();
+
+            PowerUpType[] powerUpTypes = PowerUpType.values();
+            for (int i = 0; i < 4; i++) {
+                int px = x + chunkRandom.nextInt(size);
+                int py = y + chunkRandom.nextInt(size);
+                PowerUpType type = powerUpTypes[chunkRandom.nextInt(powerUpTypes.length)];
+                if (px != startX || py != startY) {
+                    powerUps.add(new PowerUp(px, py, type));
+                }
+            }
+
+            ObstacleType[] obstacleTypes = ObstacleType.values();
+            for (int i = 0; i < 2 * Math.min(3, level); i++) {
+                int ox = x + chunkRandom.nextInt(size);
+                int oy = y + chunkRandom.nextInt(size);
+                ObstacleType type = obstacleTypes[chunkRandom.nextInt(obstacleTypes.length)];
+                if (ox != startX || oy != startY) {
+                    obstacles.add(new Obstacle(ox, oy, type));
+                }
+            }
+
+            // Replay collected, removed and spawned entities
+            ChunkDeltas deltas = world.getDeltas();
+            int[] entries = deltas.get(key);
+            for (int i = 1; i <= deltas.size(key); i++) {
+                int entry = entries[i];
+                int cell = ChunkDeltas.cell(entry);
+                int ex = x + cell % size;
+                int ey = y + cell / size;
+                int type = ChunkDeltas.value(entry);
+
+                if (ChunkDeltas.kind(entry) == ChunkDeltas.POWER_UP) {
+                    if (ChunkDeltas.isAdded(entry)) {
+                        powerUps.add(new PowerUp(ex, ey, powerUpTypes[type]));
+                    } else {
+                        PowerUpType removed = powerUpTypes[type];
+                        PowerUp powerUp = powerUps.find(ex, ey, p -> p.getType() == removed);
+                        if (powerUp != null) {
+                            powerUps.remove(powerUp);
+                        }
+                    }
+                } else if (ChunkDeltas.kind(entry) == ChunkDeltas.OBSTACLE) {
+                    if (ChunkDeltas.isAdded(entry)) {
+                        obstacles.add(new Obstacle(ex, ey, obstacleTypes[type]));
+                    } else {
+                        ObstacleType removed = obstacleTypes[type];
+                        Obstacle obstacle = obstacles.find(ex, ey, o -> o.getType() == removed);
+                        if (obstacle != null) {
+                            obstacles.remove(obstacle);
+                        }
+                    }
+                }
+            }
+        }
     }
 }
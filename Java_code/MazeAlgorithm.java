@@ -0,0 +1,44 @@
+//package com.motionmaze.game;
+
+/**
+ * Available maze generation algorithms.
+ */
+public enum MazeAlgorithm {
+    RECURSIVE_BACKTRACKER,
+    ELLERS,
+    WILSONS,
+    KRUSKALS;
+
+    /**
+     * Create a new generator for this algorithm.
+     *
+     * @return New maze generator
+     */
+    public MazeGenerator createGenerator() {
+        switch (this) {
+            case ELLERS:
+                return new EllersGenerator();
+
+            case WILSONS:
+                return new WilsonsGenerator();
+
+            case KRUSKALS:
+                return new KruskalsGenerator();
+
+            default:
+                return new RecursiveBacktrackerGenerator();
+        }
+    }
+
+    /**
+     * Get the algorithm used for a level.
+     * Levels cycle through the algorithms so each one brings a different maze texture.
+     *
+     * @param level Level number (starting at 1)
+     * @return Algorithm for the level
+     */
+    public static MazeAlgorithm forLevel(int level) {
+        MazeAlgorithm[] algorithms = values();
+        return algorithms[Math.floorMod(level - 1, algorithms.length)];
+    }
+}
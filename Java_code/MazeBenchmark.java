@@ -0,0 +1,143 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Micro-benchmarks for maze generation and path finding.
+ * Run with a large heap, for example: java -Xmx4g MazeBenchmark
+ */
+public class MazeBenchmark {
+    private static final int[] SIDES = {32, 128, 512, 2048, 4096};
+    private static final int WARMUP = 2;
+    private static final int RUNS = 5;
+
+    /**
+     * Main method.
+     *
+     * @param args Command-line arguments (ignored)
+     */
+    public static void main(String[] args) {
+        System.out.println("cells      generate(ms)  distance(ms)  astar(ms)  jps(ms)  wall update(us)");
+
+        for (int side : SIDES) {
+            benchmarkPaths(side);
+        }
+
+        System.out.println();
+        System.out.println("threads    parallel generate 4096x4096 (ms)  checksum");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            benchmarkParallel(4096, threads);
+        }
+        if (Integer.highestOneBit(cores) != cores) {
+            benchmarkParallel(4096, cores);
+        }
+    }
+
+    /**
+     * Benchmark generation and path queries on a square maze.
+     *
+     * @param side Width and height of the maze
+     */
+    private static void benchmarkPaths(int side) {
+        MazeGenerator generator = MazeAlgorithm.RECURSIVE_BACKTRACKER.createGenerator();
+        long generate = 0;
+        long field = 0;
+        long astar = 0;
+        long jps = 0;
+        long update = 0;
+        int updates = 0;
+
+        for (int run = 0; run < WARMUP + RUNS; run++) {
+            long start = System.nanoTime();
+            Maze maze = new Maze(side, side, 1, generator);
+            long generated = System.nanoTime();
+            PathService paths = new PathService(maze);
+            long built = System.nanoTime();
+            paths.findPath(0, 0, side - 1, side - 1, null);
+            long searched = System.nanoTime();
+            paths.findPathJps(0, 0, side - 1, side - 1, null);
+            long jumped = System.nanoTime();
+
+            // Close and reopen random passages to exercise the incremental update
+            SplittableRandom random = new SplittableRandom(run);
+            long updateStart = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                int x = random.nextInt(side - 1);
+                int y = random.nextInt(side);
+                boolean open = maze.isOpen(x, y, WallGrid.RIGHT);
+                maze.setWall(x, y, WallGrid.RIGHT, open);
+                maze.setWall(x, y, WallGrid.RIGHT, !open);
+            }
+            long updated = System.nanoTime();
+            paths.dispose();
+
+            if (run >= WARMUP) {
+                generate += generated - start;
+                field += built - generated;
+                astar += searched - built;
+                jps += jumped - searched;
+                update += updated - updateStart;
+                updates += 200;
+            }
+        }
+
+        System.out.printf("%-10d %12.2f  %12.2f  %9.2f  %7.2f  %15.2f%n",
+                (long) side * side,
+                generate / 1e6 / RUNS,
+                field / 1e6 / RUNS,
+                astar / 1e6 / RUNS,
+                jps / 1e6 / RUNS,
+                update / 1e3 / updates);
+    }
+
+    /**
+     * Benchmark parallel generation with a given number of worker threads.
+     * The checksum must be the same for every thread count.
+     *
+     * @param side Width and height of the maze
+     * @param threads Parallelism of the pool
+     */
+    private static void benchmarkParallel(int side, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        MazeGenerator generator = new ParallelMazeGenerator(pool, 256);
+        long total = 0;
+        int checksum = 0;
+
+        for (int run = 0; run < WARMUP + RUNS; run++) {
+            WallGrid grid = new WallGrid(side, side);
+            long start = System.nanoTime();
+            generator.generate(grid, new SplittableRandom(42));
+            long elapsed = System.nanoTime() - start;
+
+            if (run >= WARMUP) {
+                total += elapsed;
+            }
+            checksum = checksum(grid);
+        }
+
+        pool.shutdown();
+        System.out.printf("%-10d %33.2f  %08x%n", threads, total / 1e6 / RUNS, checksum);
+    }
+
+    /**
+     * Hash the walls of a grid.
+     *
+     * @param grid Grid to hash
+     * @return Hash of every row
+     */
+    private static int checksum(WallGrid grid) {
+        byte[] row = new byte[grid.getWidth()];
+        int hash = 1;
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = (byte) grid.getBits(x, y);
+            }
+            hash = 31 * hash + Arrays.hashCode(row);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,20 @@
+//package com.motionmaze.game;
+
+/**
+ * Something that sits on a cell of the maze.
+ */
+public interface MazeEntity {
+    /**
+     * Get the X position.
+     *
+     * @return X position
+     */
+    int getX();
+
+    /**
+     * Get the Y position.
+     *
+     * @return Y position
+     */
+    int getY();
+}
@@ -0,0 +1,274 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Binary file format for finished mazes.
+ * <pre>
+ * header (64 bytes, little-endian):
+ *   magic "MMZF", version, width, height, level,
+ *   startX, startY, finishX, finishY,
+ *   power-up count, obstacle count,
+ *   walls offset (long), entities offset (long), padding
+ * walls:    width * height bytes, one per cell in {@link WallGrid} layout, row by row
+ * entities: power-ups then obstacles, each [x:int][y:int][type ordinal:byte]
+ * </pre>
+ * Loading maps the file instead of reading it: the walls are served from the
+ * mapping by a {@link MappedWallGrid}, so even a maze of a hundred million
+ * cells opens at once and its pages are read as the player explores. Only
+ * the entity tables are read up front.
+ */
+public final class MazeFile {
+    /** Magic number at the start of every maze file ("MMZF"). */
+    public static final int MAGIC = 0x465A4D4D;
+    /** File format version. */
+    public static final int VERSION = 1;
+    /** Size of the header in bytes. */
+    public static final int HEADER_SIZE = 64;
+
+    private static final int ENTITY_SIZE = 9;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Private constructor; this class only has static helpers.
+     */
+    private MazeFile() {
+    }
+
+    /**
+     * Save a maze with its current power-ups and obstacles.
+     * Visited flags are not saved.
+     *
+     * @param maze Maze to save; must be fully resident
+     * @param path File to write, replaced if it exists
+     * @throws IOException If the file could not be written
+     * @throws IllegalArgumentException if the maze is streamed or chunked
+     */
+    public static void save(Maze maze, Path path) throws IOException {
+        if (!(maze.getWalls() instanceof IndexedWallStore)) {
+            throw new IllegalArgumentException("Only fully resident mazes can be saved");
+        }
+        IndexedWallStore walls = (IndexedWallStore) maze.getWalls();
+        long cellCount = (long) maze.getWidth() * maze.getHeight();
+        long entitiesOffset = HEADER_SIZE + cellCount;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Header
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(maze.getWidth());
+            buffer.putInt(maze.getHeight());
+            buffer.putInt(maze.getLevel());
+            buffer.putInt(maze.getStartX());
+            buffer.putInt(maze.getStartY());
+            buffer.putInt(maze.getFinishX());
+            buffer.putInt(maze.getFinishY());
+            buffer.putInt(maze.getPowerUps().size());
+            buffer.putInt(maze.getObstacles().size());
+            buffer.putLong(HEADER_SIZE);
+            buffer.putLong(entitiesOffset);
+            while (buffer.position() < HEADER_SIZE) {
+                buffer.put((byte) 0);
+            }
+
+            // Walls, in buffer-sized runs
+            for (long i = 0; i < cellCount; i++) {
+                if (!buffer.hasRemaining()) {
+                    write(channel, buffer);
+                }
+                buffer.put((byte) (walls.getBits((int) i) & WallGrid.ALL_WALLS));
+            }
+
+            // Entities
+            for (PowerUp powerUp : maze.getPowerUps()) {
+                if (buffer.remaining() < ENTITY_SIZE) {
+                    write(channel, buffer);
+                }
+                buffer.putInt(powerUp.getX()).putInt(powerUp.getY()).put((byte) powerUp.getType().ordinal());
+            }
+            for (Obstacle obstacle : maze.getObstacles()) {
+                if (buffer.remaining() < ENTITY_SIZE) {
+                    write(channel, buffer);
+                }
+                buffer.putInt(obstacle.getX()).putInt(obstacle.getY()).put((byte) obstacle.getType().ordinal());
+            }
+            write(channel, buffer);
+        }
+    }
+
+    /**
+     * Open a saved maze.
+     * The walls stay in the file and are paged in on demand. Changes made
+     * during play are private to this maze; if the file cannot be opened for
+     * writing, the maze is read-only and changing its walls fails.
+     *
+     * @param path File to open
+     * @return Maze backed by the file
+     * @throws IOException If the file could not be read or is not a maze file
+     */
+    public static Maze load(Path path) throws IOException {
+        MappedByteBuffer mapped = map(path);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+            throw new IOException("Not a maze file: " + path);
+        }
+        if (mapped.getInt(4) != VERSION) {
+            throw new IOException("Unsupported maze file version " + mapped.getInt(4) + ": " + path);
+        }
+
+        int width = mapped.getInt(8);
+        int height = mapped.getInt(12);
+        int level = mapped.getInt(16);
+        int powerUpCount = mapped.getInt(36);
+        int obstacleCount = mapped.getInt(40);
+        long wallsOffset = mapped.getLong(44);
+        long entitiesOffset = mapped.getLong(52);
+        long cellCount = (long) width * height;
+        if (width <= 0 || height <= 0 || powerUpCount < 0 || obstacleCount < 0
+                || wallsOffset < HEADER_SIZE || wallsOffset + cellCount > entitiesOffset
+                || entitiesOffset + ((long) powerUpCount + obstacleCount) * ENTITY_SIZE > mapped.capacity()) {
+            throw new IOException("Corrupt maze file header: " + path);
+        }
+        if (!isInside(mapped.getInt(20), mapped.getInt(24), width, height)
+                || !isInside(mapped.getInt(28), mapped.getInt(32), width, height)) {
+            throw new IOException("Corrupt maze file start or finish: " + path);
+        }
+
+        // Walls are served straight from the mapping
+        mapped.position((int) wallsOffset);
+        mapped.limit((int) (wallsOffset + cellCount));
+        ByteBuffer cells = mapped.slice();
+        mapped.clear();
+
+        Maze maze = new Maze(new MappedWallGrid(cells, width, height), level,
+                mapped.getInt(20), mapped.getInt(24), mapped.getInt(28), mapped.getInt(32));
+
+        // Entities are few, so they are read into the maze's indexes now
+        PowerUpType[] powerUpTypes = PowerUpType.values();
+        ObstacleType[] obstacleTypes = ObstacleType.values();
+        int at = (int) entitiesOffset;
+        for (int i = 0; i < powerUpCount; i++, at += ENTITY_SIZE) {
+            checkEntity(mapped, at, width, height, powerUpTypes.length, path);
+            maze.addPowerUp(new PowerUp(mapped.getInt(at), mapped.getInt(at + 4), powerUpTypes[mapped.get(at + 8) & 0xFF]));
+        }
+        for (int i = 0; i < obstacleCount; i++, at += ENTITY_SIZE) {
+            checkEntity(mapped, at, width, height, obstacleTypes.length, path);
+            maze.addObstacle(new Obstacle(mapped.getInt(at), mapped.getInt(at + 4), obstacleTypes[mapped.get(at + 8) & 0xFF]));
+        }
+        return maze;
+    }
+
+    /**
+     * Check that an entity record lies inside the maze and names a known type.
+     *
+     * @param mapped Mapping of the file
+     * @param at Offset of the record
+     * @param width Width of the maze
+     * @param height Height of the maze
+     * @param typeCount Number of types of the entity
+     * @param path File being loaded, for the error message
+     * @throws IOException If the record is corrupt
+     */
+    private static void checkEntity(ByteBuffer mapped, int at, int width, int height, int typeCount, Path path)
+            throws IOException {
+        if (!isInside(mapped.getInt(at), mapped.getInt(at + 4), width, height) || (mapped.get(at + 8) & 0xFF) >= typeCount) {
+            throw new IOException("Corrupt maze file entity at offset " + at + ": " + path);
+        }
+    }
+
+    /**
+     * Check if a cell lies inside the maze.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param width Width of the maze
+     * @param height Height of the maze
+     * @return true if the cell is inside the maze, false otherwise
+     */
+    private static boolean isInside(int x, int y, int width, int height) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Map a whole maze file, privately if it can be written and read-only otherwise.
+     *
+     * @param path File to map
+     * @return Mapping of the file
+     * @throws IOException If the file could not be opened
+     */
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.PRIVATE, 0, channel.size());
+        } catch (AccessDeniedException e) {
+            // Shipped mazes may be read-only; they still load, just without wall changes
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+    }
+
+    /**
+     * Write out and empty a buffer.
+     *
+     * @param channel Channel to write to
+     * @param buffer Buffer to write
+     * @throws IOException If the write failed
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Main method: export a generated maze, or describe a maze file.
+     * <pre>
+     * java MazeFile export &lt;width&gt; &lt;height&gt; &lt;level&gt; &lt;seed&gt; &lt;file&gt;
+     * java MazeFile info &lt;file&gt;
+     * </pre>
+     *
+     * @param args Command-line arguments
+     * @throws IOException If the file could not be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 6 && args[0].equals("export")) {
+            int width = Integer.parseInt(args[1]);
+            int height = Integer.parseInt(args[2]);
+            int level = Integer.parseInt(args[3]);
+            long start = System.nanoTime();
+            Maze maze = new Maze(width, height, level, MazeAlgorithm.forLevel(level).createGenerator(),
+                    new SplittableRandom(Long.parseLong(args[4])));
+            long generated = System.nanoTime();
+            save(maze, Paths.get(args[5]));
+            System.out.println(String.format("Exported %dx%d maze: generated in %.1f ms, saved in %.1f ms",
+                    width, height, (generated - start) / 1e6, (System.nanoTime() - generated) / 1e6));
+        } else if (args.length == 2 && args[0].equals("info")) {
+            long start = System.nanoTime();
+            Maze maze = load(Paths.get(args[1]));
+            long loaded = System.nanoTime();
+            System.out.println(String.format("%dx%d maze, level %d, start (%d,%d), finish (%d,%d), "
+                    + "%d power-ups, %d obstacles, opened in %.3f ms",
+                    maze.getWidth(), maze.getHeight(), maze.getLevel(), maze.getStartX(), maze.getStartY(),
+                    maze.getFinishX(), maze.getFinishY(), maze.getPowerUps().size(), maze.getObstacles().size(),
+                    (loaded - start) / 1e6));
+        } else {
+            System.err.println("Usage: java MazeFile export <width> <height> <level> <seed> <file>");
+            System.err.println("       java MazeFile info <file>");
+            System.exit(2);
+        }
+    }
+}
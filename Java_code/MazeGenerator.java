@@ -0,0 +1,19 @@
+//package com.motionmaze.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Strategy for carving a perfect maze into a wall grid.
+ * Implementations keep their scratch buffers between calls, so a generator
+ * can be reused for every level without creating garbage, but a single
+ * instance must not be shared between threads.
+ */
+public interface MazeGenerator {
+    /**
+     * Carve a maze into a grid that starts with every wall present.
+     *
+     * @param grid Grid to carve
+     * @param random Random source
+     */
+    void generate(WallGrid grid, SplittableRandom random);
+}
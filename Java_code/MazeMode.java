@@ -0,0 +1,13 @@
+//package com.motionmaze.game;
+
+/**
+ * How the game builds its mazes.
+ */
+public enum MazeMode {
+    /** A fresh finite maze for every level. */
+    STANDARD,
+    /** An endless maze streamed row by row. */
+    ENDLESS,
+    /** An open world made of chunks generated on demand. */
+    OPEN_WORLD
+}
@@ -3,7 +3,7 @@
 /**
  * Obstacle in the game.
  */
-public class Obstacle {
+public class Obstacle implements MazeEntity {
     private int x;
     private int y;
     private ObstacleType type;
@@ -55,6 +55,7 @@ public class Obstacle {
      *
      * @return X position
      */
+    @Override
     public int getX() {
         return x;
     }
@@ -64,6 +65,7 @@ public class Obstacle {
      *
      * @return Y position
      */
+    @Override
     public int getY() {
         return y;
     }
@@ -17,6 +17,7 @@ public class ObstacleObserver implements GameObserver {
         if (obstacle != null) {
             // Apply the obstacle effect
             obstacle.apply(player);
+            gameEngine.publishEvent(GameEventType.OBSTACLE_HIT, player.getX(), player.getY(), obstacle);
 
             // Remove the obstacle
             maze.removeObstacle(obstacle);
@@ -25,8 +26,8 @@ public class ObstacleObserver implements GameObserver {
             gameEngine.getZigBeeManager().sendLedCommand(0); // Red LED
             gameEngine.getZigBeeManager().sendBuzzerCommand(1); // Collision sound
 
-            // Reset LED after a brief moment
-            gameEngine.getZigBeeManager().sendLedCommand(7); // LED off
+            // Turn the LED off after a brief flash
+            gameEngine.getZigBeeManager().scheduleLedCommand(7, ZigBeeManager.LED_FLASH_MS); // LED off
         }
     }
 }
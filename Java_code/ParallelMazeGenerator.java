@@ -0,0 +1,198 @@
+//package com.motionmaze.game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Maze generator that carves very large grids on a fork/join pool.
+ * The grid is split into square regions that are carved independently, each
+ * with its own {@link SplittableRandom} derived from the seed and the region
+ * index. The regions are then joined along a random spanning tree with one
+ * passage per tree edge, so the result is still a perfect maze, and the same
+ * seed gives the same maze whatever the parallelism of the pool.
+ */
+public class ParallelMazeGenerator implements MazeGenerator {
+    private static final int DEFAULT_REGION_SIZE = 256;
+
+    private ForkJoinPool pool;
+    private int regionSize;
+    private ThreadLocal<RecursiveBacktrackerGenerator> generators;
+    private ThreadLocal<WallGrid> regions;
+
+    /**
+     * Constructor for creating a new parallel generator on the common pool.
+     */
+    public ParallelMazeGenerator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Constructor for creating a new parallel generator.
+     *
+     * @param pool Pool that carves the regions
+     * @param regionSize Width and height of a region in cells
+     */
+    public ParallelMazeGenerator(ForkJoinPool pool, int regionSize) {
+        this.pool = pool;
+        this.regionSize = regionSize;
+        this.generators = ThreadLocal.withInitial(RecursiveBacktrackerGenerator::new);
+        this.regions = new ThreadLocal<>();
+    }
+
+    @Override
+    public void generate(WallGrid grid, SplittableRandom random) {
+        int regionsX = (grid.getWidth() + regionSize - 1) / regionSize;
+        int regionsY = (grid.getHeight() + regionSize - 1) / regionSize;
+        long seed = random.nextLong();
+
+        // Carve every region on the pool
+        pool.invoke(new CarveRegions(grid, seed, regionsX, 0, regionsX * regionsY));
+
+        // Join the regions along a random spanning tree
+        joinRegions(grid, regionsX, regionsY, new SplittableRandom(seed));
+    }
+
+    /**
+     * Carve a single region into the grid.
+     *
+     * @param grid Grid to carve
+     * @param seed Maze seed
+     * @param regionsX Number of region columns
+     * @param region Region index
+     */
+    private void carveRegion(WallGrid grid, long seed, int regionsX, int region) {
+        int x0 = (region % regionsX) * regionSize;
+        int y0 = (region / regionsX) * regionSize;
+        int w = Math.min(regionSize, grid.getWidth() - x0);
+        int h = Math.min(regionSize, grid.getHeight() - y0);
+
+        // Each worker reuses its own scratch grid
+        WallGrid scratch = regions.get();
+        if (scratch == null || scratch.getWidth() != w || scratch.getHeight() != h) {
+            scratch = new WallGrid(w, h);
+            regions.set(scratch);
+        } else {
+            scratch.reset();
+        }
+
+        generators.get().generate(scratch, new SplittableRandom(Seeds.mix(seed + region)));
+        grid.copyFrom(scratch, x0, y0);
+    }
+
+    /**
+     * Open one passage for every edge of a random spanning tree over the regions.
+     *
+     * @param grid Grid to carve
+     * @param regionsX Number of region columns
+     * @param regionsY Number of region rows
+     * @param random Random source
+     */
+    private void joinRegions(WallGrid grid, int regionsX, int regionsY, SplittableRandom random) {
+        // Kruskal's over the region graph, with edges encoded as region * 2 + (0 right, 1 down)
+        int count = regionsX * regionsY;
+        int[] parent = new int[count];
+        int[] edges = new int[count * 2];
+        int edgeCount = 0;
+        for (int region = 0; region < count; region++) {
+            parent[region] = region;
+            if (region % regionsX < regionsX - 1) {
+                edges[edgeCount++] = region << 1;
+            }
+            if (region / regionsX < regionsY - 1) {
+                edges[edgeCount++] = (region << 1) | 1;
+            }
+        }
+
+        for (int i = edgeCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = edges[i];
+            edges[i] = edges[j];
+            edges[j] = tmp;
+        }
+
+        for (int i = 0; i < edgeCount; i++) {
+            int region = edges[i] >>> 1;
+            boolean down = (edges[i] & 1) != 0;
+            int other = down ? region + regionsX : region + 1;
+
+            int a = find(parent, region);
+            int b = find(parent, other);
+            if (a == b) {
+                continue;
+            }
+            parent[b] = a;
+
+            // Open a passage at a random point along the shared border
+            int x0 = (region % regionsX) * regionSize;
+            int y0 = (region / regionsX) * regionSize;
+            if (down) {
+                int span = Math.min(regionSize, grid.getWidth() - x0);
+                grid.carve(x0 + random.nextInt(span), y0 + regionSize - 1, WallGrid.BOTTOM);
+            } else {
+                int span = Math.min(regionSize, grid.getHeight() - y0);
+                grid.carve(x0 + regionSize - 1, y0 + random.nextInt(span), WallGrid.RIGHT);
+            }
+        }
+    }
+
+    /**
+     * Find the root of a region's set.
+     *
+     * @param parent Union-find parents
+     * @param region Region index
+     * @return Root region index
+     */
+    private static int find(int[] parent, int region) {
+        while (parent[region] != region) {
+            parent[region] = parent[parent[region]];
+            region = parent[region];
+        }
+        return region;
+    }
+
+    /**
+     * Fork/join task that carves a range of regions.
+     */
+    private class CarveRegions extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 4;
+
+        private WallGrid grid;
+        private long seed;
+        private int regionsX;
+        private int from;
+        private int to;
+
+        /**
+         * Constructor for creating a new carving task.
+         *
+         * @param grid Grid to carve
+         * @param seed Maze seed
+         * @param regionsX Number of region columns
+         * @param from First region index
+         * @param to Region index after the last one
+         */
+        CarveRegions(WallGrid grid, long seed, int regionsX, int from, int to) {
+            this.grid = grid;
+            this.seed = seed;
+            this.regionsX = regionsX;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int region = from; region < to; region++) {
+                    carveRegion(grid, seed, regionsX, region);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new CarveRegions(grid, seed, regionsX, from, middle),
+                    new CarveRegions(grid, seed, regionsX, middle, to));
+        }
+    }
+}
@@ -0,0 +1,584 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+
+/**
+ * Path finding over a fully resident maze.
+ * Keeps a BFS distance field from the finish that is updated incrementally
+ * when walls change, and answers A* and jump (JPS-style) path queries between
+ * any two cells. All buffers are allocated up front, so queries do not create
+ * garbage.
+ *
+ * Cells are addressed by index (y * width + x). A service is not thread-safe.
+ */
+public class PathService implements WallChangeListener {
+    /** Distance of cells that cannot reach the finish. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] WALLS = {WallGrid.TOP, WallGrid.RIGHT, WallGrid.BOTTOM, WallGrid.LEFT};
+
+    private Maze maze;
+    private IndexedWallStore grid;
+    private int width;
+    private int height;
+    private int size;
+    private int finish;
+    private int[] distance;
+
+    // Scratch buffers shared by the distance field updates and the path queries
+    private int[] queue;
+    private long[] seeds;
+    private int[] mark;
+    private int stamp;
+    private int[] gScore;
+    private int[] parent;
+    private byte[] entryWall;
+    private int[] heap;
+    private int[] heapKey;
+    private int[] heapPos;
+
+    /**
+     * Constructor for creating a new path service.
+     * The service registers itself for wall changes on the maze.
+     *
+     * @param maze Maze to search; must be fully resident and have a finish
+     * @throws IllegalArgumentException if the maze is streamed, chunked or has no finish
+     */
+    public PathService(Maze maze) {
+        if (!(maze.getWalls() instanceof IndexedWallStore) || maze.getFinishX() < 0) {
+            throw new IllegalArgumentException("Path service needs a fully resident maze with a finish");
+        }
+
+        this.maze = maze;
+        this.grid = (IndexedWallStore) maze.getWalls();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.size = width * height;
+        this.finish = grid.index(maze.getFinishX(), maze.getFinishY());
+
+        this.distance = new int[size];
+        this.queue = new int[size];
+        this.seeds = new long[64];
+        this.mark = new int[size];
+        this.gScore = new int[size];
+        this.parent = new int[size];
+        this.entryWall = new byte[size];
+        this.heap = new int[size];
+        this.heapKey = new int[size];
+        this.heapPos = new int[size];
+
+        rebuildDistanceField();
+        maze.addWallChangeListener(this);
+    }
+
+    /**
+     * Stop listening for wall changes on the maze.
+     */
+    public void dispose() {
+        maze.removeWallChangeListener(this);
+    }
+
+    /**
+     * Get the maze this service searches.
+     *
+     * @return Maze
+     */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /**
+     * Recompute the whole distance field with a breadth-first search from the finish.
+     */
+    public void rebuildDistanceField() {
+        Arrays.fill(distance, UNREACHABLE);
+        distance[finish] = 0;
+        queue[0] = finish;
+        relaxFrom(1, 0);
+    }
+
+    /**
+     * Get the number of steps from a cell to the finish.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Distance to the finish, or UNREACHABLE
+     */
+    public int getDistanceToExit(int x, int y) {
+        return distance[y * width + x];
+    }
+
+    /**
+     * Get the direction of the next step on a shortest path to the finish.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Direction (1 = up, 2 = right, 3 = down, 4 = left), or 0 if there is none
+     */
+    public int getNextStepToExit(int x, int y) {
+        int cell = y * width + x;
+        int best = distance[cell];
+        if (best == 0 || best == UNREACHABLE) {
+            return 0;
+        }
+
+        for (int i = 0; i < WALLS.length; i++) {
+            int next = neighbor(cell, WALLS[i]);
+            if (next >= 0 && distance[next] == best - 1) {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Get the distance field.
+     * The array is owned by the service and must not be modified.
+     *
+     * @return Distance to the finish for every cell index
+     */
+    public int[] getDistanceField() {
+        return distance;
+    }
+
+    @Override
+    public void onWallChanged(int x, int y, int wall, boolean present) {
+        int a = y * width + x;
+        int nx = x + WallGrid.dx(wall);
+        int ny = y + WallGrid.dy(wall);
+        if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+            return;
+        }
+        int b = ny * width + nx;
+
+        if (present) {
+            wallAdded(a, b);
+        } else {
+            wallRemoved(a, b);
+        }
+    }
+
+    /**
+     * Update the distance field after a passage was opened; distances can only shrink.
+     *
+     * @param a First cell index
+     * @param b Second cell index
+     */
+    private void wallRemoved(int a, int b) {
+        if (distance[a] == UNREACHABLE && distance[b] == UNREACHABLE) {
+            return;
+        }
+
+        int near = distance[a] <= distance[b] ? a : b;
+        int far = near == a ? b : a;
+        if (distance[near] + 1 < distance[far]) {
+            distance[far] = distance[near] + 1;
+            queue[0] = far;
+            relaxFrom(1, 0);
+        }
+    }
+
+    /**
+     * Update the distance field after a passage was closed.
+     * Only cells whose every shortest path used the closed passage are recomputed.
+     *
+     * @param a First cell index
+     * @param b Second cell index
+     */
+    private void wallAdded(int a, int b) {
+        // The passage was only used if the distances differ by exactly one
+        if (distance[a] == UNREACHABLE || distance[b] == UNREACHABLE || Math.abs(distance[a] - distance[b]) != 1) {
+            return;
+        }
+        int child = distance[a] > distance[b] ? a : b;
+
+        // Find the cells that lost all their shortest paths, in order of distance
+        int queued = nextStamp();
+        int affectedStamp = nextStamp();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = child;
+        mark[child] = queued;
+        int affected = 0;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            if (hasParent(cell, affectedStamp)) {
+                continue;
+            }
+
+            mark[cell] = affectedStamp;
+            queue[affected++] = cell;
+            for (int wall : WALLS) {
+                int next = neighbor(cell, wall);
+                if (next >= 0 && mark[next] != queued && mark[next] != affectedStamp
+                        && distance[next] == distance[cell] + 1) {
+                    mark[next] = queued;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        // Seed each affected cell from its unaffected neighbors
+        int seedCount = 0;
+        for (int i = 0; i < affected; i++) {
+            int cell = queue[i];
+            int best = UNREACHABLE;
+            for (int wall : WALLS) {
+                int next = neighbor(cell, wall);
+                if (next >= 0 && mark[next] != affectedStamp && distance[next] != UNREACHABLE) {
+                    best = Math.min(best, distance[next] + 1);
+                }
+            }
+
+            distance[cell] = UNREACHABLE;
+            if (best != UNREACHABLE) {
+                if (seedCount == seeds.length) {
+                    seeds = Arrays.copyOf(seeds, seedCount * 2);
+                }
+                seeds[seedCount++] = ((long) best << 32) | cell;
+            }
+        }
+
+        // Merge the sorted seeds with a FIFO queue; unit weights keep both in order
+        Arrays.sort(seeds, 0, seedCount);
+        head = 0;
+        tail = 0;
+        int seedIndex = 0;
+        while (seedIndex < seedCount || head < tail) {
+            int cell;
+            if (head == tail || (seedIndex < seedCount && (int) (seeds[seedIndex] >>> 32) <= distance[queue[head]])) {
+                cell = (int) seeds[seedIndex];
+                int seedDistance = (int) (seeds[seedIndex++] >>> 32);
+                if (seedDistance >= distance[cell]) {
+                    continue;
+                }
+                distance[cell] = seedDistance;
+            } else {
+                cell = queue[head++];
+            }
+
+            for (int wall : WALLS) {
+                int next = neighbor(cell, wall);
+                if (next >= 0 && distance[cell] + 1 < distance[next]) {
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if a cell still has an open neighbor one step closer to the finish
+     * that has not been marked as affected.
+     *
+     * @param cell Cell index
+     * @param affectedStamp Stamp of affected cells
+     * @return true if the cell keeps its distance, false otherwise
+     */
+    private boolean hasParent(int cell, int affectedStamp) {
+        for (int wall : WALLS) {
+            int next = neighbor(cell, wall);
+            if (next >= 0 && mark[next] != affectedStamp && distance[next] == distance[cell] - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Breadth-first relaxation of distances from the cells in the queue.
+     *
+     * @param tail Number of cells already in the queue
+     * @param head Index of the first cell to process
+     */
+    private void relaxFrom(int tail, int head) {
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = distance[cell] + 1;
+            for (int wall : WALLS) {
+                int other = neighbor(cell, wall);
+                if (other >= 0 && next < distance[other]) {
+                    distance[other] = next;
+                    queue[tail++] = other;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a shortest path with A*.
+     *
+     * @param fromX Start X position
+     * @param fromY Start Y position
+     * @param toX Goal X position
+     * @param toY Goal Y position
+     * @param path Buffer receiving the cell indices from start to goal; may be null
+     * @return Number of cells on the path, or -1 if the goal cannot be reached
+     */
+    public int findPath(int fromX, int fromY, int toX, int toY, int[] path) {
+        return search(fromY * width + fromX, toY * width + toX, false, path);
+    }
+
+    /**
+     * Find a shortest path with jump search.
+     * Walls sit between cells rather than in them, so instead of jumping along
+     * straight lines the search jumps along corridors: it only stops at
+     * junctions, dead ends and the goal, which skips most of a maze's cells.
+     *
+     * @param fromX Start X position
+     * @param fromY Start Y position
+     * @param toX Goal X position
+     * @param toY Goal Y position
+     * @param path Buffer receiving the cell indices from start to goal; may be null
+     * @return Number of cells on the path, or -1 if the goal cannot be reached
+     */
+    public int findPathJps(int fromX, int fromY, int toX, int toY, int[] path) {
+        return search(fromY * width + fromX, toY * width + toX, true, path);
+    }
+
+    /**
+     * Run an A* search.
+     *
+     * @param start Start cell index
+     * @param goal Goal cell index
+     * @param jump Whether to jump along corridors
+     * @param path Buffer receiving the path; may be null
+     * @return Number of cells on the path, or -1 if the goal cannot be reached
+     */
+    private int search(int start, int goal, boolean jump, int[] path) {
+        int search = nextStamp();
+        int goalX = goal % width;
+        int goalY = goal / width;
+        int heapSize = 0;
+
+        mark[start] = search;
+        gScore[start] = 0;
+        parent[start] = -1;
+        heapSize = heapPush(heapSize, start, heuristic(start, goalX, goalY));
+
+        while (heapSize > 0) {
+            int cell = heap[0];
+            heapSize = heapPop(heapSize);
+            heapPos[cell] = -1;
+
+            if (cell == goal) {
+                return buildPath(start, goal, path);
+            }
+
+            int cellWalls = grid.getBits(cell);
+            for (int wall : WALLS) {
+                if ((cellWalls & wall) != 0) {
+                    continue;
+                }
+
+                int next = cell + WallGrid.dx(wall) + WallGrid.dy(wall) * width;
+                int cost = 1;
+
+                // Follow the corridor until something interesting happens
+                if (jump) {
+                    int from = WallGrid.opposite(wall);
+                    while (next != goal && next != cell) {
+                        int open = ~grid.getBits(next) & WallGrid.ALL_WALLS & ~from;
+                        if (open == 0 || (open & (open - 1)) != 0) {
+                            break;
+                        }
+                        next += WallGrid.dx(open) + WallGrid.dy(open) * width;
+                        from = WallGrid.opposite(open);
+                        cost++;
+                    }
+                }
+
+                int tentative = gScore[cell] + cost;
+                if (mark[next] == search && tentative >= gScore[next]) {
+                    continue;
+                }
+
+                boolean seen = mark[next] == search;
+                mark[next] = search;
+                gScore[next] = tentative;
+                parent[next] = cell;
+                entryWall[next] = (byte) wall;
+                int key = tentative + heuristic(next, goalX, goalY);
+
+                if (seen && heapPos[next] >= 0) {
+                    heapKey[next] = key;
+                    siftUp(heapPos[next]);
+                } else {
+                    heapSize = heapPush(heapSize, next, key);
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Write the path found by the last search.
+     *
+     * @param start Start cell index
+     * @param goal Goal cell index
+     * @param path Buffer receiving the path; may be null
+     * @return Number of cells on the path
+     */
+    private int buildPath(int start, int goal, int[] path) {
+        int length = gScore[goal] + 1;
+        if (path == null) {
+            return length;
+        }
+
+        // Walk back from the goal; jumps are expanded by following their corridor again
+        int index = length - 1;
+        int cell = goal;
+        while (cell != start) {
+            int from = parent[cell];
+            int steps = gScore[cell] - gScore[from];
+            int wall = entryWall[cell];
+
+            // Replay the corridor forwards into the right slots
+            int at = from;
+            int slot = index - steps + 1;
+            for (int i = 0; i < steps; i++) {
+                at += WallGrid.dx(wall) + WallGrid.dy(wall) * width;
+                if (slot + i < path.length) {
+                    path[slot + i] = at;
+                }
+                int open = ~grid.getBits(at) & WallGrid.ALL_WALLS & ~WallGrid.opposite(wall);
+                if (open != 0 && (open & (open - 1)) == 0) {
+                    wall = open;
+                }
+            }
+
+            index -= steps;
+            cell = from;
+        }
+
+        if (path.length > 0) {
+            path[0] = start;
+        }
+        return length;
+    }
+
+    /**
+     * Manhattan distance heuristic.
+     *
+     * @param cell Cell index
+     * @param goalX Goal X position
+     * @param goalY Goal Y position
+     * @return Lower bound on the remaining steps
+     */
+    private int heuristic(int cell, int goalX, int goalY) {
+        return Math.abs(cell % width - goalX) + Math.abs(cell / width - goalY);
+    }
+
+    /**
+     * Get the neighbor behind a wall, if the way is open.
+     *
+     * @param cell Cell index
+     * @param wall Wall bit
+     * @return Neighbor cell index, or -1 if there is a wall
+     */
+    private int neighbor(int cell, int wall) {
+        if ((grid.getBits(cell) & wall) != 0) {
+            return -1;
+        }
+        return cell + WallGrid.dx(wall) + WallGrid.dy(wall) * width;
+    }
+
+    /**
+     * Get a fresh stamp for the mark buffer, so it never needs clearing.
+     *
+     * @return Stamp
+     */
+    private int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    /**
+     * Push a cell onto the open-set heap.
+     *
+     * @param heapSize Current heap size
+     * @param cell Cell index
+     * @param key Priority
+     * @return New heap size
+     */
+    private int heapPush(int heapSize, int cell, int key) {
+        heap[heapSize] = cell;
+        heapKey[cell] = key;
+        heapPos[cell] = heapSize;
+        siftUp(heapSize);
+        return heapSize + 1;
+    }
+
+    /**
+     * Remove the top of the open-set heap.
+     *
+     * @param heapSize Current heap size
+     * @return New heap size
+     */
+    private int heapPop(int heapSize) {
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapPos[last] = 0;
+            siftDown(0, heapSize);
+        }
+        return heapSize;
+    }
+
+    /**
+     * Move a heap entry up to its place.
+     *
+     * @param index Heap index
+     */
+    private void siftUp(int index) {
+        int cell = heap[index];
+        int key = heapKey[cell];
+        while (index > 0) {
+            int up = (index - 1) >>> 1;
+            int other = heap[up];
+            if (heapKey[other] <= key) {
+                break;
+            }
+            heap[index] = other;
+            heapPos[other] = index;
+            index = up;
+        }
+        heap[index] = cell;
+        heapPos[cell] = index;
+    }
+
+    /**
+     * Move a heap entry down to its place.
+     *
+     * @param index Heap index
+     * @param heapSize Current heap size
+     */
+    private void siftDown(int index, int heapSize) {
+        int cell = heap[index];
+        int key = heapKey[cell];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKey[heap[child + 1]] < heapKey[heap[child]]) {
+                child++;
+            }
+            int other = heap[child];
+            if (heapKey[other] >= key) {
+                break;
+            }
+            heap[index] = other;
+            heapPos[other] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapPos[cell] = index;
+    }
+}
@@ -1,5 +1,7 @@
 //package com.motionmaze.game;
 
+import java.util.SplittableRandom;
+
 /**
  * Player in the game.
  */
@@ -9,11 +11,8 @@ public class Player {
     private int health;
     private int score;
     private boolean hasKey;
-    private boolean trapped;
-    private boolean shielded;
-    private boolean slowed;
-    private boolean speedBoost;
-    private long statusEffectEndTime;
+    private StatusEffects effects;
+    private SplittableRandom random;
 
     /**
      * Constructor for creating a new player.
@@ -22,16 +21,24 @@ public class Player {
      * @param y Y position
      */
     public Player(int x, int y) {
+        this(x, y, new SplittableRandom());
+    }
+
+    /**
+     * Constructor for creating a new player with a random stream.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param random Random source for chance effects, such as stumbling while slowed
+     */
+    public Player(int x, int y, SplittableRandom random) {
         this.x = x;
         this.y = y;
         this.health = 100;
         this.score = 0;
         this.hasKey = false;
-        this.trapped = false;
-        this.shielded = false;
-        this.slowed = false;
-        this.speedBoost = false;
-        this.statusEffectEndTime = 0;
+        this.effects = new StatusEffects(0);
+        this.random = random;
     }
 
     /**
@@ -42,17 +49,17 @@ public class Player {
      */
     public void move(int dx, int dy) {
         // If trapped, cannot move
-        if (trapped) {
+        if (isTrapped()) {
             return;
         }
 
         // If slowed, only move at half speed (50% chance to not move)
-        if (slowed && Math.random() < 0.5) {
+        if (isSlowed() && random.nextDouble() < 0.5) {
             return;
         }
 
         // If speed boost, move twice as fast
-        if (speedBoost) {
+        if (hasSpeedBoost()) {
             this.x += dx * 2;
             this.y += dy * 2;
         } else {
@@ -79,7 +86,7 @@ public class Player {
      */
     public void takeDamage(int damage) {
         // If shielded, take no damage
-        if (shielded) {
+        if (isShielded()) {
             removeShield();
             return;
         }
@@ -108,91 +115,93 @@ public class Player {
     public void reset() {
         this.health = 100;
         this.hasKey = false;
-        this.trapped = false;
-        this.shielded = false;
-        this.slowed = false;
-        this.speedBoost = false;
-        this.statusEffectEndTime = 0;
+        effects.clear();
+    }
+
+    /**
+     * Move the player's status effects to a new tick, ending those that expire.
+     * Called by the engine at the start of every tick.
+     *
+     * @param tick Current tick
+     */
+    public void updateEffects(long tick) {
+        effects.advance(tick);
     }
 
     /**
      * Trap the player for a period of time.
      *
-     * @param durationMs Duration in milliseconds
+     * @param durationTicks Duration in ticks
      */
-    public void trap(long durationMs) {
+    public void trap(int durationTicks) {
         // If shielded, cannot be trapped
-        if (shielded) {
+        if (isShielded()) {
             removeShield();
             return;
         }
 
-        this.trapped = true;
-        this.statusEffectEndTime = System.currentTimeMillis() + durationMs;
+        effects.start(StatusEffect.TRAPPED, durationTicks);
     }
 
     /**
      * Release the player from a trap.
      */
     public void release() {
-        this.trapped = false;
+        effects.end(StatusEffect.TRAPPED);
     }
 
     /**
      * Add a shield to the player.
      *
-     * @param durationMs Duration in milliseconds
+     * @param durationTicks Duration in ticks
      */
-    public void addShield(long durationMs) {
-        this.shielded = true;
-        this.statusEffectEndTime = System.currentTimeMillis() + durationMs;
+    public void addShield(int durationTicks) {
+        effects.start(StatusEffect.SHIELDED, durationTicks);
     }
 
     /**
      * Remove the shield from the player.
      */
     public void removeShield() {
-        this.shielded = false;
+        effects.end(StatusEffect.SHIELDED);
     }
 
     /**
      * Slow the player for a period of time.
      *
-     * @param durationMs Duration in milliseconds
+     * @param durationTicks Duration in ticks
      */
-    public void slow(long durationMs) {
+    public void slow(int durationTicks) {
         // If shielded, cannot be slowed
-        if (shielded) {
+        if (isShielded()) {
             removeShield();
             return;
         }
 
-        this.slowed = true;
-        this.statusEffectEndTime = System.currentTimeMillis() + durationMs;
+        effects.start(StatusEffect.SLOWED, durationTicks);
     }
 
     /**
      * Remove the slowness effect from the player.
      */
     public void removeSlowness() {
-        this.slowed = false;
+        effects.end(StatusEffect.SLOWED);
     }
 
     /**
      * Add a speed boost to the player.
      *
-     * @param durationMs Duration in milliseconds
+     * @param durationTicks Duration in ticks
      */
-    public void addSpeedBoost(long durationMs) {
-        this.speedBoost = true;
-        this.statusEffectEndTime = System.currentTimeMillis() + durationMs;
+    public void addSpeedBoost(int durationTicks) {
+        effects.start(StatusEffect.SPEED_BOOST, durationTicks);
     }
 
     /**
      * Remove the speed boost from the player.
      */
     public void removeSpeedBoost() {
-        this.speedBoost = false;
+        effects.end(StatusEffect.SPEED_BOOST);
     }
 
     /**
@@ -273,7 +282,7 @@ public class Player {
      * @return true if the player is trapped, false otherwise
      */
     public boolean isTrapped() {
-        return trapped;
+        return effects.isActive(StatusEffect.TRAPPED);
     }
 
     /**
@@ -282,7 +291,7 @@ public class Player {
      * @return true if the player is shielded, false otherwise
      */
     public boolean isShielded() {
-        return shielded;
+        return effects.isActive(StatusEffect.SHIELDED);
     }
 
     /**
@@ -291,7 +300,7 @@ public class Player {
      * @return true if the player is slowed, false otherwise
      */
     public boolean isSlowed() {
-        return slowed;
+        return effects.isActive(StatusEffect.SLOWED);
     }
 
     /**
@@ -300,15 +309,15 @@ public class Player {
      * @return true if the player has a speed boost, false otherwise
      */
     public boolean hasSpeedBoost() {
-        return speedBoost;
+        return effects.isActive(StatusEffect.SPEED_BOOST);
     }
 
     /**
-     * Get the time when the current status effect ends.
+     * Get the player's status effects.
      *
-     * @return Status effect end time in milliseconds
+     * @return Status effects
      */
-    public long getStatusEffectEndTime() {
-        return statusEffectEndTime;
+    public StatusEffects getEffects() {
+        return effects;
     }
 }
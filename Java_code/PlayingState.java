@@ -40,6 +40,7 @@ public class PlayingState implements GameState {
         if (maze.isValidMove(newX, newY)) {
             // Move the player
             player.move(dx, dy);
+            maze.focus(player.getX(), player.getY());
 
             // Check if the player reached the exit
             if (maze.isExit(player.getX(), player.getY())) {
@@ -53,13 +54,14 @@ public class PlayingState implements GameState {
             if (obstacle != null) {
                 // Apply the obstacle effect
                 obstacle.apply(player);
+                gameEngine.publishEvent(GameEventType.OBSTACLE_HIT, player.getX(), player.getY(), obstacle);
 
                 // Use LED to indicate collision
                 gameEngine.getZigBeeManager().sendLedCommand(0); // Red LED
                 gameEngine.getZigBeeManager().sendBuzzerCommand(1); // Collision sound
 
-                // Reset LED after a brief moment (in real implementation)
-                gameEngine.getZigBeeManager().sendLedCommand(7); // LED off
+                // Turn the LED off after a brief flash
+                gameEngine.getZigBeeManager().scheduleLedCommand(7, ZigBeeManager.LED_FLASH_MS); // LED off
 
                 // Decrease score
                 player.increaseScore(-50);
@@ -76,6 +78,7 @@ public class PlayingState implements GameState {
 
                 // Remove the power-up
                 maze.removePowerUp(powerUp);
+                gameEngine.publishEvent(GameEventType.POWER_UP_COLLECTED, player.getX(), player.getY(), powerUp);
 
                 // Increase score
                 player.increaseScore(25);
@@ -101,7 +104,7 @@ public class PlayingState implements GameState {
         gameEngine.getZigBeeManager().sendServoCommand(10); // ~120 degrees
 
         // Randomly spawn a new event (power-up or obstacle)
-        if (Math.random() < 0.3) { // 30% chance
+        if (gameEngine.getEventRandom().nextDouble() < 0.3) { // 30% chance
             gameEngine.spawnRandomEvent();
         }
     }
@@ -120,8 +123,8 @@ public class PlayingState implements GameState {
         // Use LED to indicate motion detection
         gameEngine.getZigBeeManager().sendLedCommand(6); // White LED
 
-        // Reset LED after a brief moment (in real implementation)
-        gameEngine.getZigBeeManager().sendLedCommand(7); // LED off
+        // Turn the LED off after a brief flash
+        gameEngine.getZigBeeManager().scheduleLedCommand(7, ZigBeeManager.LED_FLASH_MS); // LED off
 
         // Move servo to indicate motion detection
         gameEngine.getZigBeeManager().sendServoCommand(3); // ~35 degrees
@@ -134,8 +137,7 @@ public class PlayingState implements GameState {
         // Reset motion detected flag
         gameEngine.setMotionDetected(false);
 
-        // Notify all observers
-        gameEngine.notifyObservers();
+        // Observers are notified by the engine once the tick is finished
     }
 
     @Override
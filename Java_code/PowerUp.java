@@ -3,7 +3,7 @@
 /**
  * Power-up in the game.
  */
-public class PowerUp {
+public class PowerUp implements MazeEntity {
     private int x;
     private int y;
     private PowerUpType type;
@@ -55,6 +55,7 @@ public class PowerUp {
      *
      * @return X position
      */
+    @Override
     public int getX() {
         return x;
     }
@@ -64,6 +65,7 @@ public class PowerUp {
      *
      * @return Y position
      */
+    @Override
     public int getY() {
         return y;
     }
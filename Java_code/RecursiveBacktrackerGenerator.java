@@ -0,0 +1,96 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Depth-first search maze generator.
+ * Uses an int array as the backtracking stack and a bitset for visited cells,
+ * so the generation loop does not allocate.
+ */
+public class RecursiveBacktrackerGenerator implements MazeGenerator {
+    private int[] stack = new int[0];
+    private long[] visited = new long[0];
+    private int[] candidates = new int[4];
+
+    @Override
+    public void generate(WallGrid grid, SplittableRandom random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int size = width * height;
+        ensureCapacity(size);
+
+        // Start from the top-left corner
+        int current = 0;
+        visited[0] |= 1L;
+        int top = 0;
+
+        // Depth-first search
+        while (true) {
+            int x = current % width;
+            int y = current / width;
+            int count = 0;
+
+            // Check the four adjacent cells
+            if (y > 0 && !isVisited(current - width)) {
+                candidates[count++] = WallGrid.TOP;
+            }
+
+            if (x < width - 1 && !isVisited(current + 1)) {
+                candidates[count++] = WallGrid.RIGHT;
+            }
+
+            if (y < height - 1 && !isVisited(current + width)) {
+                candidates[count++] = WallGrid.BOTTOM;
+            }
+
+            if (x > 0 && !isVisited(current - 1)) {
+                candidates[count++] = WallGrid.LEFT;
+            }
+
+            if (count > 0) {
+                // Carve towards a random unvisited neighbor
+                int wall = candidates[count == 1 ? 0 : random.nextInt(count)];
+                grid.carve(x, y, wall);
+
+                int next = current + WallGrid.dx(wall) + WallGrid.dy(wall) * width;
+                visited[next >>> 6] |= 1L << next;
+                stack[top++] = current;
+                current = next;
+            } else if (top > 0) {
+                // Backtrack
+                current = stack[--top];
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Check if a cell has been visited.
+     *
+     * @param cell Cell index
+     * @return true if the cell has been visited, false otherwise
+     */
+    private boolean isVisited(int cell) {
+        return (visited[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Make sure the scratch buffers can hold a grid and clear the visited bits.
+     *
+     * @param size Number of cells in the grid
+     */
+    private void ensureCapacity(int size) {
+        if (stack.length < size) {
+            stack = new int[size];
+        }
+
+        int words = (size + 63) >>> 6;
+        if (visited.length < words) {
+            visited = new long[words];
+        } else {
+            Arrays.fill(visited, 0, words, 0L);
+        }
+    }
+}
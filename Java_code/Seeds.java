@@ -0,0 +1,36 @@
+//package com.motionmaze.game;
+
+/**
+ * Helpers for deriving independent seeds from a parent seed.
+ */
+public final class Seeds {
+    /**
+     * Private constructor; this class only has static helpers.
+     */
+    private Seeds() {
+    }
+
+    /**
+     * Scramble a 64-bit value (SplitMix64 finalizer).
+     * Nearby inputs, such as consecutive region or chunk indices, give unrelated outputs.
+     *
+     * @param z Value to scramble
+     * @return Scrambled value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Derive the seed of one region, such as a chunk, from a parent seed.
+     *
+     * @param seed Parent seed
+     * @param key Key of the region
+     * @return Seed for the region
+     */
+    public static long derive(long seed, long key) {
+        return mix(seed ^ mix(key));
+    }
+}
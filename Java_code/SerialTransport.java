@@ -0,0 +1,141 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ZigBee link over a serial port or TTY, such as the XBee's USB adapter.
+ * The port is put into raw mode with stty and opened as a file channel; a
+ * dedicated reader thread blocks on the port so the game loop never does.
+ */
+public class SerialTransport implements ZigBeeTransport {
+    private static final int BUFFER_SIZE = 256;
+
+    private String device;
+    private int baudRate;
+    private FileChannel channel;
+    private ByteBuffer readBuffer;
+    private ZigBeeReceiver receiver;
+    private Thread reader;
+    private volatile boolean open;
+
+    /**
+     * Constructor for creating a new serial transport.
+     *
+     * @param device Path of the serial device, such as /dev/ttyUSB0
+     * @param baudRate Baud rate of the link
+     */
+    public SerialTransport(String device, int baudRate) {
+        this.device = device;
+        this.baudRate = baudRate;
+        this.readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        if (open) {
+            return;
+        }
+
+        configurePort();
+        channel = FileChannel.open(Paths.get(device), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        open = true;
+
+        reader = new Thread(this::readLoop, "zigbee-serial-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+
+        // Closing the channel wakes the reader out of its blocking read
+        open = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + device + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer data) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    @Override
+    public int getBacklog() {
+        // Writes block until the driver has taken the bytes
+        return 0;
+    }
+
+    @Override
+    public void setReceiver(ZigBeeReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Put the port into raw mode at the configured baud rate.
+     *
+     * @throws IOException If stty failed
+     */
+    private void configurePort() throws IOException {
+        // Raw, no echo, and a read returns as soon as one byte is available
+        Process stty = new ProcessBuilder("stty", "-F", device, Integer.toString(baudRate),
+                "raw", "-echo", "min", "1", "time", "0")
+                .redirectErrorStream(true)
+                .start();
+        try {
+            if (stty.waitFor() != 0) {
+                throw new IOException("stty failed for " + device);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted configuring " + device, e);
+        }
+    }
+
+    /**
+     * Read from the port until it is closed.
+     */
+    private void readLoop() {
+        try {
+            while (open) {
+                readBuffer.clear();
+                int read = channel.read(readBuffer);
+                if (read < 0) {
+                    break;
+                }
+
+                readBuffer.flip();
+                ZigBeeReceiver current = receiver;
+                if (read > 0 && current != null) {
+                    current.onReceive(readBuffer, System.nanoTime());
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close()
+        } catch (IOException e) {
+            System.err.println("Error reading " + device + ": " + e.getMessage());
+        }
+        open = false;
+    }
+}
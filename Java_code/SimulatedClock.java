@@ -0,0 +1,38 @@
+//package com.motionmaze.game;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Game clock that only moves when told to.
+ * Starts at the current System.nanoTime(), so timers set against the wall
+ * clock carry over, and then advances in fixed steps.
+ */
+public class SimulatedClock implements LongSupplier {
+    private long now;
+
+    /**
+     * Constructor for creating a new clock at the current wall-clock time.
+     */
+    public SimulatedClock() {
+        this.now = System.nanoTime();
+    }
+
+    /**
+     * Move the clock forward.
+     *
+     * @param nanos Time to advance by, in nanoseconds
+     */
+    public void advance(long nanos) {
+        now += nanos;
+    }
+
+    /**
+     * Get the current simulated time.
+     *
+     * @return Time in nanoseconds
+     */
+    @Override
+    public long getAsLong() {
+        return now;
+    }
+}
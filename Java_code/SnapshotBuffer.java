@@ -0,0 +1,92 @@
+//package com.motionmaze.game;
+
+/**
+ * Small pool of reusable {@link GameSnapshot}s with one writer and any number of readers.
+ * The game loop fills a snapshot that is neither the latest one nor held
+ * by a reader, then publishes it through a volatile field. A reader pins
+ * the latest snapshot and checks it is still the latest, so a snapshot is
+ * never refilled while it is being read. With three snapshots one reader
+ * at a time always leaves a free one to fill; if readers hold every spare
+ * snapshot, the tick is simply not published and readers keep seeing the
+ * one before. No one locks and nothing is allocated per tick.
+ */
+public class SnapshotBuffer {
+    private GameSnapshot[] snapshots;
+    private volatile GameSnapshot latest;
+    private volatile long published;
+    private volatile long skipped;
+
+    /**
+     * Constructor for creating a new snapshot buffer.
+     *
+     * @param size Number of snapshots (at least 2; 3 for triple buffering)
+     */
+    public SnapshotBuffer(int size) {
+        this.snapshots = new GameSnapshot[Math.max(2, size)];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new GameSnapshot();
+        }
+    }
+
+    /**
+     * Capture the game engine into a free snapshot and make it the latest.
+     * Call only from the game loop thread.
+     *
+     * @param gameEngine Game engine to capture
+     * @return true if a snapshot was published, false if readers held them all
+     */
+    public boolean publish(GameEngine gameEngine) {
+        GameSnapshot current = latest;
+        for (GameSnapshot snapshot : snapshots) {
+            if (snapshot != current && !snapshot.isPinned()) {
+                snapshot.capture(gameEngine);
+                latest = snapshot;
+                published++;
+                return true;
+            }
+        }
+
+        skipped++;
+        return false;
+    }
+
+    /**
+     * Get and hold the latest snapshot. Safe to call from any thread.
+     * The caller must {@link GameSnapshot#release()} it when done.
+     *
+     * @return Latest snapshot, or null if none has been published
+     */
+    public GameSnapshot acquire() {
+        while (true) {
+            GameSnapshot snapshot = latest;
+            if (snapshot == null) {
+                return null;
+            }
+
+            // If it is still the latest once pinned, the writer cannot be refilling it
+            snapshot.pin();
+            if (snapshot == latest) {
+                return snapshot;
+            }
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Get the number of snapshots published.
+     *
+     * @return Number of snapshots published
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * Get the number of ticks not published because readers held every spare snapshot.
+     *
+     * @return Number of skipped ticks
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,197 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * ZigBee link over a TCP socket.
+ * Stands in for the radio when it is bridged over the network (or for a
+ * local {@link ArduinoStandIn} in tests). The channel is non-blocking and a
+ * single selector thread does the reading and drains any bytes a write
+ * could not send straight away.
+ */
+public class SocketTransport implements ZigBeeTransport {
+    private static final int BUFFER_SIZE = 4096;
+
+    private String host;
+    private int port;
+    private SocketChannel channel;
+    private Selector selector;
+    private SelectionKey key;
+    private ByteBuffer readBuffer;
+    private ByteBuffer pending;
+    private ZigBeeReceiver receiver;
+    private Thread thread;
+    private volatile boolean open;
+
+    /**
+     * Constructor for creating a new socket transport.
+     *
+     * @param host Host to connect to
+     * @param port Port to connect to
+     */
+    public SocketTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        if (open) {
+            return;
+        }
+
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        key = channel.register(selector, SelectionKey.OP_READ);
+        pending.clear();
+        open = true;
+
+        thread = new Thread(this::selectLoop, "zigbee-socket-selector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+
+        open = false;
+        selector.wakeup();
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void write(ByteBuffer data) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+        synchronized (pending) {
+            // Only write directly if nothing is queued, to keep bytes in order
+            if (pending.position() == 0) {
+                channel.write(data);
+            }
+            if (!data.hasRemaining()) {
+                return;
+            }
+
+            if (data.remaining() > pending.remaining()) {
+                throw new IOException("ZigBee send buffer full");
+            }
+            pending.put(data);
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public int getBacklog() {
+        synchronized (pending) {
+            return pending.position();
+        }
+    }
+
+    @Override
+    public void setReceiver(ZigBeeReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Serve the channel until the transport is closed.
+     */
+    private void selectLoop() {
+        try {
+            while (open) {
+                selector.select();
+                if (!key.isValid()) {
+                    break;
+                }
+
+                if (key.isReadable() && !readAvailable()) {
+                    break;
+                }
+                if (key.isWritable()) {
+                    flushPending();
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            System.err.println("ZigBee socket error: " + e.getMessage());
+        }
+
+        open = false;
+        try {
+            selector.close();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing ZigBee socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read everything the socket has and pass it on.
+     *
+     * @return false if the other side closed the connection, true otherwise
+     * @throws IOException If the read failed
+     */
+    private boolean readAvailable() throws IOException {
+        while (true) {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                return false;
+            }
+            if (read == 0) {
+                return true;
+            }
+
+            readBuffer.flip();
+            ZigBeeReceiver current = receiver;
+            if (current != null) {
+                current.onReceive(readBuffer, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Send bytes that earlier writes had to queue.
+     *
+     * @throws IOException If the write failed
+     */
+    private void flushPending() throws IOException {
+        synchronized (pending) {
+            pending.flip();
+            channel.write(pending);
+            pending.compact();
+
+            // Stop watching for writability once everything is out
+            if (pending.position() == 0) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+//package com.motionmaze.game;
+
+/**
+ * Timed effects that can be active on a player.
+ * The ordinal indexes the player's {@link StatusEffects}.
+ */
+public enum StatusEffect {
+    /** The player cannot move. */
+    TRAPPED,
+    /** The next hit, trap or slowing is absorbed. */
+    SHIELDED,
+    /** The player only gets half of its moves. */
+    SLOWED,
+    /** The player moves two cells at a time. */
+    SPEED_BOOST
+}
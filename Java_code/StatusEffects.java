@@ -0,0 +1,128 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+
+/**
+ * Timed status effects of one player.
+ * Each {@link StatusEffect} has its own expiry tick in a small array
+ * indexed by the effect's ordinal, so effects never cut each other short,
+ * and a pending timer keyed by the same ordinal in a {@link TimingWheel}.
+ * Advancing one tick visits a single wheel slot, so the cost per tick is
+ * the number of effects expiring, not the number active. Time is counted in
+ * game ticks rather than read from the clock, so the same inputs always end
+ * effects on the same ticks.
+ *
+ * Only used on the game loop thread.
+ */
+public class StatusEffects {
+    private static final StatusEffect[] EFFECTS = StatusEffect.values();
+    private static final int WHEEL_SLOTS = 256;
+    private static final long INACTIVE = 0;
+
+    private long[] expiryTicks;
+    private TimingWheel timers;
+    private TimingWheel.Handler expiryHandler;
+    private long tick;
+
+    /**
+     * Constructor for creating an empty set of effects.
+     *
+     * @param tick Current tick
+     */
+    public StatusEffects(long tick) {
+        this.expiryTicks = new long[EFFECTS.length];
+        this.timers = new TimingWheel(WHEEL_SLOTS, EFFECTS.length, tick);
+        this.expiryHandler = (effect, payload) -> expiryTicks[effect] = INACTIVE;
+        this.tick = tick;
+    }
+
+    /**
+     * Start an effect, or extend it if it is already active.
+     * An active effect keeps its later expiry.
+     *
+     * @param effect Effect to start
+     * @param durationTicks Number of ticks the effect lasts (at least one)
+     */
+    public void start(StatusEffect effect, int durationTicks) {
+        int index = effect.ordinal();
+        long expiry = tick + Math.max(1, durationTicks);
+        if (expiry <= expiryTicks[index]) {
+            return;
+        }
+
+        // A keyed timer replaces the effect's pending one
+        expiryTicks[index] = expiry;
+        timers.schedule(index, expiry, 0);
+    }
+
+    /**
+     * End an effect now.
+     *
+     * @param effect Effect to end
+     */
+    public void end(StatusEffect effect) {
+        int index = effect.ordinal();
+        expiryTicks[index] = INACTIVE;
+        timers.cancel(index);
+    }
+
+    /**
+     * End every effect.
+     */
+    public void clear() {
+        for (StatusEffect effect : EFFECTS) {
+            timers.cancel(effect.ordinal());
+        }
+        Arrays.fill(expiryTicks, INACTIVE);
+    }
+
+    /**
+     * Move to a new tick and end the effects that expire by then.
+     *
+     * @param tick New current tick
+     */
+    public void advance(long tick) {
+        this.tick = tick;
+        timers.advance(tick, expiryHandler);
+    }
+
+    /**
+     * Check if an effect is active.
+     *
+     * @param effect Effect to check
+     * @return true if the effect is active, false otherwise
+     */
+    public boolean isActive(StatusEffect effect) {
+        return expiryTicks[effect.ordinal()] != INACTIVE;
+    }
+
+    /**
+     * Get the tick an effect ends on.
+     *
+     * @param effect Effect to check
+     * @return Expiry tick, or 0 if the effect is not active
+     */
+    public long getExpiryTick(StatusEffect effect) {
+        return expiryTicks[effect.ordinal()];
+    }
+
+    /**
+     * Get the number of ticks an effect has left.
+     *
+     * @param effect Effect to check
+     * @return Remaining ticks, or 0 if the effect is not active
+     */
+    public long getRemainingTicks(StatusEffect effect) {
+        long expiry = expiryTicks[effect.ordinal()];
+        return expiry == INACTIVE ? 0 : expiry - tick;
+    }
+
+    /**
+     * Get the current tick.
+     *
+     * @return Current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+}
@@ -0,0 +1,176 @@
+//package com.motionmaze.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Wall store for mazes of unbounded height.
+ * Rows are carved on demand with Eller's algorithm and kept in a ring buffer
+ * of a fixed number of rows; the oldest row is dropped when a new one is
+ * needed, so memory stays O(width) however far down the maze goes.
+ */
+public class StreamingWallWindow implements WallStore {
+    private int width;
+    private int windowRows;
+    private byte[] rows;
+    private EllerRowGenerator generator;
+    private SplittableRandom random;
+    private volatile int firstRow;
+    private volatile int nextRow;
+    private WallStoreListener listener;
+
+    /**
+     * Constructor for creating a new streaming window.
+     *
+     * @param width Width of the maze
+     * @param windowRows Number of rows kept in memory
+     * @param random Random source for carving rows
+     */
+    public StreamingWallWindow(int width, int windowRows, SplittableRandom random) {
+        this.width = width;
+        this.windowRows = windowRows;
+        this.rows = new byte[width * windowRows];
+        this.generator = new EllerRowGenerator(width);
+        this.random = random;
+        this.firstRow = 0;
+        this.nextRow = 0;
+    }
+
+    /**
+     * Make sure a row has been carved, sliding the window down if needed.
+     *
+     * @param y Row to carve up to
+     */
+    public void ensureRow(int y) {
+        while (nextRow <= y) {
+            // Drop the oldest row when the window is full
+            if (nextRow - firstRow == windowRows) {
+                if (listener != null) {
+                    listener.onRegionEvicted(0, firstRow, width, 1);
+                }
+                firstRow++;
+            }
+
+            generator.nextRow(rows, slot(nextRow), false, random);
+            nextRow++;
+
+            if (listener != null) {
+                listener.onRegionLoaded(0, nextRow - 1, width, 1);
+            }
+        }
+    }
+
+    /**
+     * Get the offset of a row in the ring buffer.
+     *
+     * @param y Row
+     * @return Offset of the row's first cell
+     */
+    private int slot(int y) {
+        return (y % windowRows) * width;
+    }
+
+    @Override
+    public int getBits(int x, int y) {
+        // Rows that scrolled out are treated as solid
+        if (y < firstRow) {
+            return WallGrid.ALL_WALLS;
+        }
+
+        ensureRow(y);
+        return rows[slot(y) + x];
+    }
+
+    @Override
+    public int peekBits(int x, int y) {
+        if (x < 0 || x >= width || y < firstRow || y >= nextRow) {
+            return WallGrid.ALL_WALLS;
+        }
+
+        // The row may be dropped and its slot recarved while it is read; the
+        // resident rows then change, so whatever drew it is redrawn
+        int bits = rows[slot(y) + x];
+        return y < firstRow ? WallGrid.ALL_WALLS : bits;
+    }
+
+    @Override
+    public boolean hasWall(int x, int y, int wall) {
+        return (getBits(x, y) & wall) != 0;
+    }
+
+    @Override
+    public void setFlag(int x, int y, int flag, boolean present) {
+        if (y < firstRow) {
+            return;
+        }
+
+        ensureRow(y);
+        int i = slot(y) + x;
+        if (present) {
+            rows[i] |= flag;
+        } else {
+            rows[i] &= ~flag;
+        }
+    }
+
+    @Override
+    public void setWall(int x, int y, int wall, boolean present) {
+        setFlag(x, y, wall, present);
+
+        // Keep the shared wall consistent on the other side
+        int nx = x + WallGrid.dx(wall);
+        int ny = y + WallGrid.dy(wall);
+        if (nx >= 0 && nx < width && ny >= 0) {
+            setFlag(nx, ny, WallGrid.opposite(wall), present);
+        }
+    }
+
+    @Override
+    public int getFirstColumn() {
+        return 0;
+    }
+
+    @Override
+    public int getLastColumn() {
+        return width - 1;
+    }
+
+    @Override
+    public void focus(int x, int y) {
+        // Keep half the window ahead of the player
+        ensureRow(y + windowRows / 2);
+    }
+
+    @Override
+    public void setListener(WallStoreListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    @Override
+    public int getLastRow() {
+        return nextRow - 1;
+    }
+
+    /**
+     * Get the number of rows kept in memory.
+     *
+     * @return Window size in rows
+     */
+    public int getWindowRows() {
+        return windowRows;
+    }
+}
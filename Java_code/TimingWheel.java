@@ -0,0 +1,246 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel.
+ * Timers hang off the slot for their deadline modulo the wheel size, in
+ * doubly linked lists held in parallel arrays, so scheduling, cancelling and
+ * firing are O(1) and no object is created per timer. Time is measured in
+ * whatever unit the owner advances the wheel by; deadlines further away than
+ * one turn of the wheel simply wait in their slot for later turns.
+ *
+ * Timers can carry a key. Scheduling a keyed timer cancels the pending timer
+ * with the same key, which is how "turn the LED off in 150 ms" replaces an
+ * earlier request for the same LED.
+ */
+public class TimingWheel {
+    /** Key for timers that never replace each other. */
+    public static final int NO_KEY = -1;
+
+    private static final int NONE = -1;
+
+    /**
+     * Callback for expired timers.
+     */
+    public interface Handler {
+        /**
+         * Called when a timer expires.
+         *
+         * @param key Key of the timer, or NO_KEY
+         * @param payload Value the timer was scheduled with
+         */
+        void onTimer(int key, int payload);
+    }
+
+    private int[] slotHeads;
+    private int mask;
+    private long now;
+
+    // Timer pool: one entry per timer, linked into a slot or the free list
+    private long[] deadlines;
+    private int[] keys;
+    private int[] payloads;
+    private int[] next;
+    private int[] previous;
+    private int free;
+    private int size;
+
+    private int[] timerByKey;
+
+    /**
+     * Constructor for creating a new timing wheel.
+     *
+     * @param slots Number of slots (rounded up to a power of two)
+     * @param keyCount Number of distinct keys; keys run from 0 to keyCount - 1
+     * @param start Current time
+     */
+    public TimingWheel(int slots, int keyCount, long start) {
+        int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        this.slotHeads = new int[size];
+        this.mask = size - 1;
+        this.now = start;
+        Arrays.fill(slotHeads, NONE);
+
+        this.deadlines = new long[0];
+        this.keys = new int[0];
+        this.payloads = new int[0];
+        this.next = new int[0];
+        this.previous = new int[0];
+        this.free = NONE;
+        this.size = 0;
+
+        this.timerByKey = new int[keyCount];
+        Arrays.fill(timerByKey, NONE);
+    }
+
+    /**
+     * Schedule a timer.
+     *
+     * @param key Key of the timer, or NO_KEY
+     * @param deadline Time at which the timer expires
+     * @param payload Value passed back when the timer expires
+     */
+    public void schedule(int key, long deadline, int payload) {
+        if (key != NO_KEY) {
+            cancel(key);
+        }
+
+        int timer = allocate();
+        deadlines[timer] = Math.max(deadline, now + 1);
+        keys[timer] = key;
+        payloads[timer] = payload;
+
+        // Push onto the front of the slot's list
+        int slot = (int) deadlines[timer] & mask;
+        previous[timer] = NONE;
+        next[timer] = slotHeads[slot];
+        if (slotHeads[slot] != NONE) {
+            previous[slotHeads[slot]] = timer;
+        }
+        slotHeads[slot] = timer;
+
+        if (key != NO_KEY) {
+            timerByKey[key] = timer;
+        }
+        size++;
+    }
+
+    /**
+     * Cancel the pending timer with a key.
+     *
+     * @param key Key of the timer
+     * @return true if a timer was cancelled, false if none was pending
+     */
+    public boolean cancel(int key) {
+        int timer = timerByKey[key];
+        if (timer == NONE) {
+            return false;
+        }
+
+        remove(timer);
+        return true;
+    }
+
+    /**
+     * Check if a timer with a key is pending.
+     *
+     * @param key Key of the timer
+     * @return true if a timer is pending, false otherwise
+     */
+    public boolean isPending(int key) {
+        return timerByKey[key] != NONE;
+    }
+
+    /**
+     * Get the deadline of the pending timer with a key.
+     *
+     * @param key Key of the timer
+     * @return Deadline, or -1 if no timer is pending
+     */
+    public long getDeadline(int key) {
+        int timer = timerByKey[key];
+        return timer == NONE ? -1 : deadlines[timer];
+    }
+
+    /**
+     * Move the wheel forward and fire every timer that has expired.
+     *
+     * @param time New current time
+     * @param handler Handler for expired timers
+     */
+    public void advance(long time, Handler handler) {
+        if (time <= now) {
+            return;
+        }
+
+        // Visit each slot passed over, but never more than one full turn
+        long from = time - now > mask ? time - mask : now + 1;
+        now = time;
+        for (long tick = from; tick <= time && size > 0; tick++) {
+            int slot = (int) tick & mask;
+            int timer = slotHeads[slot];
+            while (timer != NONE) {
+                if (deadlines[timer] > time) {
+                    // Due on a later turn of the wheel
+                    timer = next[timer];
+                    continue;
+                }
+
+                int key = keys[timer];
+                int payload = payloads[timer];
+                remove(timer);
+                handler.onTimer(key, payload);
+
+                // The handler may have scheduled or cancelled timers, so start the slot again
+                timer = slotHeads[slot];
+            }
+        }
+    }
+
+    /**
+     * Get the current time of the wheel.
+     *
+     * @return Current time
+     */
+    public long getTime() {
+        return now;
+    }
+
+    /**
+     * Get the number of pending timers.
+     *
+     * @return Number of pending timers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take a timer from the free list, growing the pool if it is empty.
+     *
+     * @return Timer index
+     */
+    private int allocate() {
+        if (free == NONE) {
+            int oldLength = deadlines.length;
+            int newLength = Math.max(16, oldLength * 2);
+            deadlines = Arrays.copyOf(deadlines, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+            payloads = Arrays.copyOf(payloads, newLength);
+            next = Arrays.copyOf(next, newLength);
+            previous = Arrays.copyOf(previous, newLength);
+            for (int i = newLength - 1; i >= oldLength; i--) {
+                next[i] = free;
+                free = i;
+            }
+        }
+
+        int timer = free;
+        free = next[timer];
+        return timer;
+    }
+
+    /**
+     * Unlink a timer from its slot and return it to the free list.
+     *
+     * @param timer Timer index
+     */
+    private void remove(int timer) {
+        if (previous[timer] != NONE) {
+            next[previous[timer]] = next[timer];
+        } else {
+            slotHeads[(int) deadlines[timer] & mask] = next[timer];
+        }
+        if (next[timer] != NONE) {
+            previous[next[timer]] = previous[timer];
+        }
+
+        if (keys[timer] != NO_KEY) {
+            timerByKey[keys[timer]] = NONE;
+        }
+        next[timer] = free;
+        free = timer;
+        size--;
+    }
+}
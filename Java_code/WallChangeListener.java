@@ -0,0 +1,16 @@
+//package com.motionmaze.game;
+
+/**
+ * Listener for walls that change after a maze has been generated.
+ */
+public interface WallChangeListener {
+    /**
+     * Called after a wall has been added or removed.
+     *
+     * @param x X position of the cell
+     * @param y Y position of the cell
+     * @param wall Wall bit (TOP, RIGHT, BOTTOM or LEFT)
+     * @param present Whether the wall is now present
+     */
+    void onWallChanged(int x, int y, int wall, boolean present);
+}
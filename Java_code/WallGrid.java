@@ -0,0 +1,279 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+
+/**
+ * Compact wall storage for the maze.
+ * Stores the four walls of every cell as bits in one byte per cell,
+ * so a maze costs width * height bytes instead of one object per cell.
+ */
+public class WallGrid implements IndexedWallStore {
+    /** Top wall bit. */
+    public static final int TOP = 1;
+    /** Right wall bit. */
+    public static final int RIGHT = 2;
+    /** Bottom wall bit. */
+    public static final int BOTTOM = 4;
+    /** Left wall bit. */
+    public static final int LEFT = 8;
+    /** All four walls. */
+    public static final int ALL_WALLS = TOP | RIGHT | BOTTOM | LEFT;
+    /** Visited flag, used by code that walks the maze through Cell views. */
+    public static final int VISITED = 16;
+
+    private int width;
+    private int height;
+    private byte[] cells;
+
+    /**
+     * Constructor for creating a new wall grid with every wall present.
+     *
+     * @param width Width of the grid
+     * @param height Height of the grid
+     */
+    public WallGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+        Arrays.fill(cells, (byte) ALL_WALLS);
+    }
+
+    /**
+     * Put every wall back so the grid can be carved again.
+     */
+    public void reset() {
+        Arrays.fill(cells, (byte) ALL_WALLS);
+    }
+
+    /**
+     * Get the index of a cell in the backing array.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Index of the cell
+     */
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Get the raw bits of a cell.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Wall and flag bits of the cell
+     */
+    @Override
+    public int getBits(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    @Override
+    public int peekBits(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return ALL_WALLS;
+        }
+        return cells[y * width + x];
+    }
+
+    /**
+     * Get the raw bits of a cell by index.
+     *
+     * @param index Index of the cell, as returned by {@link #index(int, int)}
+     * @return Wall and flag bits of the cell
+     */
+    @Override
+    public int getBits(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Check if a wall is present.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit (TOP, RIGHT, BOTTOM or LEFT)
+     * @return true if the wall is present, false otherwise
+     */
+    @Override
+    public boolean hasWall(int x, int y, int wall) {
+        return (cells[y * width + x] & wall) != 0;
+    }
+
+    /**
+     * Overwrite a whole row of cells.
+     *
+     * @param y Row to overwrite
+     * @param row Buffer holding the wall bytes of the row
+     * @param offset Offset of the first cell in the buffer
+     */
+    public void setRow(int y, byte[] row, int offset) {
+        System.arraycopy(row, offset, cells, y * width, width);
+    }
+
+    /**
+     * Copy another grid into this one.
+     *
+     * @param source Grid to copy
+     * @param x X position of the source's top-left cell in this grid
+     * @param y Y position of the source's top-left cell in this grid
+     */
+    public void copyFrom(WallGrid source, int x, int y) {
+        for (int row = 0; row < source.height; row++) {
+            System.arraycopy(source.cells, row * source.width, cells, (y + row) * width + x, source.width);
+        }
+    }
+
+    /**
+     * Set or clear a flag on a single cell, without touching its neighbor.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param flag Wall or flag bit
+     * @param present Whether the bit should be set
+     */
+    @Override
+    public void setFlag(int x, int y, int flag, boolean present) {
+        int i = y * width + x;
+        if (present) {
+            cells[i] |= flag;
+        } else {
+            cells[i] &= ~flag;
+        }
+    }
+
+    /**
+     * Set a wall on a cell and the matching wall on its neighbor.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit (TOP, RIGHT, BOTTOM or LEFT)
+     * @param present Whether the wall should be present
+     */
+    @Override
+    public void setWall(int x, int y, int wall, boolean present) {
+        setFlag(x, y, wall, present);
+
+        // Keep the shared wall consistent on the other side
+        int nx = x + dx(wall);
+        int ny = y + dy(wall);
+        if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+            setFlag(nx, ny, opposite(wall), present);
+        }
+    }
+
+    /**
+     * Remove the wall between a cell and its neighbor.
+     * The neighbor must lie inside the grid.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit pointing at the neighbor
+     */
+    public void carve(int x, int y, int wall) {
+        // Hot path for the generators: neighbor is known to be inside the grid
+        int i = y * width + x;
+        int neighbor = i + dx(wall) + dy(wall) * width;
+        cells[i] &= ~wall;
+        cells[neighbor] &= ~opposite(wall);
+    }
+
+    /**
+     * Clear the visited flag on every cell.
+     */
+    public void clearVisited() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] &= ~VISITED;
+        }
+    }
+
+    /**
+     * Get the width of the grid.
+     *
+     * @return Width of the grid
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the grid.
+     *
+     * @return Height of the grid
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFirstRow() {
+        return 0;
+    }
+
+    @Override
+    public int getLastRow() {
+        return height - 1;
+    }
+
+    @Override
+    public int getFirstColumn() {
+        return 0;
+    }
+
+    @Override
+    public int getLastColumn() {
+        return width - 1;
+    }
+
+    @Override
+    public void focus(int x, int y) {
+        // The whole grid is always resident
+    }
+
+    @Override
+    public void setListener(WallStoreListener listener) {
+        // The whole grid is always resident, so there is nothing to report
+    }
+
+    /**
+     * Get the wall on the opposite side of a shared edge.
+     *
+     * @param wall Wall bit
+     * @return Opposite wall bit
+     */
+    public static int opposite(int wall) {
+        switch (wall) {
+            case TOP:
+                return BOTTOM;
+            case RIGHT:
+                return LEFT;
+            case BOTTOM:
+                return TOP;
+            default:
+                return RIGHT;
+        }
+    }
+
+    /**
+     * Get the X offset of the neighbor behind a wall.
+     *
+     * @param wall Wall bit
+     * @return X offset (-1, 0 or 1)
+     */
+    public static int dx(int wall) {
+        return wall == RIGHT ? 1 : (wall == LEFT ? -1 : 0);
+    }
+
+    /**
+     * Get the Y offset of the neighbor behind a wall.
+     *
+     * @param wall Wall bit
+     * @return Y offset (-1, 0 or 1)
+     */
+    public static int dy(int wall) {
+        return wall == BOTTOM ? 1 : (wall == TOP ? -1 : 0);
+    }
+}
@@ -0,0 +1,293 @@
+//package com.motionmaze.ui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Cached image layer holding the walls of a maze.
+ * Walls are drawn once into square tiles of {@link #TILE_CELLS} cells and
+ * the tiles are copied on every paint, so a frame costs a handful of image
+ * copies however many cells are on screen. Tiles are opaque compatible
+ * images over the panel background, which Java2D copies without blending and
+ * keeps in video memory where it can.
+ *
+ * A tile is rebuilt when a wall in it changes, when the resident part of a
+ * streamed or chunked maze inside it changes, or when a new maze is shown.
+ * The least recently drawn tiles are dropped once {@link #MAX_TILES} are cached.
+ *
+ * {@link #bind} and wall change events come from the game loop thread; every
+ * other method must be called on the one thread that paints, such as the
+ * event dispatch thread. The painting thread never uses the store the way
+ * the game loop does: the resident area comes from a {@link GameSnapshot}
+ * and walls are read with {@link WallStore#peekBits}, which loads and
+ * caches nothing.
+ */
+public class WallLayer implements WallChangeListener {
+    /** Width and height of a tile, in cells. */
+    public static final int TILE_CELLS = 8;
+    /** Maximum number of tiles kept. */
+    public static final int MAX_TILES = 64;
+
+    private int cellSize;
+    private int wallThickness;
+    private int tileSize;
+    private Color background;
+    private Maze boundMaze;
+    private Maze paintedMaze;
+    private LinkedHashMap<Long, Tile> tiles;
+    private ConcurrentLinkedQueue<Long> staleTiles;
+    private BufferedImage spare;
+    private long tilesBuilt;
+    private long tilesDrawn;
+
+    /**
+     * Constructor for creating a new wall layer.
+     *
+     * @param cellSize Size of a cell in pixels
+     * @param wallThickness Thickness of a wall in pixels
+     * @param background Color behind the walls
+     */
+    public WallLayer(int cellSize, int wallThickness, Color background) {
+        this.cellSize = cellSize;
+        this.wallThickness = wallThickness;
+        this.tileSize = TILE_CELLS * cellSize;
+        this.background = background;
+        this.staleTiles = new ConcurrentLinkedQueue<>();
+        this.tiles = new LinkedHashMap<Long, Tile>(MAX_TILES * 2, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                if (size() <= MAX_TILES) {
+                    return false;
+                }
+
+                // Keep one image back so the next new tile does not allocate
+                spare = eldest.getValue().image;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Follow wall changes in a maze.
+     * Call from the game loop thread whenever the engine may have a new maze.
+     *
+     * @param maze Maze being played, or null
+     */
+    public void bind(Maze maze) {
+        if (maze == boundMaze) {
+            return;
+        }
+
+        if (boundMaze != null) {
+            boundMaze.removeWallChangeListener(this);
+        }
+        boundMaze = maze;
+        if (maze != null) {
+            maze.addWallChangeListener(this);
+        }
+    }
+
+    @Override
+    public void onWallChanged(int x, int y, int wall, boolean present) {
+        // The wall is drawn from both cells that share it
+        invalidate(x, y);
+        invalidate(x + WallGrid.dx(wall), y + WallGrid.dy(wall));
+    }
+
+    /**
+     * Mark every tile that draws a cell's walls as stale.
+     * Walls at the edge of a tile are also drawn by the tiles next to it.
+     *
+     * @param x X position of the cell
+     * @param y Y position of the cell
+     */
+    private void invalidate(int x, int y) {
+        for (int tileY = Math.floorDiv(y - 1, TILE_CELLS); tileY <= Math.floorDiv(y + 1, TILE_CELLS); tileY++) {
+            for (int tileX = Math.floorDiv(x - 1, TILE_CELLS); tileX <= Math.floorDiv(x + 1, TILE_CELLS); tileX++) {
+                staleTiles.add(key(tileX, tileY));
+            }
+        }
+    }
+
+    /**
+     * Draw the walls of the resident cells that fall in an area.
+     *
+     * @param g2d Graphics2D context, translated to maze coordinates
+     * @param snapshot Game state to draw the maze of
+     * @param area Area to cover, in maze pixel coordinates
+     */
+    public void paint(Graphics2D g2d, GameSnapshot snapshot, Rectangle area) {
+        Maze maze = snapshot.getMaze();
+        if (maze != paintedMaze) {
+            tiles.clear();
+            staleTiles.clear();
+            paintedMaze = maze;
+        }
+
+        Long stale;
+        while ((stale = staleTiles.poll()) != null) {
+            tiles.remove(stale);
+        }
+
+        // Tiles that overlap both the area and the resident cells
+        int firstX = Math.max(snapshot.getFirstColumn(), Math.floorDiv(area.x, cellSize));
+        int firstY = Math.max(snapshot.getFirstRow(), Math.floorDiv(area.y, cellSize));
+        int lastX = Math.min(snapshot.getLastColumn(), Math.floorDiv(area.x + area.width, cellSize));
+        int lastY = Math.min(snapshot.getLastRow(), Math.floorDiv(area.y + area.height, cellSize));
+        if (firstX > lastX || firstY > lastY) {
+            return;
+        }
+
+        for (int tileY = Math.floorDiv(firstY, TILE_CELLS); tileY <= Math.floorDiv(lastY, TILE_CELLS); tileY++) {
+            for (int tileX = Math.floorDiv(firstX, TILE_CELLS); tileX <= Math.floorDiv(lastX, TILE_CELLS); tileX++) {
+                Tile tile = getTile(g2d, snapshot, tileX, tileY);
+                g2d.drawImage(tile.image, tileX * tileSize, tileY * tileSize, null);
+                tilesDrawn++;
+            }
+        }
+    }
+
+    /**
+     * Get a tile, building it if it is missing or out of date.
+     *
+     * @param g2d Graphics2D context the tile will be drawn to
+     * @param snapshot Game state to draw the maze of
+     * @param tileX X position of the tile, in tiles
+     * @param tileY Y position of the tile, in tiles
+     * @return Tile that is up to date
+     */
+    private Tile getTile(Graphics2D g2d, GameSnapshot snapshot, int tileX, int tileY) {
+        // The tile's resident cells plus the ring around them, whose walls reach into the tile
+        int firstX = Math.max(snapshot.getFirstColumn(), tileX * TILE_CELLS - 1);
+        int firstY = Math.max(snapshot.getFirstRow(), tileY * TILE_CELLS - 1);
+        int lastX = Math.min(snapshot.getLastColumn(), tileX * TILE_CELLS + TILE_CELLS);
+        int lastY = Math.min(snapshot.getLastRow(), tileY * TILE_CELLS + TILE_CELLS);
+
+        Long key = key(tileX, tileY);
+        Tile tile = tiles.get(key);
+        if (tile != null && tile.firstX == firstX && tile.firstY == firstY && tile.lastX == lastX && tile.lastY == lastY) {
+            return tile;
+        }
+
+        if (tile == null) {
+            tile = new Tile();
+            tile.image = takeImage(g2d);
+            tiles.put(key, tile);
+        }
+        tile.firstX = firstX;
+        tile.firstY = firstY;
+        tile.lastX = lastX;
+        tile.lastY = lastY;
+        buildTile(tile, snapshot.getMaze(), tileX * TILE_CELLS, tileY * TILE_CELLS);
+        tilesBuilt++;
+        return tile;
+    }
+
+    /**
+     * Get an empty image for a tile, reusing the last dropped one if there is one.
+     *
+     * @param g2d Graphics2D context the tile will be drawn to
+     * @return Image sized for a tile
+     */
+    private BufferedImage takeImage(Graphics2D g2d) {
+        BufferedImage image = spare;
+        spare = null;
+        if (image == null) {
+            image = g2d.getDeviceConfiguration().createCompatibleImage(tileSize, tileSize, Transparency.OPAQUE);
+        }
+        return image;
+    }
+
+    /**
+     * Draw the walls of a tile into its image.
+     *
+     * @param tile Tile to draw
+     * @param maze Maze to draw
+     * @param originX X position of the tile's first cell
+     * @param originY Y position of the tile's first cell
+     */
+    private void buildTile(Tile tile, Maze maze, int originX, int originY) {
+        WallStore walls = maze.getWalls();
+        Graphics2D g2d = tile.image.createGraphics();
+
+        // Clear what the image held before
+        g2d.setColor(background);
+        g2d.fillRect(0, 0, tileSize, tileSize);
+
+        // Set color for walls
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(Color.BLACK);
+        g2d.setStroke(new BasicStroke(wallThickness));
+
+        for (int y = tile.firstY; y <= tile.lastY; y++) {
+            for (int x = tile.firstX; x <= tile.lastX; x++) {
+                int bits = walls.peekBits(x, y);
+                int cellX = (x - originX) * cellSize;
+                int cellY = (y - originY) * cellSize;
+
+                // Draw walls
+                if ((bits & WallGrid.TOP) != 0) {
+                    g2d.drawLine(cellX, cellY, cellX + cellSize, cellY);
+                }
+
+                if ((bits & WallGrid.RIGHT) != 0) {
+                    g2d.drawLine(cellX + cellSize, cellY, cellX + cellSize, cellY + cellSize);
+                }
+
+                if ((bits & WallGrid.BOTTOM) != 0) {
+                    g2d.drawLine(cellX, cellY + cellSize, cellX + cellSize, cellY + cellSize);
+                }
+
+                if ((bits & WallGrid.LEFT) != 0) {
+                    g2d.drawLine(cellX, cellY, cellX, cellY + cellSize);
+                }
+            }
+        }
+        g2d.dispose();
+    }
+
+    /**
+     * Get the number of tiles built so far.
+     *
+     * @return Number of tiles built
+     */
+    public long getTilesBuilt() {
+        return tilesBuilt;
+    }
+
+    /**
+     * Get the number of tiles drawn so far, built or cached.
+     *
+     * @return Number of tiles drawn
+     */
+    public long getTilesDrawn() {
+        return tilesDrawn;
+    }
+
+    /**
+     * Pack tile coordinates into a map key.
+     *
+     * @param tileX X position, in tiles
+     * @param tileY Y position, in tiles
+     * @return Key
+     */
+    private static Long key(int tileX, int tileY) {
+        return ((long) tileY << 32) | (tileX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Cached image of one tile and the cells it was drawn from.
+     */
+    private static class Tile {
+        private BufferedImage image;
+        private int firstX;
+        private int firstY;
+        private int lastX;
+        private int lastY;
+    }
+}
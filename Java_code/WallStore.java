@@ -0,0 +1,118 @@
+//package com.motionmaze.game;
+
+/**
+ * Storage for the walls of a maze.
+ * Cells use the bit layout of {@link WallGrid}. A store may only keep part of
+ * the maze in memory; the resident area is reported by
+ * {@link #getFirstRow()}, {@link #getLastRow()}, {@link #getFirstColumn()}
+ * and {@link #getLastColumn()}.
+ */
+public interface WallStore {
+    /**
+     * Get the width of the maze.
+     *
+     * @return Width of the maze
+     */
+    int getWidth();
+
+    /**
+     * Get the height of the maze.
+     *
+     * @return Height of the maze, or Integer.MAX_VALUE if it is unbounded
+     */
+    int getHeight();
+
+    /**
+     * Get the first row that is currently held in memory.
+     *
+     * @return First resident row
+     */
+    int getFirstRow();
+
+    /**
+     * Get the last row that is currently held in memory.
+     *
+     * @return Last resident row
+     */
+    int getLastRow();
+
+    /**
+     * Get the first column that is currently held in memory.
+     *
+     * @return First resident column
+     */
+    int getFirstColumn();
+
+    /**
+     * Get the last column that is currently held in memory.
+     *
+     * @return Last resident column
+     */
+    int getLastColumn();
+
+    /**
+     * Get the raw bits of a cell.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Wall and flag bits of the cell
+     */
+    int getBits(int x, int y);
+
+    /**
+     * Get the raw bits of a cell without changing the store, from any thread.
+     * Nothing is loaded, carved or cached, and cells that are not in memory
+     * read as {@link WallGrid#ALL_WALLS}. A change being made on the game
+     * loop thread may be seen late; the maze's wall change listeners report it.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return Wall and flag bits of the cell
+     */
+    int peekBits(int x, int y);
+
+    /**
+     * Check if a wall is present.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit (TOP, RIGHT, BOTTOM or LEFT)
+     * @return true if the wall is present, false otherwise
+     */
+    boolean hasWall(int x, int y, int wall);
+
+    /**
+     * Set or clear a flag on a single cell, without touching its neighbor.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param flag Wall or flag bit
+     * @param present Whether the bit should be set
+     */
+    void setFlag(int x, int y, int flag, boolean present);
+
+    /**
+     * Set a wall on a cell and the matching wall on its neighbor.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param wall Wall bit (TOP, RIGHT, BOTTOM or LEFT)
+     * @param present Whether the wall should be present
+     */
+    void setWall(int x, int y, int wall, boolean present);
+
+    /**
+     * Tell the store where the player is, so it can load the area around them.
+     *
+     * @param x X position of the player
+     * @param y Y position of the player
+     */
+    void focus(int x, int y);
+
+    /**
+     * Set the listener told about regions that are loaded or dropped.
+     *
+     * @param listener Listener, or null for none
+     */
+    void setListener(WallStoreListener listener);
+}
@@ -0,0 +1,26 @@
+//package com.motionmaze.game;
+
+/**
+ * Listener for wall stores that load and drop parts of the maze on demand.
+ */
+public interface WallStoreListener {
+    /**
+     * Called after a region of the maze has been generated or loaded.
+     *
+     * @param x X position of the region
+     * @param y Y position of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     */
+    void onRegionLoaded(int x, int y, int width, int height);
+
+    /**
+     * Called before a region of the maze is dropped from memory.
+     *
+     * @param x X position of the region
+     * @param y Y position of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     */
+    void onRegionEvicted(int x, int y, int width, int height);
+}
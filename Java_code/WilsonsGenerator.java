@@ -0,0 +1,100 @@
+//package com.motionmaze.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Wilson's maze generator.
+ * Builds the maze from loop-erased random walks, which gives an unbiased
+ * sample of all possible mazes. The first walks are long on big grids, so
+ * this is the slowest of the generators; the walk directions are kept in a
+ * byte array so the loop itself does not allocate.
+ */
+public class WilsonsGenerator implements MazeGenerator {
+    private byte[] walk = new byte[0];
+    private long[] inMaze = new long[0];
+
+    @Override
+    public void generate(WallGrid grid, SplittableRandom random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int size = width * height;
+        ensureCapacity(size);
+
+        // Seed the maze with one random cell
+        int root = random.nextInt(size);
+        inMaze[root >>> 6] |= 1L << root;
+
+        for (int start = 0; start < size; start++) {
+            if (isInMaze(start)) {
+                continue;
+            }
+
+            // Random walk until the maze is hit; overwriting the exit direction erases loops
+            int current = start;
+            while (!isInMaze(current)) {
+                int wall = randomWall(current % width, current / width, width, height, random);
+                walk[current] = (byte) wall;
+                current += WallGrid.dx(wall) + WallGrid.dy(wall) * width;
+            }
+
+            // Carve the loop-erased path into the maze
+            current = start;
+            while (!isInMaze(current)) {
+                int wall = walk[current];
+                grid.carve(current % width, current / width, wall);
+                inMaze[current >>> 6] |= 1L << current;
+                current += WallGrid.dx(wall) + WallGrid.dy(wall) * width;
+            }
+        }
+    }
+
+    /**
+     * Pick a random wall of a cell that leads to another cell in the grid.
+     *
+     * @param x X position
+     * @param y Y position
+     * @param width Width of the grid
+     * @param height Height of the grid
+     * @param random Random source
+     * @return Wall bit
+     */
+    private int randomWall(int x, int y, int width, int height, SplittableRandom random) {
+        while (true) {
+            int wall = 1 << random.nextInt(4);
+            int nx = x + WallGrid.dx(wall);
+            int ny = y + WallGrid.dy(wall);
+            if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+                return wall;
+            }
+        }
+    }
+
+    /**
+     * Check if a cell is already part of the maze.
+     *
+     * @param cell Cell index
+     * @return true if the cell is in the maze, false otherwise
+     */
+    private boolean isInMaze(int cell) {
+        return (inMaze[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Make sure the scratch buffers can hold a grid and clear the maze bits.
+     *
+     * @param size Number of cells in the grid
+     */
+    private void ensureCapacity(int size) {
+        if (walk.length < size) {
+            walk = new byte[size];
+        }
+
+        int words = (size + 63) >>> 6;
+        if (inMaze.length < words) {
+            inMaze = new long[words];
+        } else {
+            Arrays.fill(inMaze, 0, words, 0L);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+//package com.motionmaze.game;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Headless conformance check for the ZigBee protocol.
+ * Exercises the frame codec with random splits and corruption, then runs the
+ * game's ZigBee manager against an {@link ArduinoStandIn} over loopback,
+ * including selective-ack retransmission and a restarted game reconnecting
+ * to an Arduino that still holds the old sequence numbers. Exits with status 1 on the first
+ * failure.
+ */
+public class ZigBeeConformance {
+    /**
+     * Run every check.
+     *
+     * @param args Unused
+     * @throws Exception If the loopback link failed
+     */
+    public static void main(String[] args) throws Exception {
+        checkCodec(new SplittableRandom(42));
+        checkLink();
+        checkReconnect();
+        System.out.println("ZigBee conformance: all checks passed");
+        System.exit(0);
+    }
+
+    /**
+     * Encode random frames with noise between them, corrupt some, and decode them in random pieces.
+     *
+     * @param random Random source
+     */
+    private static void checkCodec(SplittableRandom random) {
+        ByteBuffer stream = ByteBuffer.allocate(1 << 20);
+        List<byte[]> expected = new ArrayList<>();
+        int corrupted = 0;
+
+        for (int i = 0; i < 5000; i++) {
+            // Debug text between frames, as the Arduino prints on the same line
+            for (int noise = random.nextInt(4); noise > 0; noise--) {
+                stream.put((byte) ('a' + random.nextInt(26)));
+            }
+
+            byte[] payload = new byte[random.nextInt(ZigBeeProtocol.MAX_PAYLOAD + 1)];
+            for (int j = 0; j < payload.length; j++) {
+                payload[j] = (byte) random.nextInt(256);
+            }
+
+            int start = ZigBeeProtocol.beginFrame(stream, 0, i & 0xFF);
+            stream.put(payload);
+            ZigBeeProtocol.endFrame(stream, start);
+
+            if (random.nextInt(20) == 0) {
+                // Flip one bit anywhere but the start byte and length
+                int index = start + 1 + random.nextInt(stream.position() - start - 2);
+                if (index >= start + 3) {
+                    index++;
+                }
+                stream.put(index, (byte) (stream.get(index) ^ (1 << random.nextInt(8))));
+                corrupted++;
+            } else {
+                expected.add(payload);
+            }
+        }
+        stream.flip();
+
+        List<byte[]> decoded = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder((flags, seq, payload, receivedNanos) -> {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            decoded.add(bytes);
+        });
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(64);
+        while (stream.hasRemaining()) {
+            chunk.clear();
+            int take = Math.min(stream.remaining(), 1 + random.nextInt(chunk.capacity()));
+            for (int i = 0; i < take; i++) {
+                chunk.put(stream.get());
+            }
+            chunk.flip();
+            decoder.decode(chunk, System.nanoTime());
+            check(!chunk.hasRemaining(), "decoder left bytes unconsumed");
+        }
+
+        // Resyncing inside a rejected frame can swallow a neighbor or, very rarely, find a
+        // false frame whose CRC matches by chance, so match the survivors in order
+        int next = 0;
+        int matched = 0;
+        int unmatched = 0;
+        for (byte[] payload : decoded) {
+            int found = next;
+            while (found < expected.size() && !Arrays.equals(expected.get(found), payload)) {
+                found++;
+            }
+            if (found < expected.size()) {
+                matched++;
+                next = found + 1;
+            } else {
+                unmatched++;
+            }
+        }
+        check(matched >= expected.size() - corrupted, "lost intact frames: " + matched + " of " + expected.size());
+        check(unmatched <= corrupted / 16, "too many false frames: " + unmatched);
+        check(decoder.getCrcErrors() >= corrupted, "corruption was not detected");
+        System.out.println("Codec: " + matched + "/" + expected.size() + " intact frames decoded, "
+                + decoder.getCrcErrors() + " rejected, " + decoder.getDroppedBytes() + " bytes skipped");
+    }
+
+    /**
+     * Run the game's ZigBee manager against the stand-in.
+     *
+     * @throws Exception If the loopback link failed
+     */
+    private static void checkLink() throws Exception {
+        ArduinoStandIn arduino = new ArduinoStandIn();
+        GameEngine gameEngine = new GameEngine();
+        ZigBeeManager zigBee = gameEngine.getZigBeeManager();
+        zigBee.setTransport(new SocketTransport("localhost", arduino.getPort()));
+        zigBee.setSimulationMode(false);
+
+        Thread acceptor = new Thread(() -> {
+            try {
+                arduino.accept();
+            } catch (Exception e) {
+                System.err.println("Accept failed: " + e.getMessage());
+            }
+        });
+        acceptor.start();
+        gameEngine.start();
+        acceptor.join();
+
+        // The start commands arrive coalesced into one frame
+        int[] lastSeq = {-1};
+        List<Integer> commands = new ArrayList<>();
+        gameEngine.update();
+        arduino.receive((flags, seq, payload, receivedNanos) -> {
+            lastSeq[0] = seq;
+            while (payload.hasRemaining()) {
+                commands.add(payload.get() & 0xFF);
+            }
+        });
+        check(commands.contains(0x11) && commands.contains(0x37), "start frame missing LED green or servo center: " + commands);
+
+        // A tilt from the controller moves the player on the next tick
+        int x = gameEngine.getPlayer().getX();
+        int y = gameEngine.getPlayer().getY();
+        arduino.send(gameEngine.getMaze().isValidMove(x + 1, y) ? 2 : 3);
+        Thread.sleep(100);
+        gameEngine.update();
+        check(gameEngine.getPlayer().getX() != x || gameEngine.getPlayer().getY() != y, "tilt did not move the player");
+
+        // With ack mode, an unacknowledged frame is sent again with the same sequence number
+        zigBee.setAckMode(true);
+        int[] ackFlags = {0};
+        zigBee.sendLedCommand(4);
+        zigBee.flush();
+        arduino.receive((flags, seq, payload, receivedNanos) -> {
+            lastSeq[0] = seq;
+            ackFlags[0] = flags;
+        });
+        check((ackFlags[0] & ZigBeeProtocol.FLAG_ACK_REQUESTED) != 0, "ack mode frame did not request an ack");
+        int firstSeq = lastSeq[0];
+
+        Thread.sleep(150);
+        zigBee.flush();
+        arduino.receive((flags, seq, payload, receivedNanos) -> lastSeq[0] = seq);
+        check(lastSeq[0] == firstSeq, "retransmitted frame has a new sequence number");
+        check(zigBee.getFramesRetransmitted() == 1, "frame was not retransmitted");
+
+        // Once acknowledged it is not sent again
+        arduino.sendAck(firstSeq, 0);
+        Thread.sleep(150);
+        zigBee.flush();
+        check(zigBee.getFramesRetransmitted() == 1, "acknowledged frame was retransmitted");
+        check(zigBee.getDecoder().getCrcErrors() == 0, "game side saw corrupted frames on a clean link");
+
+        System.out.println("Link: start frame, tilt input and selective ack behave as specified");
+        gameEngine.stop();
+        arduino.close();
+    }
+
+    /**
+     * Restart the game against the same stand-in and check its first frame is acted on.
+     * The new manager numbers its frames from zero again, behind the last
+     * game's, so without the sync flag the Arduino would take them as stale.
+     *
+     * @throws Exception If the loopback link failed
+     */
+    private static void checkReconnect() throws Exception {
+        ArduinoStandIn arduino = new ArduinoStandIn();
+        boolean[] applied = {false};
+
+        // A first game moves the Arduino's receive window well past zero
+        GameEngine firstGame = connect(arduino);
+        arduino.receive((flags, seq, payload, receivedNanos) -> applied[0] = arduino.apply(flags, seq, payload));
+        for (int i = 0; i < 50; i++) {
+            firstGame.getZigBeeManager().sendLedCommand(2 + i % 2);
+            firstGame.getZigBeeManager().flush();
+            arduino.receive((flags, seq, payload, receivedNanos) -> applied[0] = arduino.apply(flags, seq, payload));
+        }
+        check(applied[0] && arduino.getActuator(1) == 3, "first game's frames were not applied");
+        firstGame.stop();
+
+        // A second game starts over at sequence number zero
+        GameEngine secondGame = connect(arduino);
+        int[] flagsSeen = {0};
+        arduino.receive((flags, seq, payload, receivedNanos) -> {
+            flagsSeen[0] = flags;
+            applied[0] = arduino.apply(flags, seq, payload);
+        });
+        check((flagsSeen[0] & ZigBeeProtocol.FLAG_SYNC) != 0, "first frame after connect has no sync flag");
+        check(applied[0], "first frame of the second game was taken as stale");
+        check(arduino.getActuator(1) == 1 && arduino.getActuator(3) == 7, "second game's start commands were not applied");
+
+        // Only the first frame re-bases the window
+        secondGame.getZigBeeManager().sendLedCommand(4);
+        secondGame.getZigBeeManager().flush();
+        arduino.receive((flags, seq, payload, receivedNanos) -> {
+            flagsSeen[0] = flags;
+            applied[0] = arduino.apply(flags, seq, payload);
+        });
+        check((flagsSeen[0] & ZigBeeProtocol.FLAG_SYNC) == 0, "sync flag sent after the first frame");
+        check(applied[0] && arduino.getActuator(1) == 4, "second game's next frame was not applied");
+
+        System.out.println("Reconnect: a restarted game's first frame re-bases the receive window");
+        secondGame.stop();
+        arduino.close();
+    }
+
+    /**
+     * Start a game in ack mode, connected to the stand-in, and tick it once.
+     *
+     * @param arduino Stand-in to connect to
+     * @return Running game engine
+     * @throws Exception If the loopback link failed
+     */
+    private static GameEngine connect(ArduinoStandIn arduino) throws Exception {
+        GameEngine gameEngine = new GameEngine();
+        ZigBeeManager zigBee = gameEngine.getZigBeeManager();
+        zigBee.setTransport(new SocketTransport("localhost", arduino.getPort()));
+        zigBee.setSimulationMode(false);
+        zigBee.setAckMode(true);
+
+        Thread acceptor = new Thread(() -> {
+            try {
+                arduino.accept();
+            } catch (Exception e) {
+                System.err.println("Accept failed: " + e.getMessage());
+            }
+        });
+        acceptor.start();
+        gameEngine.start();
+        acceptor.join();
+        gameEngine.update();
+        return gameEngine;
+    }
+
+    /**
+     * Fail the run if a condition does not hold.
+     *
+     * @param condition Condition that must hold
+     * @param message Description of the failure
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("ZigBee conformance FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared ZigBee coordinator radio serving many controllers.
+ * Each game session binds to one controller address and gets a
+ * {@link ZigBeeTransport} of its own, so its {@link ZigBeeManager} works
+ * exactly as on a dedicated link. Frames going out are re-framed with
+ * {@link ZigBeeProtocol#FLAG_ADDRESSED} and the controller address; frames
+ * coming in are decoded once on the radio's reader thread, routed by
+ * address, and handed to the session as a plain frame.
+ *
+ * Without a transport the coordinator stands in for a radio with nothing
+ * attached: writes are counted and discarded. This is how a host runs
+ * simulated sessions.
+ */
+public class ZigBeeCoordinator implements ZigBeeReceiver {
+    private ZigBeeTransport transport;
+    private AtomicReferenceArray<ZigBeeReceiver> receivers;
+    private FrameDecoder decoder;
+    private ByteBuffer inbound;
+    private ByteBuffer outbound;
+    private int openLinks;
+    private volatile long framesRouted;
+    private volatile long framesUnrouted;
+    private volatile long framesSent;
+
+    /**
+     * Constructor for creating a new coordinator.
+     *
+     * @param transport Link to the coordinator radio, or null to discard everything sent
+     */
+    public ZigBeeCoordinator(ZigBeeTransport transport) {
+        this.transport = transport;
+        this.receivers = new AtomicReferenceArray<>(ZigBeeProtocol.MAX_ADDRESS + 1);
+        this.decoder = new FrameDecoder(this::onFrame);
+        this.inbound = ByteBuffer.allocateDirect(ZigBeeProtocol.MAX_FRAME);
+        this.outbound = ByteBuffer.allocateDirect(ZigBeeProtocol.MAX_FRAME);
+        this.openLinks = 0;
+    }
+
+    /**
+     * Get a transport for the controller at an address.
+     * The coordinator radio is opened with the first link and closed with the last.
+     *
+     * @param address Controller address (0-65535)
+     * @return Transport that reaches only that controller
+     */
+    public ZigBeeTransport bind(int address) {
+        if (address < 0 || address > ZigBeeProtocol.MAX_ADDRESS) {
+            throw new IllegalArgumentException("Controller address out of range: " + address);
+        }
+        return new Link(address);
+    }
+
+    /**
+     * Decode frames from the coordinator radio.
+     *
+     * @param data Received bytes
+     * @param receivedNanos System.nanoTime() when the bytes were read
+     */
+    @Override
+    public void onReceive(ByteBuffer data, long receivedNanos) {
+        decoder.decode(data, receivedNanos);
+    }
+
+    /**
+     * Pass a frame on to the session bound to its address.
+     *
+     * @param flags Frame flags
+     * @param seq Sequence number
+     * @param payload Frame payload, starting with the address
+     * @param receivedNanos System.nanoTime() when the frame was read
+     */
+    private void onFrame(int flags, int seq, ByteBuffer payload, long receivedNanos) {
+        if ((flags & ZigBeeProtocol.FLAG_ADDRESSED) == 0 || payload.remaining() < ZigBeeProtocol.ADDRESS_SIZE) {
+            framesUnrouted++;
+            return;
+        }
+
+        int address = ((payload.get() & 0xFF) << 8) | (payload.get() & 0xFF);
+        ZigBeeReceiver receiver = receivers.get(address);
+        if (receiver == null) {
+            framesUnrouted++;
+            return;
+        }
+
+        // Hand the session the frame its controller sent, without the address
+        inbound.clear();
+        int start = ZigBeeProtocol.beginFrame(inbound, flags & ~ZigBeeProtocol.FLAG_ADDRESSED, seq);
+        inbound.put(payload);
+        ZigBeeProtocol.endFrame(inbound, start);
+        inbound.flip();
+        framesRouted++;
+        receiver.onReceive(inbound, receivedNanos);
+    }
+
+    /**
+     * Send a session's frames to its controller.
+     *
+     * @param address Controller address
+     * @param data Encoded frames, between position and limit
+     * @throws IOException If the radio link failed
+     */
+    private synchronized void write(int address, ByteBuffer data) throws IOException {
+        while (data.remaining() >= ZigBeeProtocol.OVERHEAD) {
+            int frame = data.position();
+            int versionAndFlags = data.get(frame + 1) & 0xFF;
+            int length = data.get(frame + 3) & 0xFF;
+            if (length > ZigBeeProtocol.MAX_PAYLOAD - ZigBeeProtocol.ADDRESS_SIZE) {
+                throw new IOException("Frame too long to address: " + length + " bytes");
+            }
+
+            outbound.clear();
+            int start = ZigBeeProtocol.beginFrame(outbound,
+                    ZigBeeProtocol.flags(versionAndFlags) | ZigBeeProtocol.FLAG_ADDRESSED, data.get(frame + 2) & 0xFF);
+            outbound.put((byte) (address >> 8));
+            outbound.put((byte) address);
+            for (int i = 0; i < length; i++) {
+                outbound.put(data.get(frame + ZigBeeProtocol.HEADER_SIZE + i));
+            }
+            ZigBeeProtocol.endFrame(outbound, start);
+            outbound.flip();
+            data.position(frame + ZigBeeProtocol.OVERHEAD + length);
+
+            framesSent++;
+            if (transport != null) {
+                transport.write(outbound);
+            }
+        }
+        data.position(data.limit());
+    }
+
+    /**
+     * Open the coordinator radio if this is the first link.
+     *
+     * @throws IOException If the radio could not be opened
+     */
+    private synchronized void openLink() throws IOException {
+        if (openLinks == 0 && transport != null) {
+            transport.setReceiver(this);
+            transport.open();
+        }
+        openLinks++;
+    }
+
+    /**
+     * Close the coordinator radio if this was the last link.
+     */
+    private synchronized void closeLink() {
+        openLinks--;
+        if (openLinks == 0 && transport != null) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Get the number of inbound frames passed to a session.
+     *
+     * @return Number of routed frames
+     */
+    public long getFramesRouted() {
+        return framesRouted;
+    }
+
+    /**
+     * Get the number of inbound frames with no address or no session bound to it.
+     *
+     * @return Number of unrouted frames
+     */
+    public long getFramesUnrouted() {
+        return framesUnrouted;
+    }
+
+    /**
+     * Get the number of frames sent to controllers.
+     *
+     * @return Number of frames sent
+     */
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    /**
+     * Get the decoder for the coordinator radio, for its error counters.
+     *
+     * @return Frame decoder
+     */
+    public FrameDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Transport for one controller address on the shared radio.
+     */
+    private class Link implements ZigBeeTransport {
+        private int address;
+        private volatile boolean open;
+
+        /**
+         * Constructor for creating a new link.
+         *
+         * @param address Controller address
+         */
+        Link(int address) {
+            this.address = address;
+        }
+
+        @Override
+        public synchronized void open() throws IOException {
+            if (!open) {
+                openLink();
+                open = true;
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (open) {
+                open = false;
+                receivers.set(address, null);
+                closeLink();
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open && (transport == null || transport.isOpen());
+        }
+
+        @Override
+        public void write(ByteBuffer data) throws IOException {
+            ZigBeeCoordinator.this.write(address, data);
+        }
+
+        @Override
+        public int getBacklog() {
+            // Every session shares the radio's airtime
+            return transport == null ? 0 : transport.getBacklog();
+        }
+
+        @Override
+        public void setReceiver(ZigBeeReceiver receiver) {
+            receivers.set(address, receiver);
+        }
+    }
+}
@@ -1,21 +1,86 @@
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.util.Enumeration;
-import java.util.TooManyListenersException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * ZigBee communication manager.
+ * Commands go out over a {@link ZigBeeTransport}; controller input coming
+ * back is decoded on the transport's reader thread into an
+ * {@link InputEventRing}, which the game loop drains once per tick.
+ *
+ * Both directions use the framed {@link ZigBeeProtocol}. With ack mode on,
+ * every frame to the Arduino asks for a selective acknowledgement and is
+ * sent again if none arrives in time.
+ *
+ * Outbound commands are not written one by one. Each actuator (LED, buzzer,
+ * servo) keeps only the last value set during a tick, and {@link #flush()}
+ * sends what changed as a single frame at the end of the tick. The link
+ * runs at 9600 baud, so airtime is tracked as a byte budget; when the link
+ * is saturated the servo position is held back, and only its newest value
+ * goes out once there is room.
+ *
+ * Deferred commands, such as turning the LED off after a flash, wait on a
+ * {@link TimingWheel} that each flush advances. There is at most one
+ * pending timer per actuator: scheduling or sending a new command to an
+ * actuator replaces its pending one.
  */
-public class ZigBeeManager {
+public class ZigBeeManager implements ZigBeeReceiver {
+    /** Baud rate of the radio link. */
+    public static final int BAUD_RATE = 9600;
+    /** How long the LED stays lit for a flash, in milliseconds. */
+    public static final long LED_FLASH_MS = 150;
+    /** How long the servo holds a position before returning to center, in milliseconds. */
+    public static final long SERVO_RETURN_MS = 300;
+
+    private static final int LED = 1;
+    private static final int BUZZER = 2;
+    private static final int SERVO = 3;
+    private static final double BYTES_PER_SECOND = BAUD_RATE / 10.0;
+    private static final double MAX_AIRTIME_BYTES = 32;
+    private static final int MAX_BACKLOG = 64;
+    private static final long TIMER_RESOLUTION_NANOS = 10_000_000L;
+    private static final int TIMER_SLOTS = 256;
+    private static final int ACK_WINDOW = 8;
+    private static final long ACK_TIMEOUT_NANOS = 100_000_000L;
+    private static final int MAX_TRIES = 3;
+    private static final int INPUT_CAPACITY = 64;
+
     private GameEngine gameEngine;
     private boolean connected;
     private boolean simulationMode;
     private ExecutorService executor;
+    private SplittableRandom simulationRandom;
+    private ZigBeeTransport transport;
+    private ByteBuffer sendBuffer;
+    private LatencyHistogram inputLatency;
+    private InputEventRing inputEvents;
+    private InputEventRing.Sink inputSink;
+
+    private int[] stagedValues;
+    private int stagedMask;
+    private double airtimeBytes;
+    private long lastFlushNanos;
+    private long commandsStaged;
+    private long commandsCoalesced;
+    private long servoDeferrals;
+    private long packetsSent;
+    private TimingWheel timers;
+    private TimingWheel.Handler timerHandler;
+
+    private FrameDecoder decoder;
+    private int nextSeq;
+    private boolean syncPending;
+    private int syncSeq;
+    private boolean ackMode;
+    private ByteBuffer[] unackedFrames;
+    private int[] unackedSeq;
+    private long[] unackedSentNanos;
+    private int[] unackedTries;
+    private long framesRetransmitted;
+    private long framesLost;
 
     /**
      * Constructor for creating a new ZigBee manager.
@@ -27,6 +92,30 @@ public class ZigBeeManager {
         this.connected = false;
         this.simulationMode = true; // For testing without actual ZigBee hardware
         this.executor = Executors.newSingleThreadExecutor();
+        this.simulationRandom = gameEngine.splitRandom();
+        this.sendBuffer = ByteBuffer.allocateDirect(ZigBeeProtocol.MAX_FRAME);
+        this.inputLatency = new LatencyHistogram();
+        this.inputEvents = new InputEventRing(INPUT_CAPACITY, InputEventRing.OverflowPolicy.LATEST_WINS);
+        this.inputSink = this::applyInput;
+        this.stagedValues = new int[16];
+        this.airtimeBytes = MAX_AIRTIME_BYTES;
+        this.lastFlushNanos = gameEngine.nanoTime();
+        this.timers = new TimingWheel(TIMER_SLOTS, 16, lastFlushNanos / TIMER_RESOLUTION_NANOS);
+        this.timerHandler = (type, command) -> stage(command);
+
+        this.decoder = new FrameDecoder(this::onFrame);
+        this.nextSeq = 0;
+        this.syncPending = false;
+        this.syncSeq = -1;
+        this.ackMode = false;
+        this.unackedFrames = new ByteBuffer[ACK_WINDOW];
+        this.unackedSeq = new int[ACK_WINDOW];
+        this.unackedSentNanos = new long[ACK_WINDOW];
+        this.unackedTries = new int[ACK_WINDOW];
+        for (int i = 0; i < ACK_WINDOW; i++) {
+            this.unackedFrames[i] = ByteBuffer.allocateDirect(ZigBeeProtocol.MAX_FRAME);
+            this.unackedSeq[i] = -1;
+        }
     }
 
     /**
@@ -37,19 +126,36 @@ public class ZigBeeManager {
             // Simulation mode
             System.out.println("ZigBee in simulation mode");
             connected = true;
+            syncPending = true;
             startSimulation();
             return;
         }
 
-        // In a real implementation, we would set up serial port communication here
-        System.out.println("ZigBee connected");
-        connected = true;
+        if (transport == null) {
+            System.out.println("ZigBee has no transport configured");
+            return;
+        }
+
+        try {
+            transport.setReceiver(this);
+            transport.open();
+            System.out.println("ZigBee connected");
+            connected = true;
+
+            // The Arduino may still hold sequence numbers from an earlier game
+            syncPending = true;
+        } catch (IOException e) {
+            System.err.println("ZigBee connection failed: " + e.getMessage());
+        }
     }
 
     /**
      * Disconnect from the ZigBee device.
      */
     public void disconnect() {
+        // Send whatever the last tick left behind
+        flush();
+
         if (simulationMode) {
             // Simulation mode
             System.out.println("ZigBee simulation stopped");
@@ -58,29 +164,312 @@ public class ZigBeeManager {
             return;
         }
 
-        // In a real implementation, we would close the serial port here
+        if (transport != null) {
+            transport.close();
+        }
         System.out.println("ZigBee disconnected");
         connected = false;
     }
 
     /**
      * Send a command to the ZigBee device.
+     * The command is held until the next {@link #flush()}, and replaces any
+     * command for the same actuator staged earlier in the tick.
      *
      * @param command Command to send
      */
-    public void sendCommand(int command) {
+    public synchronized void sendCommand(int command) {
+        // A command sent now overrides one scheduled for later
+        timers.cancel((command >> 4) & 0x0F);
+        stage(command);
+    }
+
+    /**
+     * Send a command to the ZigBee device after a delay.
+     * Replaces any command already scheduled for the same actuator.
+     *
+     * @param command Command to send
+     * @param delayMs Delay in milliseconds
+     */
+    public synchronized void scheduleCommand(int command, long delayMs) {
+        long delay = (delayMs * 1_000_000L + TIMER_RESOLUTION_NANOS - 1) / TIMER_RESOLUTION_NANOS;
+        timers.schedule((command >> 4) & 0x0F, timers.getTime() + delay, command);
+    }
+
+    /**
+     * Stage a command for the next flush.
+     *
+     * @param command Command to stage
+     */
+    private void stage(int command) {
+        if (!connected) {
+            return;
+        }
+
+        int type = (command >> 4) & 0x0F;
+        int bit = 1 << type;
+        if ((stagedMask & bit) != 0) {
+            commandsCoalesced++;
+        }
+        stagedValues[type] = command & 0x0F;
+        stagedMask |= bit;
+        commandsStaged++;
+    }
+
+    /**
+     * Send the commands staged during this tick as one packet.
+     * Called once per tick by the game engine.
+     */
+    public synchronized void flush() {
+        long now = gameEngine.nanoTime();
+        airtimeBytes = Math.min(MAX_AIRTIME_BYTES, airtimeBytes + (now - lastFlushNanos) * BYTES_PER_SECOND / 1e9);
+        lastFlushNanos = now;
+
+        // Stage the deferred commands that are now due
+        timers.advance(now / TIMER_RESOLUTION_NANOS, timerHandler);
+
         if (!connected) {
             return;
         }
+        if (ackMode) {
+            retransmitExpired(now);
+        }
+        if (stagedMask == 0) {
+            return;
+        }
+
+        // LED and buzzer always go; the servo waits if the link is saturated
+        sendBuffer.clear();
+        int flags = (ackMode ? ZigBeeProtocol.FLAG_ACK_REQUESTED : 0) | (syncPending ? ZigBeeProtocol.FLAG_SYNC : 0);
+        int frameStart = ZigBeeProtocol.beginFrame(sendBuffer, flags, nextSeq);
+        for (int type = 0; type < stagedValues.length; type++) {
+            if ((stagedMask & (1 << type)) == 0 || type == SERVO) {
+                continue;
+            }
+            sendBuffer.put((byte) ((type << 4) | stagedValues[type]));
+        }
+
+        boolean servoStaged = (stagedMask & (1 << SERVO)) != 0;
+        if (servoStaged && isSaturated(sendBuffer.position() - frameStart + 2)) {
+            servoDeferrals++;
+            stagedMask = 1 << SERVO;
+        } else {
+            if (servoStaged) {
+                sendBuffer.put((byte) ((SERVO << 4) | stagedValues[SERVO]));
+            }
+            stagedMask = 0;
+        }
+
+        if (sendBuffer.position() - frameStart == ZigBeeProtocol.HEADER_SIZE) {
+            return;
+        }
+        ZigBeeProtocol.endFrame(sendBuffer, frameStart);
+        sendBuffer.flip();
+        if (ackMode) {
+            rememberFrame(nextSeq, sendBuffer, now);
+            syncSeq = syncPending ? nextSeq : syncSeq;
+        }
+        nextSeq = (nextSeq + 1) & 0xFF;
+        syncPending = false;
+        send(sendBuffer);
+    }
+
+    /**
+     * Write an encoded frame to the link.
+     *
+     * @param frame Frame bytes, between position and limit
+     */
+    private void send(ByteBuffer frame) {
+        airtimeBytes -= frame.remaining();
+        packetsSent++;
 
         if (simulationMode) {
             // Simulation mode
-            System.out.println("ZigBee command sent: " + command);
+            StringBuilder packet = new StringBuilder();
+            for (int i = frame.position(); i < frame.limit(); i++) {
+                packet.append(packet.length() == 0 ? "" : " ").append(String.format("%02X", frame.get(i) & 0xFF));
+            }
+            System.out.println("ZigBee frame sent: " + packet);
             return;
         }
 
-        // In a real implementation, we would send the command to the serial port here
-        System.out.println("ZigBee command sent: " + command);
+        try {
+            transport.write(frame);
+        } catch (IOException e) {
+            System.err.println("ZigBee send failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Keep a copy of a frame until the Arduino acknowledges it.
+     *
+     * @param seq Sequence number of the frame
+     * @param frame Frame bytes, between position and limit
+     * @param now Current time in nanoseconds
+     */
+    private void rememberFrame(int seq, ByteBuffer frame, long now) {
+        int slot = seq & (ACK_WINDOW - 1);
+        if (unackedSeq[slot] >= 0) {
+            // The window has wrapped onto a frame that never got through
+            framesLost++;
+        }
+
+        ByteBuffer copy = unackedFrames[slot];
+        copy.clear();
+        for (int i = frame.position(); i < frame.limit(); i++) {
+            copy.put(frame.get(i));
+        }
+        copy.flip();
+        unackedSeq[slot] = seq;
+        unackedSentNanos[slot] = now;
+        unackedTries[slot] = 1;
+    }
+
+    /**
+     * Send again the frames whose acknowledgement is overdue.
+     *
+     * @param now Current time in nanoseconds
+     */
+    private void retransmitExpired(long now) {
+        for (int slot = 0; slot < ACK_WINDOW; slot++) {
+            if (unackedSeq[slot] < 0 || now - unackedSentNanos[slot] < ACK_TIMEOUT_NANOS) {
+                continue;
+            }
+
+            if (unackedTries[slot] >= MAX_TRIES) {
+                framesLost++;
+                unackedSeq[slot] = -1;
+                continue;
+            }
+
+            unackedTries[slot]++;
+            unackedSentNanos[slot] = now;
+            framesRetransmitted++;
+            unackedFrames[slot].rewind();
+            send(unackedFrames[slot]);
+        }
+    }
+
+    /**
+     * Clear the frames named by a selective acknowledgement.
+     * The payload is the newest sequence number received, then a bitmap in
+     * which bit i means sequence number (newest - 1 - i) was received too.
+     *
+     * @param payload Acknowledgement payload
+     */
+    private synchronized void handleAck(ByteBuffer payload) {
+        if (payload.remaining() < 2) {
+            return;
+        }
+
+        int newest = payload.get() & 0xFF;
+        int bitmap = payload.get() & 0xFF;
+        acknowledge(newest);
+        for (int i = 0; i < 8; i++) {
+            if ((bitmap & (1 << i)) != 0) {
+                acknowledge((newest - 1 - i) & 0xFF);
+            }
+        }
+        endSync();
+    }
+
+    /**
+     * Stop retransmitting the sync flag once the Arduino has acked a frame of this connection.
+     * A late copy of the first frame still carrying the flag would re-base the
+     * Arduino's receive window behind frames it has already acted on.
+     */
+    private void endSync() {
+        if (syncSeq < 0) {
+            return;
+        }
+
+        int slot = syncSeq & (ACK_WINDOW - 1);
+        if (unackedSeq[slot] == syncSeq) {
+            // Rewrite the flags and the CRC of the stored copy
+            ByteBuffer frame = unackedFrames[slot];
+            frame.put(1, (byte) (frame.get(1) & ~ZigBeeProtocol.FLAG_SYNC));
+            frame.put(frame.limit() - 1, (byte) ZigBeeProtocol.crc8(frame, 1, frame.limit() - 1));
+        }
+        syncSeq = -1;
+    }
+
+    /**
+     * Forget a frame that the Arduino has received.
+     *
+     * @param seq Sequence number of the frame
+     */
+    private void acknowledge(int seq) {
+        int slot = seq & (ACK_WINDOW - 1);
+        if (unackedSeq[slot] == seq) {
+            unackedSeq[slot] = -1;
+        }
+    }
+
+    /**
+     * Check if the link has no room for more bytes this tick.
+     *
+     * @param bytes Bytes the packet would hold
+     * @return true if sending them would overrun the link, false otherwise
+     */
+    private boolean isSaturated(int bytes) {
+        if (airtimeBytes < bytes) {
+            return true;
+        }
+        return !simulationMode && transport != null && transport.getBacklog() > MAX_BACKLOG;
+    }
+
+    /**
+     * Decode frames from the Arduino.
+     *
+     * @param data Received bytes
+     * @param receivedNanos System.nanoTime() when the bytes were read
+     */
+    @Override
+    public void onReceive(ByteBuffer data, long receivedNanos) {
+        decoder.decode(data, receivedNanos);
+    }
+
+    /**
+     * Queue a frame of controller input for the next tick, or apply an acknowledgement.
+     *
+     * @param flags Frame flags
+     * @param seq Sequence number
+     * @param payload Frame payload
+     * @param receivedNanos System.nanoTime() when the frame was read
+     */
+    private void onFrame(int flags, int seq, ByteBuffer payload, long receivedNanos) {
+        if ((flags & ZigBeeProtocol.FLAG_ACK) != 0) {
+            handleAck(payload);
+            return;
+        }
+
+        while (payload.hasRemaining()) {
+            int input = payload.get();
+            if (input >= 1 && input <= 6) {
+                inputEvents.offer(input, receivedNanos);
+            }
+        }
+    }
+
+    /**
+     * Apply the controller input received since the last tick.
+     * Called by the game engine once per tick, on the game loop thread.
+     */
+    public void drainInput() {
+        inputEvents.drain(inputSink);
+    }
+
+    /**
+     * Apply one drained input to the engine.
+     *
+     * @param code Input code (1-4 tilt, 5 button, 6 motion)
+     * @param receivedNanos System.nanoTime() when the input arrived
+     */
+    private void applyInput(int code, long receivedNanos) {
+        gameEngine.apply(GameCommand.fromInput(code));
+
+        // Time from the bytes arriving to the input taking effect
+        inputLatency.record(System.nanoTime() - receivedNanos);
     }
 
     /**
@@ -90,7 +479,7 @@ public class ZigBeeManager {
      */
     public void sendLedCommand(int colorValue) {
         // Format: [1][color] (type 1 = LED control)
-        int command = (1 << 4) | (colorValue & 0x0F);
+        int command = (LED << 4) | (colorValue & 0x0F);
         sendCommand(command);
     }
 
@@ -101,7 +490,7 @@ public class ZigBeeManager {
      */
     public void sendBuzzerCommand(int toneValue) {
         // Format: [2][tone] (type 2 = buzzer control)
-        int command = (2 << 4) | (toneValue & 0x0F);
+        int command = (BUZZER << 4) | (toneValue & 0x0F);
         sendCommand(command);
     }
 
@@ -112,10 +501,30 @@ public class ZigBeeManager {
      */
     public void sendServoCommand(int position) {
         // Format: [3][position] (type 3 = servo control)
-        int command = (3 << 4) | (position & 0x0F);
+        int command = (SERVO << 4) | (position & 0x0F);
         sendCommand(command);
     }
 
+    /**
+     * Send LED control command to Arduino after a delay.
+     *
+     * @param colorValue LED color value (0-7)
+     * @param delayMs Delay in milliseconds
+     */
+    public void scheduleLedCommand(int colorValue, long delayMs) {
+        scheduleCommand((LED << 4) | (colorValue & 0x0F), delayMs);
+    }
+
+    /**
+     * Send servo control command to Arduino after a delay.
+     *
+     * @param position Servo position value (0-15 maps to 0-180 degrees)
+     * @param delayMs Delay in milliseconds
+     */
+    public void scheduleServoCommand(int position, long delayMs) {
+        scheduleCommand((SERVO << 4) | (position & 0x0F), delayMs);
+    }
+
     /**
      * Send game start command to Arduino.
      * This will reset the Arduino controller state.
@@ -171,8 +580,7 @@ public class ZigBeeManager {
 
         // Move servo briefly to a position then back to center
         sendServoCommand(12); // ~135 degrees
-
-        // In a real implementation, we would wait a bit then send servo back to center
+        scheduleServoCommand(7, SERVO_RETURN_MS); // ~90 degrees
     }
 
     /**
@@ -183,8 +591,8 @@ public class ZigBeeManager {
             try {
                 while (connected) {
                     // Simulate random movement commands
-                    if (Math.random() < 0.1) {
-                        int command = (int) (Math.random() * 6) + 1;
+                    if (simulationRandom.nextDouble() < 0.1) {
+                        int command = simulationRandom.nextInt(6) + 1;
 
                         if (command <= 4) {
                             // Movement command
@@ -216,6 +624,142 @@ public class ZigBeeManager {
         return connected;
     }
 
+    /**
+     * Set the transport used when simulation mode is off.
+     * Must be called before connecting.
+     *
+     * @param transport Transport to the ZigBee radio
+     */
+    public void setTransport(ZigBeeTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Get the transport used when simulation mode is off.
+     *
+     * @return Transport, or null if none is set
+     */
+    public ZigBeeTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Get the histogram of input latency, from bytes arriving to the input taking effect.
+     *
+     * @return Input latency histogram
+     */
+    public LatencyHistogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Get the queue of controller input waiting for the next tick.
+     *
+     * @return Input event ring
+     */
+    public InputEventRing getInputEvents() {
+        return inputEvents;
+    }
+
+    /**
+     * Set what happens to controller input that arrives while the input queue is full.
+     *
+     * @param policy Overflow policy
+     */
+    public void setInputOverflowPolicy(InputEventRing.OverflowPolicy policy) {
+        inputEvents.setPolicy(policy);
+    }
+
+    /**
+     * Get the number of commands staged for sending.
+     *
+     * @return Number of commands staged
+     */
+    public long getCommandsStaged() {
+        return commandsStaged;
+    }
+
+    /**
+     * Get the number of commands replaced by a later command to the same actuator.
+     *
+     * @return Number of commands coalesced away
+     */
+    public long getCommandsCoalesced() {
+        return commandsCoalesced;
+    }
+
+    /**
+     * Get the number of times a servo position was held back because the link was saturated.
+     *
+     * @return Number of servo deferrals
+     */
+    public long getServoDeferrals() {
+        return servoDeferrals;
+    }
+
+    /**
+     * Get the number of deferred commands waiting to be sent.
+     *
+     * @return Number of pending deferred commands
+     */
+    public synchronized int getPendingCommands() {
+        return timers.size();
+    }
+
+    /**
+     * Set whether frames to the Arduino ask for acknowledgement and are sent again if lost.
+     *
+     * @param ackMode Whether to use acknowledgements
+     */
+    public synchronized void setAckMode(boolean ackMode) {
+        this.ackMode = ackMode;
+    }
+
+    /**
+     * Check if ack mode is enabled.
+     *
+     * @return true if ack mode is enabled, false otherwise
+     */
+    public synchronized boolean isAckMode() {
+        return ackMode;
+    }
+
+    /**
+     * Get the number of frames sent again because their acknowledgement was late.
+     *
+     * @return Number of retransmitted frames
+     */
+    public synchronized long getFramesRetransmitted() {
+        return framesRetransmitted;
+    }
+
+    /**
+     * Get the number of frames given up on without an acknowledgement.
+     *
+     * @return Number of lost frames
+     */
+    public synchronized long getFramesLost() {
+        return framesLost;
+    }
+
+    /**
+     * Get the decoder for frames from the Arduino, for its error counters.
+     *
+     * @return Frame decoder
+     */
+    public FrameDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Get the number of packets sent.
+     *
+     * @return Number of packets sent
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
     /**
      * Set simulation mode.
      *
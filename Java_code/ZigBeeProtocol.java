@@ -0,0 +1,135 @@
+//package com.motionmaze.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Framed wire protocol for the ZigBee link.
+ * <pre>
+ * [START 0xA5][version:4 | flags:4][seq][length][payload ...][CRC-8]
+ * </pre>
+ * The payload is a run of one-byte commands, [type:4][value:4] towards the
+ * Arduino and input codes (1-6) from it, so one frame can carry every
+ * command of a tick. The CRC-8 (polynomial 0x07) covers everything between
+ * the start byte and the CRC. The start byte is not ASCII, so the debug text
+ * the Arduino prints on the same serial line is skipped by the decoder.
+ *
+ * When many controllers share one coordinator radio, frames carry
+ * {@link #FLAG_ADDRESSED} and their payload starts with the controller's
+ * two-byte address (high byte first); see {@link ZigBeeCoordinator}.
+ *
+ * Frames are encoded straight into the caller's buffer: open a frame with
+ * {@link #beginFrame}, put the payload bytes, and close it with
+ * {@link #endFrame}, which fills in the length and CRC in place.
+ */
+public final class ZigBeeProtocol {
+    /** Start-of-frame marker. */
+    public static final int START = 0xA5;
+    /** Protocol version. */
+    public static final int VERSION = 1;
+    /** Flag: the sender wants this frame acknowledged. */
+    public static final int FLAG_ACK_REQUESTED = 1;
+    /** Flag: this frame is an acknowledgement. */
+    public static final int FLAG_ACK = 2;
+    /** Flag: the payload starts with a controller address. */
+    public static final int FLAG_ADDRESSED = 4;
+    /** Flag: first frame of a new connection; the receiver forgets the sequence numbers it saw before. */
+    public static final int FLAG_SYNC = 8;
+    /** Bytes of controller address at the start of an addressed payload. */
+    public static final int ADDRESS_SIZE = 2;
+    /** Highest controller address. */
+    public static final int MAX_ADDRESS = 0xFFFF;
+    /** Bytes before the payload. */
+    public static final int HEADER_SIZE = 4;
+    /** Bytes of framing around the payload. */
+    public static final int OVERHEAD = HEADER_SIZE + 1;
+    /** Largest payload a frame may carry. */
+    public static final int MAX_PAYLOAD = 32;
+    /** Largest encoded frame. */
+    public static final int MAX_FRAME = OVERHEAD + MAX_PAYLOAD;
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+            }
+            CRC_TABLE[i] = crc;
+        }
+    }
+
+    /**
+     * Private constructor; this class only holds constants and static helpers.
+     */
+    private ZigBeeProtocol() {
+    }
+
+    /**
+     * Start a frame at the buffer's position.
+     *
+     * @param out Buffer to encode into
+     * @param flags Frame flags
+     * @param seq Sequence number (0-255)
+     * @return Position of the frame's start byte, to pass to endFrame
+     */
+    public static int beginFrame(ByteBuffer out, int flags, int seq) {
+        int start = out.position();
+        out.put((byte) START);
+        out.put((byte) ((VERSION << 4) | (flags & 0x0F)));
+        out.put((byte) seq);
+        out.put((byte) 0);
+        return start;
+    }
+
+    /**
+     * Finish a frame: fill in its length and append its CRC.
+     *
+     * @param out Buffer the frame was encoded into
+     * @param start Position returned by beginFrame
+     */
+    public static void endFrame(ByteBuffer out, int start) {
+        int length = out.position() - start - HEADER_SIZE;
+        if (length > MAX_PAYLOAD) {
+            throw new IllegalStateException("Frame payload too long: " + length);
+        }
+        out.put(start + 3, (byte) length);
+        out.put((byte) crc8(out, start + 1, out.position()));
+    }
+
+    /**
+     * Compute the CRC-8 of a range of a buffer, without moving its position.
+     *
+     * @param buffer Buffer holding the bytes
+     * @param from First index (inclusive)
+     * @param to Last index (exclusive)
+     * @return CRC-8 of the bytes
+     */
+    public static int crc8(ByteBuffer buffer, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = CRC_TABLE[(crc ^ buffer.get(i)) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * Get the version of an encoded frame from its second byte.
+     *
+     * @param versionAndFlags Second byte of the frame
+     * @return Protocol version
+     */
+    public static int version(int versionAndFlags) {
+        return (versionAndFlags >> 4) & 0x0F;
+    }
+
+    /**
+     * Get the flags of an encoded frame from its second byte.
+     *
+     * @param versionAndFlags Second byte of the frame
+     * @return Frame flags
+     */
+    public static int flags(int versionAndFlags) {
+        return versionAndFlags & 0x0F;
+    }
+}
@@ -0,0 +1,18 @@
+//package com.motionmaze.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receiver for bytes arriving on a {@link ZigBeeTransport}.
+ */
+public interface ZigBeeReceiver {
+    /**
+     * Called on the transport's reader thread when bytes arrive.
+     * The buffer is reused by the transport, so its contents must be consumed
+     * before returning.
+     *
+     * @param data Received bytes, between position and limit
+     * @param receivedNanos System.nanoTime() when the bytes were read
+     */
+    void onReceive(ByteBuffer data, long receivedNanos);
+}
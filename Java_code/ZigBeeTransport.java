@@ -0,0 +1,71 @@
+//package com.motionmaze.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte link to the ZigBee radio.
+ * Implementations read on their own thread and hand received bytes to a
+ * {@link ZigBeeReceiver}, so the game loop never blocks on input.
+ */
+public interface ZigBeeTransport {
+    /**
+     * Open the link and start reading.
+     *
+     * @throws IOException If the link could not be opened
+     */
+    void open() throws IOException;
+
+    /**
+     * Close the link and stop reading.
+     */
+    void close();
+
+    /**
+     * Check if the link is open.
+     *
+     * @return true if the link is open, false otherwise
+     */
+    boolean isOpen();
+
+    /**
+     * Write bytes to the link.
+     * The buffer's remaining bytes are consumed; bytes that cannot be written
+     * yet are kept by the transport and sent as soon as the link allows.
+     *
+     * @param data Bytes to write
+     * @throws IOException If the link failed
+     */
+    void write(ByteBuffer data) throws IOException;
+
+    /**
+     * Get the number of bytes accepted by write but not yet sent.
+     *
+     * @return Bytes waiting to go out on the link
+     */
+    int getBacklog();
+
+    /**
+     * Set the receiver for incoming bytes.
+     *
+     * @param receiver Receiver to call on the transport's reader thread
+     */
+    void setReceiver(ZigBeeReceiver receiver);
+
+    /**
+     * Create a transport from a link description.
+     * A path such as /dev/ttyUSB0 selects the serial port; host:port selects a
+     * socket, such as a radio bridge or an {@link ArduinoStandIn}.
+     *
+     * @param spec Link to use
+     * @param baud Baud rate for a serial port
+     * @return Transport for the link, not yet open
+     */
+    static ZigBeeTransport fromSpec(String spec, int baud) {
+        int colon = spec.lastIndexOf(':');
+        if (spec.startsWith("/") || colon < 0) {
+            return new SerialTransport(spec, baud);
+        }
+        return new SocketTransport(spec.substring(0, colon), Integer.parseInt(spec.substring(colon + 1)));
+    }
+}